@@ -17,22 +17,49 @@ package org.codelibs.fess.ds.atlassian;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.codelibs.core.exception.InterruptedRuntimeException;
 import org.codelibs.core.lang.StringUtil;
 import org.codelibs.fess.Constants;
+import org.codelibs.fess.app.service.FailureUrlService;
 import org.codelibs.fess.crawler.exception.CrawlingAccessException;
 import org.codelibs.fess.crawler.filter.UrlFilter;
 import org.codelibs.fess.ds.AbstractDataStore;
+import org.codelibs.fess.ds.atlassian.api.util.DataConfigUtil;
+import org.codelibs.fess.ds.callback.IndexUpdateCallback;
 import org.codelibs.fess.entity.DataStoreParams;
+import org.codelibs.fess.helper.CrawlerStatsHelper;
+import org.codelibs.fess.helper.CrawlerStatsHelper.StatsAction;
+import org.codelibs.fess.helper.CrawlerStatsHelper.StatsKeyObject;
+import org.codelibs.fess.opensearch.config.exentity.DataConfig;
 import org.codelibs.fess.util.ComponentUtil;
+import org.opensearch.action.admin.indices.get.GetIndexResponse;
 
 /**
  * Abstract base class for Atlassian data stores providing common functionality
@@ -63,8 +90,68 @@ public abstract class AtlassianDataStore extends AbstractDataStore {
     protected static final String URL_FILTER = "url_filter";
     /** Parameter key for number of threads configuration. */
     protected static final String NUMBER_OF_THREADS = "number_of_threads";
-    /** Parameter key for read interval configuration. */
-    protected static final String READ_INTERVAL = "read_interval";
+    /** Parameter key for the type of threads processing documents. */
+    protected static final String EXECUTOR_TYPE = "executor_type";
+    /** Parameter key for the maximum time to wait for documents being processed after fetching in milliseconds. */
+    protected static final String DRAIN_TIMEOUT = "drain_timeout";
+    /** Parameter key for the number of threads fetching documents concurrently. */
+    protected static final String FETCH_THREADS = "fetch_threads";
+    /** Parameter key for the maximum number of documents waiting to be processed. */
+    protected static final String QUEUE_SIZE = "queue_size";
+    /** Parameter key for the maximum size of an attachment in bytes. */
+    protected static final String ATTACHMENT_MAX_SIZE = "attachment.max_size";
+    /** Parameter key for the comma-separated media types of attachments to index. */
+    protected static final String ATTACHMENT_MEDIA_TYPES = "attachment.media_types";
+    /** Parameter key for the number of threads downloading attachments. */
+    protected static final String ATTACHMENT_THREADS = "attachment.threads";
+    /** Parameter key for enabling incremental crawling. */
+    protected static final String INCREMENTAL = "incremental";
+    /** Parameter key for ignoring the stored checkpoint in incremental crawling. */
+    protected static final String INCREMENTAL_FULL_CRAWL = "incremental.full_crawl";
+    /** Parameter key for the overlap subtracted from the checkpoint in milliseconds. */
+    protected static final String INCREMENTAL_OVERLAP = "incremental.overlap";
+    /** Parameter key for the time zone of date values in queries. */
+    protected static final String INCREMENTAL_TIME_ZONE = "incremental.time_zone";
+    /** Parameter key for the checkpoint stored by the last successful run. */
+    protected static final String INCREMENTAL_CHECKPOINT = "incremental.checkpoint";
+    /** Key of the crawl checkpoint in the configuration map. */
+    protected static final String CHECKPOINT = "checkpoint";
+    /** Configuration map key for the attachment processor. */
+    protected static final String ATTACHMENT_PROCESSOR = "attachment_processor";
+    /** Parameter key for skipping documents unchanged since the last run by their fingerprints. */
+    protected static final String FINGERPRINT = "fingerprint";
+    /** Parameter key for the file storing the fingerprints. */
+    protected static final String FINGERPRINT_PATH = "fingerprint.path";
+    /** Parameter key of Fess for deleting documents not updated by the crawl. */
+    protected static final String DELETE_OLD_DOCS = "delete.old.docs";
+    /** Configuration map key for the fingerprint store. */
+    protected static final String FINGERPRINT_STORE = "fingerprint_store";
+
+    /** Executor type running documents on platform threads. */
+    protected static final String EXECUTOR_TYPE_PLATFORM = "platform";
+    /** Executor type running documents on virtual threads. */
+    protected static final String EXECUTOR_TYPE_VIRTUAL = "virtual";
+
+    /** Default drain timeout, 0 to wait until all documents are processed. */
+    protected static final String DEFAULT_DRAIN_TIMEOUT = "0";
+
+    /** Default number of threads fetching documents concurrently. */
+    protected static final String DEFAULT_FETCH_THREADS = "2";
+
+    /** Default maximum number of documents waiting to be processed. */
+    protected static final String DEFAULT_QUEUE_SIZE = "100";
+
+    /** Default maximum size of an attachment in bytes. */
+    protected static final String DEFAULT_ATTACHMENT_MAX_SIZE = "10485760";
+
+    /** Default number of threads downloading attachments. */
+    protected static final String DEFAULT_ATTACHMENT_THREADS = "2";
+
+    /** Default overlap subtracted from the checkpoint in milliseconds. */
+    protected static final String DEFAULT_INCREMENTAL_OVERLAP = "60000";
+
+    /** Date format of date values in JQL and CQL. */
+    protected static final DateTimeFormatter QUERY_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm");
 
     /** Name of the text extractor to use for content processing. */
     protected String extractorName = "tikaExtractor";
@@ -78,6 +165,19 @@ public abstract class AtlassianDataStore extends AbstractDataStore {
         this.extractorName = extractorName;
     }
 
+    /** Whether HTML bodies are converted to text by {@link HtmlTextExtractor} instead of the text extractor. */
+    protected boolean lightHtmlExtraction = true;
+
+    /**
+     * Sets whether HTML bodies are converted to text by {@link HtmlTextExtractor}.
+     * If false, they are parsed by the text extractor specified by extractorName.
+     *
+     * @param lightHtmlExtraction true to use the lightweight HTML extraction
+     */
+    public void setLightHtmlExtraction(final boolean lightHtmlExtraction) {
+        this.lightHtmlExtraction = lightHtmlExtraction;
+    }
+
     /**
      * Creates and configures a URL filter based on the provided parameters.
      *
@@ -102,17 +202,432 @@ public abstract class AtlassianDataStore extends AbstractDataStore {
     }
 
     /**
-     * Creates a new fixed thread pool executor.
+     * Creates a new pipeline processing documents with the configured number of threads.
+     * With the virtual executor type, each document is processed by its own virtual thread
+     * and up to the queue size of documents are processed concurrently regardless of the number of threads,
+     * so that concurrent requests are bounded only by max_concurrent_requests.
+     *
+     * @param <T> the type of documents
+     * @param paramMap the parameter map
+     * @param processor the processor called for each document
+     * @param dropHandler the handler called for each document dropped without being processed
+     * @return the started pipeline
+     */
+    protected <T> DocumentPipeline<T> newPipeline(final DataStoreParams paramMap, final Consumer<T> processor,
+            final Consumer<T> dropHandler) {
+        final int numberOfThreads = getNumberOfThreads(paramMap);
+        final int queueSize = getQueueSize(paramMap);
+        final String executorType = paramMap.getAsString(EXECUTOR_TYPE, EXECUTOR_TYPE_PLATFORM);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Pipeline: type={}, threads={}, queueSize={}", executorType, numberOfThreads, queueSize);
+        }
+        switch (executorType) {
+        case EXECUTOR_TYPE_PLATFORM:
+            return new DocumentPipeline<>(Executors.newFixedThreadPool(numberOfThreads), numberOfThreads, queueSize, processor)
+                    .onDropped(dropHandler);
+        case EXECUTOR_TYPE_VIRTUAL:
+            return new DocumentPipeline<>(Executors.newVirtualThreadPerTaskExecutor(), queueSize, processor).onDropped(dropHandler);
+        default:
+            throw new AtlassianDataStoreException(EXECUTOR_TYPE + " is invalid: " + executorType);
+        }
+    }
+
+    /**
+     * Runs the fetchers concurrently and waits until all of them finish.
+     * If a fetcher fails, the other fetchers are interrupted and the failure is rethrown.
+     *
+     * @param paramMap the parameter map
+     * @param fetchers the fetchers submitting documents to a pipeline
+     * @throws InterruptedException if interrupted while waiting
+     */
+    protected void fetchConcurrently(final DataStoreParams paramMap, final List<Runnable> fetchers) throws InterruptedException {
+        if (fetchers.size() == 1) {
+            fetchers.get(0).run();
+            return;
+        }
+        final int fetchThreads = Math.max(1, Math.min(fetchers.size(), getFetchThreads(paramMap)));
+        if (logger.isDebugEnabled()) {
+            logger.debug("Fetching with {} threads: {} fetchers", fetchThreads, fetchers.size());
+        }
+        final ExecutorService executorService = Executors.newFixedThreadPool(fetchThreads);
+        try {
+            final CompletionService<Void> completionService = new ExecutorCompletionService<>(executorService);
+            for (final Runnable fetcher : fetchers) {
+                completionService.submit(fetcher, null);
+            }
+            for (int i = 0; i < fetchers.size(); i++) {
+                try {
+                    completionService.take().get();
+                } catch (final ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException re) {
+                        throw re;
+                    }
+                    if (cause instanceof Error error) {
+                        throw error;
+                    }
+                    throw new AtlassianDataStoreException("Failed to fetch documents.", cause);
+                }
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates a new processor downloading attachments on its own pool of threads.
      *
-     * @param nThreads the number of threads in the pool
-     * @return the configured executor service
+     * @param paramMap the parameter map
+     * @return the attachment processor
+     */
+    protected AttachmentProcessor newAttachmentProcessor(final DataStoreParams paramMap) {
+        final int threads = getAttachmentThreads(paramMap);
+        final long maxSize = Long.parseLong(paramMap.getAsString(ATTACHMENT_MAX_SIZE, DEFAULT_ATTACHMENT_MAX_SIZE));
+        final List<String> mediaTypes = getKeyList(paramMap, ATTACHMENT_MEDIA_TYPES);
+        logger.info("Attachment: threads={}, maxSize={}, mediaTypes={}", threads, maxSize, mediaTypes);
+        return new AttachmentProcessor(threads, maxSize, mediaTypes);
+    }
+
+    /**
+     * Creates a new pipeline stage processing documents with attachments.
+     * The stage has its own workers and queue, so that documents waiting for attachments to be downloaded
+     * do not hold the workers processing the other documents.
+     *
+     * @param <T> the type of documents
+     * @param paramMap the parameter map
+     * @param processor the processor called for each document
+     * @param dropHandler the handler called for each document dropped without being processed
+     * @return the started pipeline
      */
-    protected ExecutorService newFixedThreadPool(final int nThreads) {
+    protected <T> DocumentPipeline<T> newAttachmentPipeline(final DataStoreParams paramMap, final Consumer<T> processor,
+            final Consumer<T> dropHandler) {
+        final int numberOfThreads = getAttachmentThreads(paramMap);
+        final int queueSize = getQueueSize(paramMap);
         if (logger.isDebugEnabled()) {
-            logger.debug("Executor Thread Pool: {}", nThreads);
+            logger.debug("Attachment pipeline: threads={}, queueSize={}", numberOfThreads, queueSize);
+        }
+        return new DocumentPipeline<>(numberOfThreads, queueSize, processor).onDropped(dropHandler);
+    }
+
+    /**
+     * Gets the number of threads downloading attachments from the parameter map.
+     *
+     * @param paramMap the parameter map
+     * @return the number of attachment threads, defaults to 2
+     */
+    protected int getAttachmentThreads(final DataStoreParams paramMap) {
+        return Integer.parseInt(paramMap.getAsString(ATTACHMENT_THREADS, DEFAULT_ATTACHMENT_THREADS));
+    }
+
+    /**
+     * Gets the attachment processor from the configuration map.
+     *
+     * @param configMap the configuration map
+     * @return the attachment processor, or null if attachments are not indexed
+     */
+    protected AttachmentProcessor getAttachmentProcessor(final Map<String, Object> configMap) {
+        return (AttachmentProcessor) configMap.get(ATTACHMENT_PROCESSOR);
+    }
+
+    /**
+     * Checks if documents unchanged since the last run are skipped by their fingerprints.
+     *
+     * @param paramMap the parameter map
+     * @return true if fingerprints are enabled
+     */
+    protected boolean isFingerprint(final DataStoreParams paramMap) {
+        return Constants.TRUE.equalsIgnoreCase(paramMap.getAsString(FINGERPRINT, Constants.FALSE));
+    }
+
+    /**
+     * Checks if documents not sent to the index by the current run are deleted after crawling.
+     * Fess deletes them unless delete.old.docs is false.
+     *
+     * @param paramMap the parameter map
+     * @return true if old documents are deleted
+     */
+    protected boolean isDeleteOldDocs(final DataStoreParams paramMap) {
+        return !Constants.FALSE.equalsIgnoreCase(paramMap.getAsString(DELETE_OLD_DOCS));
+    }
+
+    /**
+     * Creates the fingerprint store from the fingerprints stored by the previous run.
+     * Fingerprints are disabled unless delete.old.docs is false, because documents skipped as unchanged
+     * are not sent to the index and would be deleted as old documents.
+     * The stored fingerprints are discarded if the scripts or the default field values are changed,
+     * because the indexed documents need to be updated even if the source documents are unchanged,
+     * and if the index is recreated, because the documents are no longer indexed.
+     *
+     * @param dataConfig the data configuration
+     * @param paramMap the parameter map
+     * @param scriptMap the script map
+     * @param defaultDataMap the default data map
+     * @return the fingerprint store, or null if fingerprints are disabled
+     */
+    protected FingerprintStore createFingerprintStore(final DataConfig dataConfig, final DataStoreParams paramMap,
+            final Map<String, String> scriptMap, final Map<String, Object> defaultDataMap) {
+        if (!isFingerprint(paramMap)) {
+            return null;
+        }
+        if (isDeleteOldDocs(paramMap)) {
+            logger.warn("{} is disabled because unchanged documents are deleted from the index unless {}=false.", FINGERPRINT,
+                    DELETE_OLD_DOCS);
+            return null;
+        }
+        final String indexId;
+        try {
+            indexId = getIndexId();
+        } catch (final Exception e) {
+            logger.warn("{} is disabled because the index cannot be identified.", FINGERPRINT, e);
+            return null;
+        }
+        final Path path = getFingerprintPath(dataConfig, paramMap);
+        final String sessionId = paramMap.getAsString(Constants.SESSION_ID);
+        final List<Object> config = new ArrayList<>();
+        config.add("index=" + indexId);
+        new TreeMap<>(scriptMap).forEach((key, value) -> config.add(key + "=" + value));
+        new TreeMap<>(defaultDataMap).forEach((key, value) -> {
+            // the segment and timestamps differ in every run
+            if (!(value instanceof Date) && (value == null || !value.equals(sessionId))) {
+                config.add(key + "=" + (value instanceof Object[] values ? Arrays.deepToString(values) : value));
+            }
+        });
+        return FingerprintStore.load(path, FingerprintStore.hash(config.toArray()));
+    }
+
+    /**
+     * Gets the identifier of the index documents are sent to.
+     * It consists of the names and UUIDs of the indices behind the update alias, so it changes when the index is recreated.
+     *
+     * @return the identifier of the index
+     */
+    protected String getIndexId() {
+        final String index = ComponentUtil.getFessConfig().getIndexDocumentUpdateIndex();
+        final GetIndexResponse response =
+                ComponentUtil.getSearchEngineClient().admin().indices().prepareGetIndex().setIndices(index).get();
+        final String[] indices = response.getIndices().clone();
+        Arrays.sort(indices);
+        final StringBuilder buf = new StringBuilder();
+        for (final String name : indices) {
+            if (buf.length() > 0) {
+                buf.append(',');
+            }
+            buf.append(name).append('/').append(response.getSetting(name, "index.uuid"));
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Gets the file storing the fingerprints from the parameter map.
+     * The default file is placed in the Fess var directory, or in the temporary directory if it is not available.
+     *
+     * @param dataConfig the data configuration
+     * @param paramMap the parameter map
+     * @return the file storing the fingerprints
+     */
+    protected Path getFingerprintPath(final DataConfig dataConfig, final DataStoreParams paramMap) {
+        final String value = paramMap.getAsString(FINGERPRINT_PATH);
+        if (StringUtil.isNotBlank(value)) {
+            return Paths.get(value.trim());
+        }
+        final String baseDir = System.getProperty("fess.var.path", System.getProperty("java.io.tmpdir"));
+        final String id = dataConfig != null && StringUtil.isNotBlank(dataConfig.getId()) ? dataConfig.getId() : "default";
+        return Paths.get(baseDir, "atlassian", getName() + "_" + id + ".fingerprint");
+    }
+
+    /**
+     * Gets the fingerprint store from the configuration map.
+     *
+     * @param configMap the configuration map
+     * @return the fingerprint store, or null if fingerprints are disabled
+     */
+    protected FingerprintStore getFingerprintStore(final Map<String, Object> configMap) {
+        return (FingerprintStore) configMap.get(FINGERPRINT_STORE);
+    }
+
+    /**
+     * Checks if a document is unchanged since the last run.
+     * Without the hash, only the version is compared so that the document can be skipped before its text is extracted.
+     *
+     * @param configMap the configuration map
+     * @param url the view URL of the document
+     * @param version the version of the document, or null if it does not reflect all indexed text
+     * @param hash the hash of the extracted text, or null to compare only the version
+     * @return true if the document is unchanged and does not need to be indexed
+     */
+    protected boolean isUnchangedDocument(final Map<String, Object> configMap, final String url, final String version,
+            final String hash) {
+        final FingerprintStore fingerprintStore = getFingerprintStore(configMap);
+        if (fingerprintStore == null) {
+            return false;
+        }
+        final boolean unchanged =
+                hash == null ? fingerprintStore.isUnchanged(url, version) : fingerprintStore.isUnchanged(url, version, hash);
+        if (unchanged && logger.isDebugEnabled()) {
+            logger.debug("Not changed: {}", url);
+        }
+        return unchanged;
+    }
+
+    /**
+     * Computes the hash of the extracted text of a document if fingerprints are enabled.
+     *
+     * @param configMap the configuration map
+     * @param values the extracted text values of the document
+     * @return the hash, or null if fingerprints are disabled
+     */
+    protected String getFingerprintHash(final Map<String, Object> configMap, final Object... values) {
+        if (getFingerprintStore(configMap) == null) {
+            return null;
+        }
+        return FingerprintStore.hash(values);
+    }
+
+    /**
+     * Sends a document to the index.
+     * If it fails, the fingerprints of the documents buffered with it are not committed.
+     *
+     * @param callback the callback for index updates
+     * @param configMap the configuration map
+     * @param paramMap the parameter map
+     * @param dataMap the document
+     */
+    protected void storeDocument(final IndexUpdateCallback callback, final Map<String, Object> configMap, final DataStoreParams paramMap,
+            final Map<String, Object> dataMap) {
+        try {
+            callback.store(paramMap, dataMap);
+        } catch (final RuntimeException e) {
+            final FingerprintStore fingerprintStore = getFingerprintStore(configMap);
+            if (fingerprintStore != null) {
+                fingerprintStore.fail();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Records the fingerprint of a document sent to the index.
+     * The fingerprint is stored by {@link #commitFingerprints(IndexUpdateCallback, Map)} after the index is committed.
+     *
+     * @param configMap the configuration map
+     * @param url the view URL of the document
+     * @param version the version of the document, or null if not available
+     * @param hash the hash of the extracted text
+     */
+    protected void recordFingerprint(final Map<String, Object> configMap, final String url, final String version, final String hash) {
+        final FingerprintStore fingerprintStore = getFingerprintStore(configMap);
+        if (fingerprintStore != null && hash != null) {
+            fingerprintStore.record(url, version, hash);
+        }
+    }
+
+    /**
+     * Commits the documents sent to the index and stores their fingerprints.
+     *
+     * @param callback the callback for index updates
+     * @param configMap the configuration map
+     */
+    protected void commitFingerprints(final IndexUpdateCallback callback, final Map<String, Object> configMap) {
+        final FingerprintStore fingerprintStore = getFingerprintStore(configMap);
+        if (fingerprintStore != null) {
+            callback.commit();
+            fingerprintStore.commit();
+        }
+    }
+
+    /**
+     * Removes the fingerprints of documents not seen by the current run, such as deleted documents.
+     * This method should be called only after all documents of a full crawl are processed.
+     *
+     * @param configMap the configuration map
+     */
+    protected void pruneFingerprints(final Map<String, Object> configMap) {
+        final FingerprintStore fingerprintStore = getFingerprintStore(configMap);
+        if (fingerprintStore != null) {
+            fingerprintStore.prune();
+        }
+    }
+
+    /**
+     * Checks if all documents are crawled, rather than only documents updated since the checkpoint.
+     *
+     * @param configMap the configuration map
+     * @return true if the crawl is not restricted by a checkpoint
+     */
+    protected boolean isFullCrawl(final Map<String, Object> configMap) {
+        final CrawlCheckpoint checkpoint = getCheckpoint(configMap);
+        return checkpoint == null || checkpoint.getPrevious() == null;
+    }
+
+    /**
+     * Gets a comma-separated list of keys from the parameter map.
+     *
+     * @param paramMap the parameter map
+     * @param name the parameter name
+     * @return the distinct keys, or an empty list if not specified
+     */
+    protected List<String> getKeyList(final DataStoreParams paramMap, final String name) {
+        final String value = paramMap.getAsString(name);
+        if (StringUtil.isBlank(value)) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(value.split(",")).map(String::trim).filter(StringUtil::isNotBlank).distinct().collect(Collectors.toList());
+    }
+
+    /**
+     * Gets the number of threads fetching documents concurrently from the parameter map.
+     *
+     * @param paramMap the parameter map
+     * @return the number of fetch threads, defaults to 2
+     */
+    protected Integer getFetchThreads(final DataStoreParams paramMap) {
+        return Integer.parseInt(paramMap.getAsString(FETCH_THREADS, DEFAULT_FETCH_THREADS));
+    }
+
+    /**
+     * Gets the maximum number of documents waiting to be processed from the parameter map.
+     *
+     * @param paramMap the parameter map
+     * @return the queue size, defaults to 100
+     */
+    protected Integer getQueueSize(final DataStoreParams paramMap) {
+        return Integer.parseInt(paramMap.getAsString(QUEUE_SIZE, DEFAULT_QUEUE_SIZE));
+    }
+
+    /**
+     * Gets the maximum time to wait for documents being processed after fetching from the parameter map.
+     *
+     * @param paramMap the parameter map
+     * @return the drain timeout in milliseconds, 0 or less to wait until all documents are processed
+     */
+    protected long getDrainTimeout(final DataStoreParams paramMap) {
+        return Long.parseLong(paramMap.getAsString(DRAIN_TIMEOUT, DEFAULT_DRAIN_TIMEOUT));
+    }
+
+    /**
+     * Records a document dropped from the pipeline without being processed.
+     * The document is counted as an exception in the crawler stats, stored as a failure URL,
+     * and keeps the crawl checkpoint from advancing beyond it.
+     *
+     * @param dataConfig the data configuration
+     * @param configMap the configuration map
+     * @param url the URL of the document
+     * @param lastModified the last modified date of the document
+     */
+    protected void recordDroppedDocument(final DataConfig dataConfig, final Map<String, Object> configMap, final String url,
+            final Date lastModified) {
+        final CrawlerStatsHelper crawlerStatsHelper = ComponentUtil.getCrawlerStatsHelper();
+        final StatsKeyObject statsKey = new StatsKeyObject(url);
+        try {
+            crawlerStatsHelper.begin(statsKey);
+            final AtlassianDataStoreException e = new AtlassianDataStoreException("Dropped without being processed: " + url);
+            final FailureUrlService failureUrlService = ComponentUtil.getComponent(FailureUrlService.class);
+            failureUrlService.store(dataConfig, e.getClass().getCanonicalName(), url, e);
+            crawlerStatsHelper.record(statsKey, StatsAction.EXCEPTION);
+        } finally {
+            crawlerStatsHelper.done(statsKey);
         }
-        return new ThreadPoolExecutor(nThreads, nThreads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(nThreads),
-                new ThreadPoolExecutor.CallerRunsPolicy());
+        recordCheckpoint(configMap, lastModified, false);
     }
 
     /**
@@ -145,17 +660,242 @@ public abstract class AtlassianDataStore extends AbstractDataStore {
         final Map<String, Object> configMap = new HashMap<>();
         configMap.put(IGNORE_ERROR, isIgnoreError(paramMap));
         configMap.put(URL_FILTER, getUrlFilter(paramMap));
-        configMap.put(READ_INTERVAL, getReadInterval(paramMap));
+        if (isIncremental(paramMap)) {
+            configMap.put(CHECKPOINT, createCheckpoint(paramMap));
+        }
         return configMap;
     }
 
+    /**
+     * Checks if incremental crawling is enabled.
+     *
+     * @param paramMap the parameter map
+     * @return true if incremental crawling is enabled, false otherwise
+     */
+    protected boolean isIncremental(final DataStoreParams paramMap) {
+        return Constants.TRUE.equalsIgnoreCase(paramMap.getAsString(INCREMENTAL, Constants.FALSE));
+    }
+
+    /**
+     * Creates a crawl checkpoint from the checkpoint stored by the last successful run.
+     *
+     * @param paramMap the parameter map
+     * @return the crawl checkpoint
+     */
+    protected CrawlCheckpoint createCheckpoint(final DataStoreParams paramMap) {
+        return createCheckpoint(paramMap, paramMap.getAsString(INCREMENTAL_CHECKPOINT));
+    }
+
+    /**
+     * Creates a crawl checkpoint from the given stored value.
+     * The stored value is ignored unless delete.old.docs is false,
+     * because documents not updated since the checkpoint are not sent to the index and would be deleted as old documents.
+     *
+     * @param paramMap the parameter map
+     * @param value the stored checkpoint, or null if not available
+     * @return the crawl checkpoint
+     */
+    protected CrawlCheckpoint createCheckpoint(final DataStoreParams paramMap, final String value) {
+        if (Constants.TRUE.equalsIgnoreCase(paramMap.getAsString(INCREMENTAL_FULL_CRAWL, Constants.FALSE))) {
+            logger.info("Full crawl is forced. Ignoring the stored checkpoint.");
+            return new CrawlCheckpoint(null);
+        }
+        if (isDeleteOldDocs(paramMap)) {
+            logger.warn("Crawling all documents because unchanged documents are deleted from the index unless {}=false.",
+                    DELETE_OLD_DOCS);
+            return new CrawlCheckpoint(null);
+        }
+        if (StringUtil.isBlank(value)) {
+            return new CrawlCheckpoint(null);
+        }
+        try {
+            return new CrawlCheckpoint(Instant.parse(value.trim()).toEpochMilli());
+        } catch (final DateTimeParseException e) {
+            logger.warn("Invalid checkpoint: {}. Crawling all documents.", value, e);
+            return new CrawlCheckpoint(null);
+        }
+    }
+
+    /**
+     * Creates a partition of the crawl with its own crawl checkpoint.
+     * The checkpoint is restored from the parameter stored for the partition,
+     * or from the checkpoint of the whole crawl if the partition has never been saved.
+     *
+     * @param configMap the configuration map of the whole crawl
+     * @param paramMap the parameter map
+     * @param key the key of the partition
+     * @return the partition
+     */
+    protected CrawlPartition createPartition(final Map<String, Object> configMap, final DataStoreParams paramMap, final String key) {
+        final Map<String, Object> partitionConfigMap = new HashMap<>(configMap);
+        if (isIncremental(paramMap)) {
+            final String value = paramMap.getAsString(getPartitionCheckpointKey(key), paramMap.getAsString(INCREMENTAL_CHECKPOINT));
+            partitionConfigMap.put(CHECKPOINT, createCheckpoint(paramMap, value));
+        }
+        return new CrawlPartition(key, partitionConfigMap);
+    }
+
+    /**
+     * Gets the parameter key of the checkpoint stored for a partition.
+     *
+     * @param key the key of the partition
+     * @return the parameter key
+     */
+    protected String getPartitionCheckpointKey(final String key) {
+        return INCREMENTAL_CHECKPOINT + "." + key;
+    }
+
+    /**
+     * Wraps a fetcher of a partition so that its failure is recorded to the partition instead of stopping the other partitions.
+     *
+     * @param partition the partition
+     * @param fetcher the fetcher submitting the documents of the partition
+     * @return the wrapped fetcher
+     */
+    protected Runnable newPartitionFetcher(final CrawlPartition partition, final Runnable fetcher) {
+        return () -> {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Fetching partition: {}", partition.getKey());
+            }
+            try {
+                fetcher.run();
+            } catch (final InterruptedRuntimeException e) {
+                throw e;
+            } catch (final Exception e) {
+                logger.warn("Failed to fetch partition: {}. It will be crawled again in the next run.", partition.getKey(), e);
+                partition.failed(e);
+            }
+        };
+    }
+
+    /**
+     * Gets the crawl checkpoint from the configuration map.
+     *
+     * @param configMap the configuration map
+     * @return the crawl checkpoint, or null if incremental crawling is disabled
+     */
+    protected CrawlCheckpoint getCheckpoint(final Map<String, Object> configMap) {
+        return (CrawlCheckpoint) configMap.get(CHECKPOINT);
+    }
+
+    /**
+     * Gets the lower bound of update times to crawl as a date value for JQL and CQL.
+     *
+     * @param configMap the configuration map
+     * @param paramMap the parameter map
+     * @return the date value, or null if all documents should be crawled
+     */
+    protected String getQueryDateFrom(final Map<String, Object> configMap, final DataStoreParams paramMap) {
+        final CrawlCheckpoint checkpoint = getCheckpoint(configMap);
+        if (checkpoint == null || checkpoint.getPrevious() == null) {
+            return null;
+        }
+        final long overlap = Long.parseLong(paramMap.getAsString(INCREMENTAL_OVERLAP, DEFAULT_INCREMENTAL_OVERLAP));
+        final ZoneId zoneId = getQueryZoneId(paramMap);
+        final String value = QUERY_DATE_FORMATTER.format(Instant.ofEpochMilli(checkpoint.getPrevious() - overlap).atZone(zoneId));
+        logger.info("Crawling documents updated since {} ({})", value, zoneId);
+        return value;
+    }
+
+    /**
+     * Gets the time zone of date values in JQL and CQL from the parameter map.
+     *
+     * @param paramMap the parameter map
+     * @return the time zone, defaults to UTC
+     */
+    protected ZoneId getQueryZoneId(final DataStoreParams paramMap) {
+        return ZoneId.of(paramMap.getAsString(INCREMENTAL_TIME_ZONE, "UTC"));
+    }
+
+    /**
+     * Records the result of a processed document to the crawl checkpoint.
+     *
+     * @param configMap the configuration map
+     * @param lastModified the last modified date of the document
+     * @param succeeded true if the document was processed successfully
+     */
+    protected void recordCheckpoint(final Map<String, Object> configMap, final Date lastModified, final boolean succeeded) {
+        final CrawlCheckpoint checkpoint = getCheckpoint(configMap);
+        if (checkpoint == null || lastModified == null) {
+            return;
+        }
+        if (succeeded) {
+            checkpoint.succeeded(lastModified.getTime());
+        } else {
+            checkpoint.failed(lastModified.getTime());
+        }
+    }
+
+    /**
+     * Stores the crawl checkpoint to the DataConfig for the next run.
+     * This method should be called only after all documents are processed.
+     *
+     * @param dataConfig the data configuration
+     * @param configMap the configuration map
+     */
+    protected void saveCheckpoint(final DataConfig dataConfig, final Map<String, Object> configMap) {
+        final CrawlCheckpoint checkpoint = getCheckpoint(configMap);
+        if (checkpoint == null) {
+            return;
+        }
+        final Long next = checkpoint.getNext();
+        if (next == null || next.equals(checkpoint.getPrevious())) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Checkpoint is not changed: {}", checkpoint);
+            }
+            return;
+        }
+        final String value = Instant.ofEpochMilli(next).toString();
+        logger.info("Saving checkpoint: {}", value);
+        DataConfigUtil.updateHandlerParameters(dataConfig, Collections.singletonMap(INCREMENTAL_CHECKPOINT, value));
+    }
+
+    /**
+     * Stores the crawl checkpoints of the partitions to the DataConfig for the next run.
+     * The checkpoints of failed partitions are not updated, so that only those partitions are crawled again.
+     * This method should be called only after all documents are processed.
+     *
+     * @param dataConfig the data configuration
+     * @param partitions the partitions
+     */
+    protected void savePartitionCheckpoints(final DataConfig dataConfig, final Collection<CrawlPartition> partitions) {
+        final Map<String, String> params = new LinkedHashMap<>();
+        for (final CrawlPartition partition : partitions) {
+            final CrawlCheckpoint checkpoint = getCheckpoint(partition.getConfigMap());
+            if (checkpoint == null) {
+                continue;
+            }
+            if (partition.isFailed()) {
+                logger.warn("Checkpoint of {} is not updated because fetching failed.", partition.getKey());
+                continue;
+            }
+            final Long next = checkpoint.getNext();
+            if (next == null || next.equals(checkpoint.getPrevious())) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Checkpoint of {} is not changed: {}", partition.getKey(), checkpoint);
+                }
+                continue;
+            }
+            params.put(getPartitionCheckpointKey(partition.getKey()), Instant.ofEpochMilli(next).toString());
+        }
+        if (params.isEmpty()) {
+            return;
+        }
+        logger.info("Saving checkpoints: {}", params);
+        DataConfigUtil.updateHandlerParameters(dataConfig, params);
+    }
+
     /**
      * Extracts text content from HTML.
+     * The HTML is converted by {@link HtmlTextExtractor} unless lightHtmlExtraction is false.
      *
      * @param body the HTML content
      * @return the extracted text
      */
     public String getExtractedTextFromHtml(final String body) {
+        if (lightHtmlExtraction) {
+            return HtmlTextExtractor.extract(body);
+        }
         return getExtractedText(body, MIMETYPE_HTML);
     }
 
@@ -167,9 +907,28 @@ public abstract class AtlassianDataStore extends AbstractDataStore {
      * @return the extracted text
      */
     public String getExtractedText(final String text, final String mimeType) {
-        try (final InputStream in = new ByteArrayInputStream(text.getBytes())) {
-            // Ignore mimeType because the extractor specified by extractorName is always used.
-            return ComponentUtil.getExtractorFactory().builder(in, null).extractorName(extractorName).extract().getContent();
+        // Ignore mimeType because the extractor specified by extractorName is always used.
+        return getExtractedText(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), null, null);
+    }
+
+    /**
+     * Extracts text content from a stream such as a downloaded attachment.
+     * The stream is read by the extractor without being loaded as a string.
+     *
+     * @param in the content to extract text from
+     * @param mimeType the MIME type of the content, or null if unknown
+     * @param filename the file name of the content, or null if unknown
+     * @return the extracted text
+     */
+    public String getExtractedText(final InputStream in, final String mimeType, final String filename) {
+        try (final InputStream input = in) {
+            return ComponentUtil.getExtractorFactory()
+                    .builder(input, null)
+                    .mimeType(mimeType)
+                    .filename(filename)
+                    .extractorName(extractorName)
+                    .extract()
+                    .getContent();
         } catch (final Exception e) {
             if (!ComponentUtil.getFessConfig().isCrawlerIgnoreContentException()) {
                 throw new CrawlingAccessException(e);
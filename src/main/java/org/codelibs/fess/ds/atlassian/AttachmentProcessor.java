@@ -0,0 +1,174 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codelibs.core.lang.StringUtil;
+
+/**
+ * Downloads attachments of documents and extracts their text on a bounded pool of threads.
+ * The pool is separate from the threads processing documents, so that the number of attachments
+ * being downloaded at the same time is limited regardless of the number of document threads.
+ * Attachments are filtered by size and media type before they are downloaded.
+ */
+public class AttachmentProcessor implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(AttachmentProcessor.class);
+
+    /** The executor downloading attachments. */
+    protected final ExecutorService executorService;
+
+    /** The maximum size of an attachment in bytes, or a negative value for unlimited. */
+    protected final long maxSize;
+
+    /** The media types of attachments to download, or an empty list for all. */
+    protected final List<String> mediaTypes;
+
+    /**
+     * Constructs a new processor.
+     *
+     * @param numberOfThreads the number of threads downloading attachments
+     * @param maxSize the maximum size of an attachment in bytes, or a negative value for unlimited
+     * @param mediaTypes the media types of attachments to download such as "application/pdf" or "text/*", or an empty list for all
+     */
+    public AttachmentProcessor(final int numberOfThreads, final long maxSize, final List<String> mediaTypes) {
+        if (numberOfThreads < 1) {
+            throw new IllegalArgumentException("numberOfThreads must be positive: " + numberOfThreads);
+        }
+        executorService = Executors.newFixedThreadPool(numberOfThreads);
+        this.maxSize = maxSize;
+        this.mediaTypes = mediaTypes.stream().map(s -> s.toLowerCase(Locale.ROOT)).toList();
+    }
+
+    /**
+     * Gets the maximum size of an attachment.
+     *
+     * @return the maximum size in bytes, or a negative value for unlimited
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Checks if the attachment is downloaded.
+     *
+     * @param name the name of the attachment
+     * @param mediaType the media type of the attachment, or null if unknown
+     * @param size the size of the attachment in bytes, or null if unknown
+     * @return true if the attachment is downloaded
+     */
+    public boolean accept(final String name, final String mediaType, final Long size) {
+        if (maxSize >= 0 && size != null && size > maxSize) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Skipped attachment {}: size {} exceeds {}", name, size, maxSize);
+            }
+            return false;
+        }
+        if (!isTargetMediaType(mediaType)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Skipped attachment {}: media type {} is not a target", name, mediaType);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the media type is one of the target media types.
+     *
+     * @param mediaType the media type, or null if unknown
+     * @return true if the media type is a target
+     */
+    protected boolean isTargetMediaType(final String mediaType) {
+        if (mediaTypes.isEmpty()) {
+            return true;
+        }
+        if (StringUtil.isBlank(mediaType)) {
+            return false;
+        }
+        String value = mediaType.toLowerCase(Locale.ROOT);
+        final int paramIndex = value.indexOf(';');
+        if (paramIndex >= 0) {
+            value = value.substring(0, paramIndex);
+        }
+        value = value.trim();
+        for (final String target : mediaTypes) {
+            if (target.endsWith("/*") ? value.startsWith(target.substring(0, target.length() - 1)) : value.equals(target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs the extractors on the pool and waits until all of them finish.
+     * An attachment which fails to be downloaded or extracted is logged and skipped.
+     *
+     * @param extractors the extractors returning the text of each attachment
+     * @return the texts of the attachments separated by blank lines
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public String process(final List<Callable<String>> extractors) throws InterruptedException {
+        if (extractors.isEmpty()) {
+            return StringUtil.EMPTY;
+        }
+        final List<Future<String>> futures = new ArrayList<>(extractors.size());
+        try {
+            for (final Callable<String> extractor : extractors) {
+                futures.add(executorService.submit(extractor));
+            }
+            final StringBuilder sb = new StringBuilder();
+            for (final Future<String> future : futures) {
+                try {
+                    final String text = future.get();
+                    if (StringUtil.isNotBlank(text)) {
+                        if (sb.length() > 0) {
+                            sb.append("\n\n");
+                        }
+                        sb.append(text);
+                    }
+                } catch (final ExecutionException e) {
+                    if (logger.isDebugEnabled()) {
+                        logger.warn("Could not process an attachment.", e.getCause());
+                    } else {
+                        logger.warn("Could not process an attachment. {}", e.getCause().getMessage());
+                    }
+                }
+            }
+            return sb.toString();
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * Stops the threads downloading attachments.
+     */
+    @Override
+    public void close() {
+        executorService.shutdownNow();
+    }
+}
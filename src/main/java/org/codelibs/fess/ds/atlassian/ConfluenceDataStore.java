@@ -15,22 +15,28 @@
  */
 package org.codelibs.fess.ds.atlassian;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.codelibs.core.exception.InterruptedRuntimeException;
+import org.codelibs.core.lang.StringUtil;
 import org.codelibs.fess.Constants;
 import org.codelibs.fess.app.service.FailureUrlService;
 import org.codelibs.fess.crawler.exception.CrawlingAccessException;
 import org.codelibs.fess.crawler.exception.MultipleCrawlingAccessException;
 import org.codelibs.fess.crawler.filter.UrlFilter;
 import org.codelibs.fess.ds.atlassian.api.confluence.ConfluenceClient;
+import org.codelibs.fess.ds.atlassian.api.confluence.domain.Comment;
 import org.codelibs.fess.ds.atlassian.api.confluence.domain.Content;
 import org.codelibs.fess.ds.callback.IndexUpdateCallback;
 import org.codelibs.fess.entity.DataStoreParams;
@@ -62,12 +68,25 @@ public class ConfluenceDataStore extends AtlassianDataStore {
     /** Script variable name for content comments. */
     protected static final String CONTENT_COMMENTS = "comments";
 
+    /** Script variable name for content attachments. */
+    protected static final String CONTENT_ATTACHMENTS = "attachments";
+
     /** Script variable name for content last modified date. */
     protected static final String CONTENT_LAST_MODIFIED = "last_modified";
 
     /** Script variable name for content view URL. */
     protected static final String CONTENT_VIEW_URL = "view_url";
 
+    // parameters
+    /** Parameter key for the comma-separated keys of spaces to crawl. */
+    protected static final String SPACE_KEYS = "space_keys";
+
+    /** Parameter key for crawling each space as an independent partition. */
+    protected static final String SPACE_PARTITION = "space_partition";
+
+    /** Parameter key for indexing the text of attachments with the content. */
+    protected static final String CONTENT_ATTACHMENT = "content.attachment";
+
     /**
      * Default constructor.
      */
@@ -88,26 +107,153 @@ public class ConfluenceDataStore extends AtlassianDataStore {
             logger.debug("configMap: {}", configMap);
         }
 
-        final ExecutorService executorService = newFixedThreadPool(getNumberOfThreads(paramMap));
-        try (final ConfluenceClient client = createClient(dataConfig, paramMap)) {
-            client.getContents(content -> executorService
-                    .execute(() -> processContent(dataConfig, callback, configMap, paramMap, scriptMap, defaultDataMap, client, content)));
-
-            client.getBlogContents(content -> executorService
-                    .execute(() -> processContent(dataConfig, callback, configMap, paramMap, scriptMap, defaultDataMap, client, content)));
+        try (final FingerprintStore fingerprintStore = createFingerprintStore(dataConfig, paramMap, scriptMap, defaultDataMap);
+                final ConfluenceClient client = createClient(dataConfig, paramMap);
+                final AttachmentProcessor attachmentProcessor = isContentAttachment(paramMap) ? newAttachmentProcessor(paramMap) : null) {
+            if (attachmentProcessor != null) {
+                configMap.put(ATTACHMENT_PROCESSOR, attachmentProcessor);
+            }
+            if (fingerprintStore != null) {
+                configMap.put(FINGERPRINT_STORE, fingerprintStore);
+            }
+            final Map<String, CrawlPartition> partitions =
+                    isSpacePartition(paramMap) ? createSpacePartitions(client, configMap, paramMap) : Collections.emptyMap();
+            try (final DocumentPipeline<Content> pipeline = newPipeline(paramMap,
+                    content -> processContent(dataConfig, callback, getContentConfigMap(partitions, configMap, content), paramMap,
+                            scriptMap, defaultDataMap, client, content),
+                    content -> recordDroppedDocument(dataConfig, getContentConfigMap(partitions, configMap, content),
+                            getContentViewUrl(content, client.getConfluenceHome()), getContentLastModified(content)))) {
+                final List<Runnable> fetchers = new ArrayList<>();
+                if (partitions.isEmpty()) {
+                    final String lastModifiedFrom = getQueryDateFrom(configMap, paramMap);
+                    for (final String spaceKey : getSpaceKeys(paramMap)) {
+                        fetchers.add(() -> client.getPageContents(spaceKey, lastModifiedFrom, pipeline::submit));
+                        fetchers.add(() -> client.getBlogContents(spaceKey, lastModifiedFrom, pipeline::submit));
+                    }
+                } else {
+                    for (final CrawlPartition partition : partitions.values()) {
+                        fetchers.add(newPartitionFetcher(partition, () -> {
+                            final String lastModifiedFrom = getQueryDateFrom(partition.getConfigMap(), paramMap);
+                            client.getPageContents(partition.getKey(), lastModifiedFrom, pipeline::submit);
+                            client.getBlogContents(partition.getKey(), lastModifiedFrom, pipeline::submit);
+                        }));
+                    }
+                }
+                fetchConcurrently(paramMap, fetchers);
 
-            if (logger.isDebugEnabled()) {
-                logger.debug("Shutting down thread executor.");
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Finishing pipeline.");
+                }
+                final boolean completed = pipeline.finish(getDrainTimeout(paramMap), TimeUnit.MILLISECONDS, () -> alive);
+                commitFingerprints(callback, configMap);
+                if (!completed) {
+                    logger.warn("Could not process all contents. The checkpoint is not updated. "
+                            + "submitted={}, completed={}, failed={}, dropped={}",
+                            pipeline.getSubmittedCount(), pipeline.getCompletedCount(), pipeline.getFailedCount(),
+                            pipeline.getDroppedCount());
+                } else if (partitions.isEmpty()) {
+                    saveCheckpoint(dataConfig, configMap);
+                    if (isFullCrawl(configMap)) {
+                        pruneFingerprints(configMap);
+                    }
+                } else {
+                    savePartitionCheckpoints(dataConfig, partitions.values());
+                    if (partitions.values()
+                            .stream()
+                            .allMatch(partition -> !partition.isFailed() && isFullCrawl(partition.getConfigMap()))) {
+                        pruneFingerprints(configMap);
+                    }
+                }
             }
-            executorService.shutdown();
-            executorService.awaitTermination(60, TimeUnit.SECONDS);
         } catch (final InterruptedException e) {
             throw new InterruptedRuntimeException(e);
-        } finally {
-            executorService.shutdownNow();
         }
     }
 
+    /**
+     * Checks if each space is crawled as an independent partition.
+     *
+     * @param paramMap the parameter map
+     * @return true if spaces are crawled as partitions
+     */
+    protected boolean isSpacePartition(final DataStoreParams paramMap) {
+        return Constants.TRUE.equalsIgnoreCase(paramMap.getAsString(SPACE_PARTITION, Constants.FALSE));
+    }
+
+    /**
+     * Checks if the text of attachments is indexed with the content.
+     *
+     * @param paramMap the parameter map
+     * @return true if attachments are indexed
+     */
+    protected boolean isContentAttachment(final DataStoreParams paramMap) {
+        return Constants.TRUE.equalsIgnoreCase(paramMap.getAsString(CONTENT_ATTACHMENT, Constants.FALSE));
+    }
+
+    /**
+     * Creates a partition for each space to crawl.
+     * If space keys are not specified, all spaces visible to the user are retrieved.
+     *
+     * @param client the Confluence client
+     * @param configMap the configuration map
+     * @param paramMap the parameter map
+     * @return the partitions by space key
+     */
+    protected Map<String, CrawlPartition> createSpacePartitions(final ConfluenceClient client, final Map<String, Object> configMap,
+            final DataStoreParams paramMap) {
+        final List<String> spaceKeys = new ArrayList<>(getSpaceKeys(paramMap));
+        if (spaceKeys.contains(null)) {
+            spaceKeys.clear();
+            client.getSpaces(space -> spaceKeys.add(space.getKey()));
+        }
+        final Map<String, CrawlPartition> partitions = new LinkedHashMap<>();
+        for (final String spaceKey : spaceKeys) {
+            if (StringUtil.isNotBlank(spaceKey) && !partitions.containsKey(spaceKey)) {
+                partitions.put(spaceKey, createPartition(configMap, paramMap, spaceKey));
+            }
+        }
+        logger.info("Crawling {} spaces as partitions.", partitions.size());
+        if (logger.isDebugEnabled()) {
+            logger.debug("Space partitions: {}", partitions.keySet());
+        }
+        return partitions;
+    }
+
+    /**
+     * Gets the configuration map of the partition containing the content.
+     *
+     * @param partitions the partitions by space key
+     * @param configMap the configuration map of the whole crawl
+     * @param content the Confluence content
+     * @return the configuration map of the partition, or the configuration map of the whole crawl if not partitioned
+     */
+    protected Map<String, Object> getContentConfigMap(final Map<String, CrawlPartition> partitions, final Map<String, Object> configMap,
+            final Content content) {
+        if (partitions.isEmpty() || content.getSpace() == null) {
+            return configMap;
+        }
+        final CrawlPartition partition = partitions.get(content.getSpace().getKey());
+        if (partition == null) {
+            return configMap;
+        }
+        return partition.getConfigMap();
+    }
+
+    /**
+     * Gets the keys of spaces to crawl from the parameter map.
+     * Each space is fetched as a separate stream.
+     *
+     * @param paramMap the parameter map
+     * @return the space keys, or a list containing null to crawl all spaces in one stream
+     */
+    protected List<String> getSpaceKeys(final DataStoreParams paramMap) {
+        final List<String> spaceKeys = getKeyList(paramMap, SPACE_KEYS);
+        if (spaceKeys.isEmpty()) {
+            return Collections.singletonList(null);
+        }
+        return spaceKeys;
+    }
+
     /**
      * Creates a Confluence client with the given parameters.
      *
@@ -138,6 +284,7 @@ public class ConfluenceDataStore extends AtlassianDataStore {
         final Map<String, Object> dataMap = new HashMap<>(defaultDataMap);
         final String confluenceHome = client.getConfluenceHome();
         final String url = getContentViewUrl(content, confluenceHome);
+        final Date lastModified = getContentLastModified(content);
         final StatsKeyObject statsKey = new StatsKeyObject(url);
         paramMap.put(Constants.CRAWLER_STATS_KEY, statsKey);
         try {
@@ -149,6 +296,14 @@ public class ConfluenceDataStore extends AtlassianDataStore {
                     logger.debug("Not matched: {}", url);
                 }
                 crawlerStatsHelper.discard(statsKey);
+                recordCheckpoint(configMap, lastModified, true);
+                return;
+            }
+
+            final String version = getContentVersion(content, getAttachmentProcessor(configMap));
+            if (isUnchangedDocument(configMap, url, version, null)) {
+                crawlerStatsHelper.discard(statsKey);
+                recordCheckpoint(configMap, lastModified, true);
                 return;
             }
 
@@ -160,10 +315,20 @@ public class ConfluenceDataStore extends AtlassianDataStore {
             contentMap.put(CONTENT_TITLE, content.getTitle());
             contentMap.put(CONTENT_BODY, getExtractedTextFromHtml(content.getBody()));
             contentMap.put(CONTENT_COMMENTS, getContentComments(content, client));
-            contentMap.put(CONTENT_LAST_MODIFIED, getLastModifiedAsDate(content.getLastModified()));
+            contentMap.put(CONTENT_ATTACHMENTS, getContentAttachments(content, client, getAttachmentProcessor(configMap)));
+            contentMap.put(CONTENT_LAST_MODIFIED, lastModified);
             contentMap.put(CONTENT_VIEW_URL, url);
             resultMap.put(CONTENT, contentMap);
 
+            // comments and attachments can be changed without changing the version of the content
+            final String hash = getFingerprintHash(configMap, contentMap.get(CONTENT_TITLE), contentMap.get(CONTENT_BODY),
+                    contentMap.get(CONTENT_COMMENTS), contentMap.get(CONTENT_ATTACHMENTS));
+            if (hash != null && isUnchangedDocument(configMap, url, version, hash)) {
+                crawlerStatsHelper.discard(statsKey);
+                recordCheckpoint(configMap, lastModified, true);
+                return;
+            }
+
             crawlerStatsHelper.record(statsKey, StatsAction.PREPARED);
 
             if (logger.isDebugEnabled()) {
@@ -188,8 +353,10 @@ public class ConfluenceDataStore extends AtlassianDataStore {
                 statsKey.setUrl(statsUrl);
             }
 
-            callback.store(paramMap, dataMap);
+            storeDocument(callback, configMap, paramMap, dataMap);
             crawlerStatsHelper.record(statsKey, StatsAction.FINISHED);
+            recordFingerprint(configMap, url, version, hash);
+            recordCheckpoint(configMap, lastModified, true);
         } catch (final CrawlingAccessException e) {
             logger.warn("Crawling Access Exception at : {}", dataMap, e);
 
@@ -212,18 +379,40 @@ public class ConfluenceDataStore extends AtlassianDataStore {
             final FailureUrlService failureUrlService = ComponentUtil.getComponent(FailureUrlService.class);
             failureUrlService.store(dataConfig, errorName, url, target);
             crawlerStatsHelper.record(statsKey, StatsAction.ACCESS_EXCEPTION);
+            recordCheckpoint(configMap, lastModified, false);
         } catch (final Throwable t) {
             logger.warn("Crawling Access Exception at : {}", dataMap, t);
             final FailureUrlService failureUrlService = ComponentUtil.getComponent(FailureUrlService.class);
             failureUrlService.store(dataConfig, t.getClass().getCanonicalName(), url, t);
             crawlerStatsHelper.record(statsKey, StatsAction.EXCEPTION);
+            recordCheckpoint(configMap, lastModified, false);
         } finally {
             crawlerStatsHelper.done(statsKey);
         }
     }
 
+    /**
+     * Gets the version of a Confluence content item compared with its fingerprint.
+     * Adding comments or attachments does not increment the version number of the content,
+     * so the version is available only if the comments are expanded inline and attachments are not indexed.
+     * The comments are included in the version without extracting their text.
+     *
+     * @param content the Confluence content
+     * @param attachmentProcessor the attachment processor, or null if attachments are not indexed
+     * @return the version, or null if the content needs to be extracted to detect changes
+     */
+    protected String getContentVersion(final Content content, final AttachmentProcessor attachmentProcessor) {
+        final List<Comment> comments = content.getComments();
+        if (content.getVersionNumber() == null || comments == null || attachmentProcessor != null) {
+            return null;
+        }
+        return content.getVersionNumber() + ":" + FingerprintStore.hash(comments.stream().map(Comment::getBody).toArray());
+    }
+
     /**
      * Gets all comments for a Confluence content item as concatenated text.
+     * The comments expanded in the content search are used if available,
+     * otherwise they are retrieved by the child comment request.
      *
      * @param content the Confluence content
      * @param client the Confluence client
@@ -231,16 +420,50 @@ public class ConfluenceDataStore extends AtlassianDataStore {
      */
     protected String getContentComments(final Content content, final ConfluenceClient client) {
         final StringBuilder sb = new StringBuilder();
-        final String id = content.getId();
-
-        client.getContentComments(id, comment -> {
+        final Consumer<Comment> consumer = comment -> {
             sb.append("\n\n");
             sb.append(getExtractedTextFromHtml(comment.getBody()));
-        });
+        };
+
+        final List<Comment> comments = content.getComments();
+        if (comments != null) {
+            comments.forEach(consumer);
+        } else {
+            client.getContentComments(content.getId(), consumer);
+        }
 
         return sb.toString();
     }
 
+    /**
+     * Gets the text of the attachments of a Confluence content item.
+     * Attachments are filtered by size and media type, and downloaded and extracted by the attachment processor.
+     *
+     * @param content the Confluence content
+     * @param client the Confluence client
+     * @param attachmentProcessor the attachment processor, or null if attachments are not indexed
+     * @return the concatenated text of the attachments
+     */
+    protected String getContentAttachments(final Content content, final ConfluenceClient client,
+            final AttachmentProcessor attachmentProcessor) {
+        if (attachmentProcessor == null) {
+            return StringUtil.EMPTY;
+        }
+        final List<Callable<String>> extractors = new ArrayList<>();
+        client.getContentAttachments(content.getId(), attachment -> {
+            if (attachmentProcessor.accept(attachment.getTitle(), attachment.getMediaType(), attachment.getFileSize())) {
+                extractors.add(() -> attachment.getTitle() + "\n" + client.downloadAttachment(attachment)
+                        .maxContentLength(attachmentProcessor.getMaxSize())
+                        .execute(in -> getExtractedText(in, attachment.getMediaType(), attachment.getTitle())));
+            }
+        });
+        try {
+            return attachmentProcessor.process(extractors);
+        } catch (final InterruptedException e) {
+            throw new InterruptedRuntimeException(e);
+        }
+    }
+
     /**
      * Converts a timestamp to a Date object.
      *
@@ -251,6 +474,20 @@ public class ConfluenceDataStore extends AtlassianDataStore {
         return new Date(date);
     }
 
+    /**
+     * Gets the last modified date of a Confluence content item.
+     *
+     * @param content the Confluence content
+     * @return the last modified date, or null if not available
+     */
+    protected Date getContentLastModified(final Content content) {
+        final Long lastModified = content.getLastModified();
+        if (lastModified == null) {
+            return null;
+        }
+        return getLastModifiedAsDate(lastModified);
+    }
+
     /**
      * Gets the view URL for a Confluence content item.
      *
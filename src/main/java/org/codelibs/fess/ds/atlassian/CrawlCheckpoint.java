@@ -0,0 +1,97 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the high-water mark of an incremental crawl.
+ * The mark advances to the latest update time of the documents processed in the current run,
+ * but never beyond the earliest update time of a failed document so that it is retried on the next run.
+ */
+public class CrawlCheckpoint {
+
+    /** The checkpoint of the previous run in milliseconds, or null if not available. */
+    protected final Long previous;
+
+    /** The latest update time of the succeeded documents. */
+    protected final AtomicLong latestSucceeded = new AtomicLong(Long.MIN_VALUE);
+
+    /** The earliest update time of the failed documents. */
+    protected final AtomicLong earliestFailed = new AtomicLong(Long.MAX_VALUE);
+
+    /**
+     * Constructs a new checkpoint.
+     *
+     * @param previous the checkpoint of the previous run in milliseconds, or null for a full crawl
+     */
+    public CrawlCheckpoint(final Long previous) {
+        this.previous = previous;
+    }
+
+    /**
+     * Gets the checkpoint of the previous run.
+     *
+     * @return the checkpoint in milliseconds, or null for a full crawl
+     */
+    public Long getPrevious() {
+        return previous;
+    }
+
+    /**
+     * Records a document processed successfully.
+     *
+     * @param timestamp the update time of the document in milliseconds
+     */
+    public void succeeded(final long timestamp) {
+        latestSucceeded.accumulateAndGet(timestamp, Math::max);
+    }
+
+    /**
+     * Records a document that failed to be processed.
+     *
+     * @param timestamp the update time of the document in milliseconds
+     */
+    public void failed(final long timestamp) {
+        earliestFailed.accumulateAndGet(timestamp, Math::min);
+    }
+
+    /**
+     * Gets the checkpoint to store for the next run.
+     *
+     * @return the checkpoint in milliseconds, or null if nothing was recorded
+     */
+    public Long getNext() {
+        final long failed = earliestFailed.get();
+        if (failed != Long.MAX_VALUE) {
+            return failed;
+        }
+        final long succeeded = latestSucceeded.get();
+        if (succeeded == Long.MIN_VALUE) {
+            return previous;
+        }
+        if (previous != null && previous > succeeded) {
+            return previous;
+        }
+        return succeeded;
+    }
+
+    @Override
+    public String toString() {
+        return "CrawlCheckpoint [previous=" + previous + ", latestSucceeded=" + latestSucceeded + ", earliestFailed=" + earliestFailed
+                + "]";
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian;
+
+import java.util.Map;
+
+/**
+ * A part of a crawl fetched independently of the others, such as a Confluence space.
+ * Each partition has its own configuration map holding its own crawl checkpoint,
+ * so that a failure in one partition does not hold back the checkpoints of the others.
+ */
+public class CrawlPartition {
+
+    /** The key of the partition. */
+    protected final String key;
+
+    /** The configuration map of the partition. */
+    protected final Map<String, Object> configMap;
+
+    /** The failure of fetching the partition, or null if not failed. */
+    protected volatile Throwable failure;
+
+    /**
+     * Constructs a new partition.
+     *
+     * @param key the key of the partition
+     * @param configMap the configuration map of the partition
+     */
+    public CrawlPartition(final String key, final Map<String, Object> configMap) {
+        this.key = key;
+        this.configMap = configMap;
+    }
+
+    /**
+     * Gets the key of the partition.
+     *
+     * @return the key
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Gets the configuration map of the partition.
+     *
+     * @return the configuration map
+     */
+    public Map<String, Object> getConfigMap() {
+        return configMap;
+    }
+
+    /**
+     * Records a failure of fetching the partition.
+     *
+     * @param failure the failure
+     */
+    public void failed(final Throwable failure) {
+        this.failure = failure;
+    }
+
+    /**
+     * Checks if fetching the partition failed.
+     *
+     * @return true if failed
+     */
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    /**
+     * Gets the failure of fetching the partition.
+     *
+     * @return the failure, or null if not failed
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    @Override
+    public String toString() {
+        return "CrawlPartition [key=" + key + ", failure=" + failure + "]";
+    }
+}
@@ -0,0 +1,483 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian;
+
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codelibs.core.exception.InterruptedRuntimeException;
+
+/**
+ * Producer/consumer pipeline between fetching and processing documents.
+ * The fetching thread submits documents to a bounded queue and worker threads process them,
+ * so that the next page is fetched while the documents of the previous page are processed.
+ * If the queue is full, the fetching thread waits until a worker takes a document.
+ * Alternatively, each document can be processed by its own task, such as a virtual thread, so that the number of
+ * documents processed concurrently is not bounded by the number of workers but by the capacity of the pipeline.
+ * Submitted, completed, failed and dropped documents are counted. Documents whose processing failed or was interrupted,
+ * and documents not processed when the pipeline is finished, are passed to the drop handler.
+ *
+ * @param <T> the type of documents
+ */
+public class DocumentPipeline<T> implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(DocumentPipeline.class);
+
+    /** Marker to stop a worker. */
+    protected static final Object END_OF_DOCUMENTS = new Object();
+
+    /** The queue of documents waiting to be processed, or null if each document is processed by its own task. */
+    protected final BlockingQueue<Object> queue;
+
+    /** The permits of documents processed by their own tasks, or null if documents are processed by workers. */
+    protected final Semaphore permits;
+
+    /** The executor running the workers. */
+    protected final ExecutorService executorService;
+
+    /** The number of workers, 0 if each document is processed by its own task. */
+    protected final int numberOfWorkers;
+
+    /** The processor called for each document. */
+    protected final Consumer<T> processor;
+
+    /** The handler called for each document dropped without being processed. */
+    protected Consumer<T> dropHandler;
+
+    /** The entries of the documents submitted and not finished yet, waiting in the queue or being processed. */
+    protected final Set<Entry> inFlight = ConcurrentHashMap.newKeySet();
+
+    /** The number of submitted documents. */
+    protected final AtomicLong submittedCount = new AtomicLong();
+
+    /** The number of documents processed successfully. */
+    protected final AtomicLong completedCount = new AtomicLong();
+
+    /** The number of documents whose processing failed or was interrupted. */
+    protected final AtomicLong failedCount = new AtomicLong();
+
+    /** The number of dropped documents. */
+    protected final AtomicLong droppedCount = new AtomicLong();
+
+    /** The interval to check the timeout and the running state while finishing in milliseconds. */
+    protected long checkInterval = 1000L;
+
+    /**
+     * Constructs a new pipeline and starts the workers.
+     *
+     * @param numberOfWorkers the number of worker threads
+     * @param capacity the maximum number of documents waiting to be processed
+     * @param processor the processor called for each document
+     */
+    public DocumentPipeline(final int numberOfWorkers, final int capacity, final Consumer<T> processor) {
+        this(Executors.newFixedThreadPool(Math.max(numberOfWorkers, 1)), numberOfWorkers, capacity, processor);
+    }
+
+    /**
+     * Constructs a new pipeline running the workers on the given executor and starts the workers.
+     * The executor is shut down when the pipeline is finished or closed.
+     *
+     * @param executorService the executor running the workers
+     * @param numberOfWorkers the number of workers
+     * @param capacity the maximum number of documents waiting to be processed
+     * @param processor the processor called for each document
+     */
+    public DocumentPipeline(final ExecutorService executorService, final int numberOfWorkers, final int capacity,
+            final Consumer<T> processor) {
+        if (numberOfWorkers < 1) {
+            executorService.shutdownNow();
+            throw new IllegalArgumentException("numberOfWorkers must be positive: " + numberOfWorkers);
+        }
+        if (capacity < 1) {
+            executorService.shutdownNow();
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.numberOfWorkers = numberOfWorkers;
+        this.processor = processor;
+        this.executorService = executorService;
+        queue = new ArrayBlockingQueue<>(capacity);
+        permits = null;
+        for (int i = 0; i < numberOfWorkers; i++) {
+            executorService.execute(this::runWorker);
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Started pipeline: workers={}, capacity={}", numberOfWorkers, capacity);
+        }
+    }
+
+    /**
+     * Constructs a new pipeline processing each document by its own task on the given executor,
+     * such as a virtual thread per task executor.
+     * The executor is shut down when the pipeline is finished or closed.
+     *
+     * @param executorService the executor running a task for each document
+     * @param capacity the maximum number of documents being processed concurrently
+     * @param processor the processor called for each document
+     */
+    public DocumentPipeline(final ExecutorService executorService, final int capacity, final Consumer<T> processor) {
+        if (capacity < 1) {
+            executorService.shutdownNow();
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        numberOfWorkers = 0;
+        this.processor = processor;
+        this.executorService = executorService;
+        queue = null;
+        permits = new Semaphore(capacity);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Started pipeline: task per document, capacity={}", capacity);
+        }
+    }
+
+    /**
+     * Sets the handler called for each document dropped without being processed.
+     *
+     * @param dropHandler the drop handler
+     * @return this pipeline
+     */
+    public DocumentPipeline<T> onDropped(final Consumer<T> dropHandler) {
+        this.dropHandler = dropHandler;
+        return this;
+    }
+
+    /**
+     * Submits a document to be processed.
+     * This method blocks while the queue is full, or while the capacity of documents processed by their own tasks is used.
+     *
+     * @param document the document
+     */
+    public void submit(final T document) {
+        final Entry entry = new Entry(document);
+        try {
+            if (permits == null) {
+                // tracked before it is put, so that it is dropped even if a worker has taken it but not started it
+                inFlight.add(entry);
+                try {
+                    queue.put(entry);
+                } catch (final InterruptedException e) {
+                    inFlight.remove(entry);
+                    throw e;
+                }
+                submittedCount.incrementAndGet();
+                return;
+            }
+            permits.acquire();
+            submittedCount.incrementAndGet();
+            inFlight.add(entry);
+            try {
+                executorService.execute(() -> {
+                    try {
+                        process(entry);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (final RejectedExecutionException e) {
+                permits.release();
+                drop(entry);
+            }
+        } catch (final InterruptedException e) {
+            throw new InterruptedRuntimeException(e);
+        }
+    }
+
+    /**
+     * Waits until all submitted documents are processed and stops the workers.
+     * No document can be submitted after this method is called.
+     * If the timeout elapses or the running state becomes false, documents waiting in the queue or being processed
+     * are passed to the drop handler and the workers are interrupted.
+     *
+     * @param timeout the maximum time to wait, or 0 or less to wait until all documents are processed
+     * @param unit the time unit of the timeout
+     * @param running the supplier returning false if waiting should be stopped
+     * @return true if all documents are processed successfully, false if documents failed or are dropped
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean finish(final long timeout, final TimeUnit unit, final BooleanSupplier running) throws InterruptedException {
+        return finish(getDeadline(timeout, unit), running);
+    }
+
+    /**
+     * Waits until all submitted documents are processed and stops the workers, as {@link #finish(long, TimeUnit, BooleanSupplier)}
+     * does, until the given deadline, so that pipelines finished one after another share the same timeout.
+     *
+     * @param deadline the deadline returned by {@link #getDeadline(long, TimeUnit)}
+     * @param running the supplier returning false if waiting should be stopped
+     * @return true if all documents are processed successfully, false if documents failed or are dropped
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean finish(final long deadline, final BooleanSupplier running) throws InterruptedException {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Finishing pipeline: {} documents in queue, {} documents in flight.", queue != null ? queue.size() : 0,
+                    inFlight.size());
+        }
+        int numberOfEnds = 0;
+        while (numberOfEnds < numberOfWorkers && canWait(deadline, running)) {
+            if (queue.offer(END_OF_DOCUMENTS, checkInterval, TimeUnit.MILLISECONDS)) {
+                numberOfEnds++;
+            }
+        }
+        executorService.shutdown();
+        while (!executorService.awaitTermination(checkInterval, TimeUnit.MILLISECONDS)) {
+            if (!canWait(deadline, running)) {
+                dropRemaining();
+                return false;
+            }
+        }
+        return completedCount.get() == submittedCount.get();
+    }
+
+    /**
+     * Gets the deadline of the given timeout for {@link #finish(long, BooleanSupplier)}.
+     *
+     * @param timeout the maximum time to wait, or 0 or less to wait until all documents are processed
+     * @param unit the time unit of the timeout
+     * @return the deadline in nanoseconds, or {@link Long#MAX_VALUE} if there is no timeout
+     */
+    public static long getDeadline(final long timeout, final TimeUnit unit) {
+        return timeout > 0 ? System.nanoTime() + unit.toNanos(timeout) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Checks if the pipeline can keep waiting for the workers.
+     *
+     * @param deadline the deadline in nanoseconds
+     * @param running the supplier returning false if waiting should be stopped
+     * @return true if it can keep waiting
+     */
+    protected boolean canWait(final long deadline, final BooleanSupplier running) {
+        return running.getAsBoolean() && (deadline == Long.MAX_VALUE || System.nanoTime() - deadline < 0);
+    }
+
+    /**
+     * Stops the workers and passes the documents not processed to the drop handler.
+     *
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    protected void dropRemaining() throws InterruptedException {
+        if (queue != null) {
+            queue.clear();
+        }
+        executorService.shutdownNow();
+        if (!executorService.awaitTermination(checkInterval, TimeUnit.MILLISECONDS)) {
+            logger.warn("Workers did not stop after interruption.");
+        }
+        for (final Entry entry : new ArrayList<>(inFlight)) {
+            drop(entry);
+        }
+        logger.warn("Dropped {} documents. submitted={}, completed={}, failed={}", droppedCount.get(), submittedCount.get(),
+                completedCount.get(), failedCount.get());
+    }
+
+    /**
+     * Passes a document not processed to the drop handler, unless a worker has finished it.
+     *
+     * @param entry the entry of the document
+     */
+    protected void drop(final Entry entry) {
+        if (entry.finish(Entry.DROPPED)) {
+            droppedCount.incrementAndGet();
+            handleDropped(entry.document);
+        }
+    }
+
+    /**
+     * Passes a document not processed successfully to the drop handler.
+     *
+     * @param document the document
+     */
+    @SuppressWarnings("unchecked")
+    protected void handleDropped(final Object document) {
+        if (dropHandler != null) {
+            try {
+                dropHandler.accept((T) document);
+            } catch (final Throwable t) {
+                logger.warn("Failed to handle the dropped document: {}", document, t);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of submitted documents.
+     *
+     * @return the number of submitted documents
+     */
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    /**
+     * Gets the number of documents processed successfully.
+     *
+     * @return the number of processed documents
+     */
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    /**
+     * Gets the number of documents whose processing failed or was interrupted.
+     *
+     * @return the number of failed documents
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * Gets the number of documents dropped without being processed.
+     *
+     * @return the number of dropped documents
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    @Override
+    public void close() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Takes documents from the queue and processes them until the end marker is taken.
+     */
+    protected void runWorker() {
+        try {
+            while (true) {
+                final Object entry = queue.take();
+                if (entry == END_OF_DOCUMENTS) {
+                    break;
+                }
+                process((Entry) entry);
+            }
+        } catch (final InterruptedException e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Interrupted worker.", e);
+            }
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Processes a document taken from the queue or submitted to its own task.
+     * The document is counted as completed only if the processor returns without being interrupted.
+     *
+     * @param entry the entry of the document
+     */
+    @SuppressWarnings("unchecked")
+    protected void process(final Entry entry) {
+        if (!entry.start()) {
+            // dropped before it was started
+            return;
+        }
+        boolean succeeded = false;
+        try {
+            processor.accept((T) entry.document);
+            succeeded = !Thread.currentThread().isInterrupted();
+        } catch (final Throwable t) {
+            logger.warn("Failed to process {}", entry.document, t);
+        } finally {
+            if (succeeded) {
+                if (entry.finish(Entry.COMPLETED)) {
+                    completedCount.incrementAndGet();
+                }
+            } else if (entry.finish(Entry.FAILED)) {
+                failedCount.incrementAndGet();
+                handleDropped(entry.document);
+            }
+        }
+    }
+
+    /**
+     * Document submitted to the pipeline.
+     * Each submission has its own entry, so that equal documents submitted twice are tracked separately,
+     * and its state is changed only once to a final state by a worker or by dropping it.
+     */
+    protected class Entry {
+
+        /** State of a document waiting to be processed. */
+        protected static final int QUEUED = 0;
+
+        /** State of a document being processed. */
+        protected static final int PROCESSING = 1;
+
+        /** State of a document processed successfully. */
+        protected static final int COMPLETED = 2;
+
+        /** State of a document whose processing failed or was interrupted. */
+        protected static final int FAILED = 3;
+
+        /** State of a document dropped without being processed. */
+        protected static final int DROPPED = 4;
+
+        /** The document. */
+        protected final Object document;
+
+        /** The state of the document. */
+        protected final AtomicInteger state = new AtomicInteger(QUEUED);
+
+        /**
+         * Constructs a new entry.
+         *
+         * @param document the document
+         */
+        protected Entry(final Object document) {
+            this.document = document;
+        }
+
+        /**
+         * Marks the document as being processed.
+         *
+         * @return true if the document has not been dropped
+         */
+        protected boolean start() {
+            return state.compareAndSet(QUEUED, PROCESSING);
+        }
+
+        /**
+         * Changes the state of the document to the final state and stops tracking it.
+         *
+         * @param finalState the final state
+         * @return true if the state is changed, false if the document has already been finished
+         */
+        protected boolean finish(final int finalState) {
+            while (true) {
+                final int current = state.get();
+                if (current != QUEUED && current != PROCESSING) {
+                    return false;
+                }
+                if (state.compareAndSet(current, finalState)) {
+                    inFlight.remove(this);
+                    return true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Stores the fingerprints of indexed documents, keyed by the view URL, to skip unchanged documents in the next run.
+ * A fingerprint holds the version of the document, such as the version number or the updated timestamp,
+ * the hash of its extracted text, and the time it was last seen by a crawl.
+ * The fingerprints of indexed documents are recorded as pending until the index is committed,
+ * so that documents buffered by the index writer and lost on a failure are not skipped in the next run.
+ * The fingerprints are loaded from a file and saved to it when the store is closed.
+ * If the configuration hash of the file differs, for example because scripts were changed, the stored fingerprints are discarded.
+ */
+public class FingerprintStore implements Closeable {
+    private static final Logger logger = LogManager.getLogger(FingerprintStore.class);
+
+    /** The prefix of the header line holding the configuration hash. */
+    protected static final String HEADER_PREFIX = "#";
+
+    /** The separator of the fields of a fingerprint line. */
+    protected static final char SEPARATOR = '\t';
+
+    /** The file storing the fingerprints. */
+    protected final Path path;
+
+    /** The hash of the configuration the fingerprints were created with. */
+    protected final String configHash;
+
+    /** The time in milliseconds the current run started. */
+    protected final long startTime;
+
+    /** The fingerprints by view URL. */
+    protected final Map<String, Fingerprint> fingerprints = new ConcurrentHashMap<>();
+
+    /** The fingerprints of documents sent to the index and not committed yet, by view URL. */
+    protected final Map<String, Fingerprint> pending = new ConcurrentHashMap<>();
+
+    /** The number of documents skipped as unchanged. */
+    protected final AtomicLong skippedCount = new AtomicLong();
+
+    /** Whether a document failed to be sent to the index, so that pending fingerprints may not be indexed. */
+    protected volatile boolean failed;
+
+    /**
+     * The fingerprint of a document.
+     *
+     * @param version the version of the document, or null if not available
+     * @param hash the hash of the extracted text
+     * @param crawled the time in milliseconds the document was last seen by a crawl
+     */
+    public record Fingerprint(String version, String hash, long crawled) {
+    }
+
+    /**
+     * Constructs an empty store.
+     *
+     * @param path the file storing the fingerprints
+     * @param configHash the hash of the current configuration
+     */
+    public FingerprintStore(final Path path, final String configHash) {
+        this.path = path;
+        this.configHash = configHash;
+        startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Loads the fingerprints stored by the previous run.
+     * A missing file, a different configuration hash, and invalid lines are ignored.
+     *
+     * @param path the file storing the fingerprints
+     * @param configHash the hash of the current configuration
+     * @return the store
+     */
+    public static FingerprintStore load(final Path path, final String configHash) {
+        final FingerprintStore store = new FingerprintStore(path, configHash);
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            final String header = reader.readLine();
+            if (header == null || !header.equals(HEADER_PREFIX + configHash)) {
+                logger.info("Configuration is changed. Ignoring the stored fingerprints: {}", path);
+                return store;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] values = line.split(String.valueOf(SEPARATOR), -1);
+                if (values.length != 4) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Invalid fingerprint: {}", line);
+                    }
+                    continue;
+                }
+                try {
+                    store.fingerprints.put(values[0],
+                            new Fingerprint(values[1].isEmpty() ? null : values[1], values[2], Long.parseLong(values[3])));
+                } catch (final NumberFormatException e) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Invalid fingerprint: {}", line, e);
+                    }
+                }
+            }
+            logger.info("Loaded {} fingerprints from {}", store.fingerprints.size(), path);
+        } catch (final NoSuchFileException e) {
+            logger.info("No fingerprints are stored: {}", path);
+        } catch (final IOException e) {
+            logger.warn("Failed to load fingerprints: {}. Crawling all documents.", path, e);
+            store.fingerprints.clear();
+        }
+        return store;
+    }
+
+    /**
+     * Checks if the version of a document is the same as the stored one.
+     * If so, the document is marked as seen by the current run.
+     *
+     * @param url the view URL of the document
+     * @param version the version of the document, or null if not available
+     * @return true if the document is unchanged
+     */
+    public boolean isUnchanged(final String url, final String version) {
+        if (version == null) {
+            return false;
+        }
+        final Fingerprint fingerprint = fingerprints.get(url);
+        if (fingerprint == null || !version.equals(fingerprint.version())) {
+            return false;
+        }
+        fingerprints.put(url, new Fingerprint(version, fingerprint.hash(), System.currentTimeMillis()));
+        skippedCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Checks if the extracted text of a document is the same as the stored one.
+     * If so, the new version is stored and the document is marked as seen by the current run.
+     *
+     * @param url the view URL of the document
+     * @param version the version of the document, or null if not available
+     * @param hash the hash of the extracted text
+     * @return true if the document is unchanged
+     */
+    public boolean isUnchanged(final String url, final String version, final String hash) {
+        final Fingerprint fingerprint = fingerprints.get(url);
+        if (fingerprint == null || !fingerprint.hash().equals(hash)) {
+            return false;
+        }
+        put(url, version, hash);
+        skippedCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Stores the fingerprint of a document indexed by the current run.
+     *
+     * @param url the view URL of the document
+     * @param version the version of the document, or null if not available
+     * @param hash the hash of the extracted text
+     */
+    public void put(final String url, final String version, final String hash) {
+        fingerprints.put(url, new Fingerprint(version, hash, System.currentTimeMillis()));
+    }
+
+    /**
+     * Records the fingerprint of a document sent to the index by the current run.
+     * The fingerprint is stored by {@link #commit()} after the index is committed.
+     *
+     * @param url the view URL of the document
+     * @param version the version of the document, or null if not available
+     * @param hash the hash of the extracted text
+     */
+    public void record(final String url, final String version, final String hash) {
+        pending.put(url, new Fingerprint(version, hash, System.currentTimeMillis()));
+    }
+
+    /**
+     * Marks that a document failed to be sent to the index.
+     * Documents buffered with it may be lost, so the pending fingerprints of the current run are not committed.
+     */
+    public void fail() {
+        failed = true;
+    }
+
+    /**
+     * Stores the pending fingerprints. This method should be called after the index is committed.
+     * If a document failed to be sent to the index, the pending fingerprints are discarded instead.
+     *
+     * @return true if the pending fingerprints are stored
+     */
+    public boolean commit() {
+        if (failed) {
+            logger.warn("Some documents failed to be indexed. Discarding {} fingerprints.", pending.size());
+            pending.clear();
+            return false;
+        }
+        fingerprints.putAll(pending);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Committed {} fingerprints.", pending.size());
+        }
+        pending.clear();
+        return true;
+    }
+
+    /**
+     * Gets the fingerprint of a document.
+     *
+     * @param url the view URL of the document
+     * @return the fingerprint, or null if not stored
+     */
+    public Fingerprint get(final String url) {
+        return fingerprints.get(url);
+    }
+
+    /**
+     * Gets the number of documents skipped as unchanged.
+     *
+     * @return the number of skipped documents
+     */
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    /**
+     * Removes the fingerprints of documents not seen by the current run.
+     * This method should be called only after all documents of a full crawl are processed,
+     * so that the fingerprints of deleted documents do not accumulate.
+     */
+    public void prune() {
+        final int size = fingerprints.size();
+        fingerprints.values().removeIf(fingerprint -> fingerprint.crawled() < startTime);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Pruned {} fingerprints.", size - fingerprints.size());
+        }
+    }
+
+    /**
+     * Saves the fingerprints to the file.
+     * The file is replaced atomically, so that an interrupted save does not corrupt the stored fingerprints.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void save() throws IOException {
+        final Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        final Path tempFile = path.resolveSibling(path.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            writer.write(HEADER_PREFIX + configHash);
+            writer.newLine();
+            for (final Map.Entry<String, Fingerprint> entry : fingerprints.entrySet()) {
+                final Fingerprint fingerprint = entry.getValue();
+                writer.write(entry.getKey());
+                writer.write(SEPARATOR);
+                writer.write(fingerprint.version() != null ? fingerprint.version() : "");
+                writer.write(SEPARATOR);
+                writer.write(fingerprint.hash());
+                writer.write(SEPARATOR);
+                writer.write(Long.toString(fingerprint.crawled()));
+                writer.newLine();
+            }
+        }
+        Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Saves the fingerprints. Pending fingerprints not committed are discarded.
+     * A failure is logged, and the documents are crawled again in the next run.
+     */
+    @Override
+    public void close() {
+        if (!pending.isEmpty()) {
+            logger.info("Discarding {} fingerprints of documents not committed.", pending.size());
+            pending.clear();
+        }
+        try {
+            save();
+            logger.info("Skipped {} unchanged documents. Saved {} fingerprints to {}", skippedCount.get(), fingerprints.size(), path);
+        } catch (final IOException e) {
+            logger.warn("Failed to save fingerprints: {}", path, e);
+        }
+    }
+
+    /**
+     * Computes the hash of the given values.
+     * Null values are distinguished from empty strings.
+     *
+     * @param values the values to hash
+     * @return the hash in URL-safe Base64
+     */
+    public static String hash(final Object... values) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new AtlassianDataStoreException("SHA-256 is not available.", e);
+        }
+        for (final Object value : values) {
+            if (value == null) {
+                digest.update((byte) 0);
+            } else {
+                digest.update((byte) 1);
+                digest.update(value.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) 0);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+    }
+}
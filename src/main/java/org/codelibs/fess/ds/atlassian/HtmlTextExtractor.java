@@ -0,0 +1,432 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Lightweight converter from HTML to plain text.
+ * The HTML is read as characters in a single pass without building a DOM or encoding it to bytes,
+ * so it is much cheaper than parsing it with Tika for the HTML bodies returned by the REST APIs.
+ * Tags and comments are removed, the contents of script and style elements are skipped,
+ * character references including all the named references of HTML5 are decoded,
+ * block elements are separated by line breaks, and other whitespace is collapsed into single spaces.
+ */
+public class HtmlTextExtractor {
+
+    /** Elements whose contents are not text. */
+    protected static final Set<String> SKIP_ELEMENTS = Set.of("script", "style", "noscript", "template");
+
+    /** Elements separated from the surrounding text by line breaks. */
+    protected static final Set<String> BLOCK_ELEMENTS = Set.of("address", "article", "aside", "blockquote", "br", "caption", "dd", "div",
+            "dl", "dt", "fieldset", "figcaption", "figure", "footer", "form", "h1", "h2", "h3", "h4", "h5", "h6", "header", "hr", "li",
+            "main", "nav", "ol", "p", "pre", "section", "table", "tbody", "tfoot", "thead", "tr", "ul");
+
+    /** Elements separated from the surrounding text by spaces. */
+    protected static final Set<String> INLINE_SEPARATED_ELEMENTS = Set.of("td", "th", "img", "input", "option");
+
+    /** Resource listing the named character references of HTML5. */
+    protected static final String ENTITIES_RESOURCE = "html5-entities.properties";
+
+    /** Named character references decoded by this extractor. */
+    protected static final Map<String, String> ENTITIES = loadEntities();
+
+    /** The maximum length of a character reference name. */
+    protected static final int MAX_ENTITY_LENGTH = 32;
+
+    private final Reader reader;
+
+    private final char[] buffer = new char[8192];
+
+    private int position;
+
+    private int limit;
+
+    private int pushback = -1;
+
+    private final StringBuilder out;
+
+    private boolean pendingSpace;
+
+    private boolean pendingNewline;
+
+    /**
+     * Constructs a new extractor reading the HTML.
+     *
+     * @param reader the HTML
+     * @param capacity the initial capacity of the text
+     */
+    protected HtmlTextExtractor(final Reader reader, final int capacity) {
+        this.reader = reader;
+        out = new StringBuilder(capacity);
+    }
+
+    /**
+     * Extracts the text of the HTML.
+     *
+     * @param html the HTML, or null
+     * @return the text, or an empty string if the HTML is null
+     */
+    public static String extract(final String html) {
+        if (html == null || html.isEmpty()) {
+            return "";
+        }
+        try {
+            return new HtmlTextExtractor(new StringReader(html), html.length() / 2).extract();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Extracts the text of the HTML read from the reader.
+     * The reader is not closed.
+     *
+     * @param reader the HTML
+     * @return the text
+     * @throws IOException if the HTML cannot be read
+     */
+    public static String extract(final Reader reader) throws IOException {
+        return new HtmlTextExtractor(reader, 1024).extract();
+    }
+
+    /**
+     * Reads the whole HTML and returns its text.
+     *
+     * @return the text
+     * @throws IOException if the HTML cannot be read
+     */
+    protected String extract() throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            if (c == '<') {
+                readMarkup();
+            } else if (c == '&') {
+                readCharacterReference();
+            } else {
+                appendText((char) c);
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Reads the markup following a less-than sign.
+     *
+     * @throws IOException if the HTML cannot be read
+     */
+    protected void readMarkup() throws IOException {
+        final int c = read();
+        if (c == '!') {
+            readDeclaration();
+        } else if (c == '?') {
+            skipUntil(">");
+        } else if (c == '/' || isAsciiLetter(c)) {
+            final boolean closing = c == '/';
+            if (!closing) {
+                unread(c);
+            }
+            final String name = readTagName();
+            if (name.isEmpty()) {
+                // not a tag
+                appendText('<');
+                if (closing) {
+                    appendText('/');
+                }
+                return;
+            }
+            skipAttributes();
+            if (!closing && SKIP_ELEMENTS.contains(name)) {
+                skipElementContent(name);
+            } else if (BLOCK_ELEMENTS.contains(name)) {
+                pendingNewline = true;
+            } else if (INLINE_SEPARATED_ELEMENTS.contains(name)) {
+                pendingSpace = true;
+            }
+        } else {
+            appendText('<');
+            if (c != -1) {
+                unread(c);
+            }
+        }
+    }
+
+    /**
+     * Reads a comment, a CDATA section, or a document type declaration.
+     *
+     * @throws IOException if the HTML cannot be read
+     */
+    protected void readDeclaration() throws IOException {
+        final int c = read();
+        if (c == '-') {
+            final int c2 = read();
+            if (c2 == '-') {
+                skipUntil("-->");
+                return;
+            }
+            unread(c2);
+        } else if (c == '[') {
+            if (matches("CDATA[")) {
+                int ch;
+                while ((ch = read()) != -1) {
+                    if (ch == ']' && matches("]>")) {
+                        return;
+                    }
+                    appendText((char) ch);
+                }
+                return;
+            }
+        } else {
+            unread(c);
+        }
+        skipUntil(">");
+    }
+
+    /**
+     * Reads the name of a tag in lower case.
+     *
+     * @return the tag name, or an empty string if not a tag name
+     * @throws IOException if the HTML cannot be read
+     */
+    protected String readTagName() throws IOException {
+        final StringBuilder name = new StringBuilder(8);
+        int c;
+        while ((c = read()) != -1) {
+            if (isAsciiLetter(c) || c >= '0' && c <= '9' || c == '-' || c == ':') {
+                name.append((char) c);
+            } else {
+                unread(c);
+                break;
+            }
+        }
+        return name.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Skips the attributes of a tag until the greater-than sign outside of quoted values.
+     *
+     * @throws IOException if the HTML cannot be read
+     */
+    protected void skipAttributes() throws IOException {
+        int quote = 0;
+        int c;
+        while ((c = read()) != -1) {
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Skips the content of an element until its end tag.
+     *
+     * @param name the element name
+     * @throws IOException if the HTML cannot be read
+     */
+    protected void skipElementContent(final String name) throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            if (c == '<') {
+                final int c2 = read();
+                if (c2 == '/') {
+                    if (readTagName().equals(name)) {
+                        skipAttributes();
+                        return;
+                    }
+                } else if (c2 != -1) {
+                    unread(c2);
+                }
+            }
+        }
+    }
+
+    /**
+     * Skips characters until the terminator is read.
+     *
+     * @param terminator the terminator
+     * @throws IOException if the HTML cannot be read
+     */
+    protected void skipUntil(final String terminator) throws IOException {
+        final char first = terminator.charAt(0);
+        final String rest = terminator.substring(1);
+        int c;
+        while ((c = read()) != -1) {
+            if (c == first && matches(rest)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads the characters if they match the expected string.
+     * Only the last character read is pushed back if they do not match.
+     *
+     * @param expected the expected string
+     * @return true if the characters match
+     * @throws IOException if the HTML cannot be read
+     */
+    protected boolean matches(final String expected) throws IOException {
+        for (int i = 0; i < expected.length(); i++) {
+            final int c = read();
+            if (c != expected.charAt(i)) {
+                if (c != -1) {
+                    unread(c);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads a character reference following an ampersand and appends the decoded character.
+     * If the reference cannot be decoded, it is appended as is.
+     *
+     * @throws IOException if the HTML cannot be read
+     */
+    protected void readCharacterReference() throws IOException {
+        final StringBuilder name = new StringBuilder(8);
+        int c;
+        while ((c = read()) != -1 && name.length() < MAX_ENTITY_LENGTH) {
+            if (c == ';') {
+                final String decoded = decode(name.toString());
+                if (decoded != null) {
+                    for (int i = 0; i < decoded.length(); i++) {
+                        appendText(decoded.charAt(i));
+                    }
+                    return;
+                }
+                break;
+            }
+            if (!isAsciiLetter(c) && !(c >= '0' && c <= '9') && c != '#') {
+                break;
+            }
+            name.append((char) c);
+        }
+        appendText('&');
+        for (int i = 0; i < name.length(); i++) {
+            appendText(name.charAt(i));
+        }
+        if (c != -1) {
+            unread(c);
+        }
+    }
+
+    /**
+     * Decodes the name of a character reference.
+     *
+     * @param name the name between the ampersand and the semicolon
+     * @return the decoded characters, or null if not decodable
+     */
+    protected static String decode(final String name) {
+        if (name.length() > 1 && name.charAt(0) == '#') {
+            try {
+                final int codePoint = name.charAt(1) == 'x' || name.charAt(1) == 'X' ? Integer.parseInt(name.substring(2), 16)
+                        : Integer.parseInt(name.substring(1));
+                if (Character.isValidCodePoint(codePoint) && codePoint != 0) {
+                    return new String(Character.toChars(codePoint));
+                }
+            } catch (final NumberFormatException e) {
+                // not decodable
+            }
+            return null;
+        }
+        return ENTITIES.get(name);
+    }
+
+    /**
+     * Loads the named character references of HTML5 terminated by a semicolon.
+     *
+     * @return the characters by reference name
+     */
+    protected static Map<String, String> loadEntities() {
+        final Properties properties = new Properties();
+        try (InputStream in = HtmlTextExtractor.class.getResourceAsStream(ENTITIES_RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException(ENTITIES_RESOURCE + " is not found.");
+            }
+            properties.load(in);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to load " + ENTITIES_RESOURCE, e);
+        }
+        final Map<String, String> entities = new HashMap<>(properties.size() * 2);
+        properties.forEach((key, value) -> entities.put(key.toString(), value.toString()));
+        return Collections.unmodifiableMap(entities);
+    }
+
+    /**
+     * Appends a character of the text, collapsing whitespace.
+     *
+     * @param c the character
+     */
+    protected void appendText(final char c) {
+        if (Character.isWhitespace(c) || c == ' ') {
+            pendingSpace = true;
+            return;
+        }
+        if (out.length() > 0) {
+            if (pendingNewline) {
+                out.append('\n');
+            } else if (pendingSpace) {
+                out.append(' ');
+            }
+        }
+        pendingNewline = false;
+        pendingSpace = false;
+        out.append(c);
+    }
+
+    private static boolean isAsciiLetter(final int c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+    }
+
+    private int read() throws IOException {
+        if (pushback != -1) {
+            final int c = pushback;
+            pushback = -1;
+            return c;
+        }
+        if (position >= limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    private void unread(final int c) {
+        pushback = c;
+    }
+}
@@ -15,16 +15,21 @@
  */
 package org.codelibs.fess.ds.atlassian;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TimeZone;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -36,8 +41,13 @@ import org.codelibs.fess.crawler.exception.CrawlingAccessException;
 import org.codelibs.fess.crawler.exception.MultipleCrawlingAccessException;
 import org.codelibs.fess.crawler.filter.UrlFilter;
 import org.codelibs.fess.ds.atlassian.api.jira.JiraClient;
+import org.codelibs.fess.ds.atlassian.api.jira.adf.AdfTextExtractor;
+import org.codelibs.fess.ds.atlassian.api.jira.domain.AdfDocument;
+import org.codelibs.fess.ds.atlassian.api.jira.domain.Attachment;
 import org.codelibs.fess.ds.atlassian.api.jira.domain.Comment;
+import org.codelibs.fess.ds.atlassian.api.jira.domain.Comments;
 import org.codelibs.fess.ds.atlassian.api.jira.domain.Issue;
+import org.codelibs.fess.ds.atlassian.api.util.DateUtil;
 import org.codelibs.fess.ds.callback.IndexUpdateCallback;
 import org.codelibs.fess.entity.DataStoreParams;
 import org.codelibs.fess.helper.CrawlerStatsHelper;
@@ -48,8 +58,8 @@ import org.codelibs.fess.util.ComponentUtil;
 
 /**
  * Data store implementation for crawling JIRA issues.
- * Retrieves issues and their comments from JIRA instances and indexes them in
- * Fess.
+ * Retrieves issues, their comments, and optionally their attachments from JIRA instances
+ * and indexes them in Fess.
  */
 public class JiraDataStore extends AtlassianDataStore {
 
@@ -69,12 +79,25 @@ public class JiraDataStore extends AtlassianDataStore {
     /** Script variable name for issue comments. */
     protected static final String ISSUE_COMMENTS = "comments";
 
+    /** Script variable name for issue attachments. */
+    protected static final String ISSUE_ATTACHMENTS = "attachments";
+
     /** Script variable name for issue last modified date. */
     protected static final String ISSUE_LAST_MODIFIED = "last_modified";
 
     /** Script variable name for issue view URL. */
     protected static final String ISSUE_VIEW_URL = "view_url";
 
+    // parameters
+    /** Parameter key for searching issues concurrently by project. */
+    protected static final String PROJECT_SHARD = "project_shard";
+
+    /** Parameter key for the comma-separated keys of projects to search. */
+    protected static final String PROJECT_KEYS = "project_keys";
+
+    /** Parameter key for the number of days of the created date range of a shard. */
+    protected static final String CREATED_SHARD_DAYS = "created_shard_days";
+
     /**
      * Default constructor.
      */
@@ -95,24 +118,156 @@ public class JiraDataStore extends AtlassianDataStore {
             logger.debug("configMap: {}", configMap);
         }
 
-        final ExecutorService executorService = newFixedThreadPool(getNumberOfThreads(paramMap));
-
-        try (final JiraClient client = createClient(dataConfig, paramMap)) {
-            client.getIssues(issue -> executorService
-                    .execute(() -> processIssue(dataConfig, callback, configMap, paramMap, scriptMap, defaultDataMap, client, issue)));
+        try (final FingerprintStore fingerprintStore = createFingerprintStore(dataConfig, paramMap, scriptMap, defaultDataMap);
+                final JiraClient client = createClient(dataConfig, paramMap);
+                final AttachmentProcessor attachmentProcessor = client.isAttachment() ? newAttachmentProcessor(paramMap) : null;
+                final DocumentPipeline<Issue> attachmentPipeline = attachmentProcessor == null ? null
+                        : newAttachmentPipeline(paramMap,
+                                issue -> processIssue(dataConfig, callback, configMap, paramMap, scriptMap, defaultDataMap, client, issue),
+                                issue -> recordDroppedDocument(dataConfig, configMap, getIssueViewUrl(issue, client),
+                                        getIssueLastModified(issue)));
+                final DocumentPipeline<Issue> pipeline = newPipeline(paramMap, issue -> {
+                    if (attachmentPipeline != null && !getTargetAttachments(issue, attachmentProcessor).isEmpty()) {
+                        // issues with attachments to download are indexed by the attachment stage
+                        attachmentPipeline.submit(issue);
+                    } else {
+                        processIssue(dataConfig, callback, configMap, paramMap, scriptMap, defaultDataMap, client, issue);
+                    }
+                }, issue -> recordDroppedDocument(dataConfig, configMap, getIssueViewUrl(issue, client), getIssueLastModified(issue)))) {
+            if (attachmentProcessor != null) {
+                configMap.put(ATTACHMENT_PROCESSOR, attachmentProcessor);
+            }
+            if (fingerprintStore != null) {
+                configMap.put(FINGERPRINT_STORE, fingerprintStore);
+            }
+            final String updatedFrom = getQueryDateFrom(configMap, paramMap);
+            if (isProjectShard(paramMap)) {
+                fetchConcurrently(paramMap, createIssueFetchers(client, paramMap, updatedFrom, pipeline::submit));
+            } else {
+                client.getIssues(updatedFrom, pipeline::submit);
+            }
 
             if (logger.isDebugEnabled()) {
-                logger.debug("Shutting down thread executor.");
+                logger.debug("Finishing pipeline.");
+            }
+            // the attachment pipeline is finished within the same drain timeout
+            final long deadline = DocumentPipeline.getDeadline(getDrainTimeout(paramMap), TimeUnit.MILLISECONDS);
+            boolean completed = pipeline.finish(deadline, () -> alive);
+            if (!completed) {
+                logger.warn(
+                        "Could not process all issues. The checkpoint is not updated. submitted={}, completed={}, failed={}, dropped={}",
+                        pipeline.getSubmittedCount(), pipeline.getCompletedCount(), pipeline.getFailedCount(), pipeline.getDroppedCount());
+            }
+            if (attachmentPipeline != null) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Finishing attachment pipeline.");
+                }
+                if (!attachmentPipeline.finish(deadline, () -> alive)) {
+                    logger.warn("Could not process all issues with attachments. submitted={}, completed={}, failed={}, dropped={}",
+                            attachmentPipeline.getSubmittedCount(), attachmentPipeline.getCompletedCount(),
+                            attachmentPipeline.getFailedCount(), attachmentPipeline.getDroppedCount());
+                    completed = false;
+                }
+            }
+            commitFingerprints(callback, configMap);
+            if (completed) {
+                saveCheckpoint(dataConfig, configMap);
+                if (isFullCrawl(configMap)) {
+                    pruneFingerprints(configMap);
+                }
             }
-            executorService.shutdown();
-            executorService.awaitTermination(60, TimeUnit.SECONDS);
         } catch (final InterruptedException e) {
             throw new InterruptedRuntimeException(e);
-        } finally {
-            executorService.shutdownNow();
         }
     }
 
+    /**
+     * Checks if issues are searched concurrently by project.
+     *
+     * @param paramMap the parameter map
+     * @return true if the JQL query is split into a shard for each project
+     */
+    protected boolean isProjectShard(final DataStoreParams paramMap) {
+        return Constants.TRUE.equalsIgnoreCase(paramMap.getAsString(PROJECT_SHARD, Constants.FALSE));
+    }
+
+    /**
+     * Gets the number of days of the created date range of a shard.
+     *
+     * @param paramMap the parameter map
+     * @return the number of days, or 0 or less not to split projects by the created date
+     */
+    protected int getCreatedShardDays(final DataStoreParams paramMap) {
+        return Integer.parseInt(paramMap.getAsString(CREATED_SHARD_DAYS, "0"));
+    }
+
+    /**
+     * Creates fetchers searching a shard of the JQL query for each project.
+     * If the created shard days are specified, each project is split further by ranges of the created date.
+     *
+     * @param client the JIRA client
+     * @param paramMap the parameter map
+     * @param updatedFrom the date value in JQL format, or null to retrieve all issues
+     * @param consumer the consumer to process each issue
+     * @return the fetchers
+     * @throws InterruptedException if interrupted while splitting projects
+     */
+    protected List<Runnable> createIssueFetchers(final JiraClient client, final DataStoreParams paramMap, final String updatedFrom,
+            final Consumer<Issue> consumer) throws InterruptedException {
+        List<String> projectKeys = getKeyList(paramMap, PROJECT_KEYS);
+        if (projectKeys.isEmpty()) {
+            projectKeys = client.getProjectKeys();
+        }
+        final List<Runnable> fetchers = Collections.synchronizedList(new ArrayList<>());
+        final int days = getCreatedShardDays(paramMap);
+        if (days <= 0) {
+            for (final String projectKey : projectKeys) {
+                fetchers.add(() -> client.getIssues(projectKey, null, null, updatedFrom, consumer));
+            }
+        } else {
+            // the oldest issue of each project is searched concurrently as well
+            final ZoneId zoneId = getQueryZoneId(paramMap);
+            final List<Runnable> splitters = new ArrayList<>();
+            for (final String projectKey : projectKeys) {
+                splitters.add(() -> {
+                    final Date earliest = parseIssueDate(client.getEarliestCreated(projectKey, updatedFrom));
+                    final List<String> boundaries = getCreatedBoundaries(earliest, Instant.now(), days, zoneId);
+                    for (int i = 0; i <= boundaries.size(); i++) {
+                        final String createdFrom = i > 0 ? boundaries.get(i - 1) : null;
+                        final String createdTo = i < boundaries.size() ? boundaries.get(i) : null;
+                        fetchers.add(() -> client.getIssues(projectKey, createdFrom, createdTo, updatedFrom, consumer));
+                    }
+                });
+            }
+            fetchConcurrently(paramMap, splitters);
+        }
+        logger.info("Searching {} shards of {} projects.", fetchers.size(), projectKeys.size());
+        return fetchers;
+    }
+
+    /**
+     * Gets the boundaries splitting the created date into ranges of the given days.
+     * The first range has no lower bound and the last range has no upper bound, so that no issue is missed.
+     *
+     * @param earliest the created date of the oldest issue, or null if unknown
+     * @param now the current time
+     * @param days the number of days of a range
+     * @param zoneId the time zone of date values in JQL
+     * @return the boundaries in JQL format, empty if not split
+     */
+    protected List<String> getCreatedBoundaries(final Date earliest, final Instant now, final int days, final ZoneId zoneId) {
+        final List<String> boundaries = new ArrayList<>();
+        if (earliest == null || days <= 0) {
+            return boundaries;
+        }
+        ZonedDateTime boundary = earliest.toInstant().atZone(zoneId).plusDays(days);
+        while (boundary.toInstant().isBefore(now)) {
+            boundaries.add(QUERY_DATE_FORMATTER.format(boundary));
+            boundary = boundary.plusDays(days);
+        }
+        return boundaries;
+    }
+
     /**
      * Creates a JIRA client with the given parameters.
      *
@@ -142,6 +297,7 @@ public class JiraDataStore extends AtlassianDataStore {
         final CrawlerStatsHelper crawlerStatsHelper = ComponentUtil.getCrawlerStatsHelper();
         final Map<String, Object> dataMap = new HashMap<>(defaultDataMap);
         final String url = getIssueViewUrl(issue, client);
+        final Date lastModified = getIssueLastModified(issue);
         final StatsKeyObject statsKey = new StatsKeyObject(url);
         paramMap.put(Constants.CRAWLER_STATS_KEY, statsKey);
         try {
@@ -153,6 +309,14 @@ public class JiraDataStore extends AtlassianDataStore {
                     logger.debug("Not matched: {}", url);
                 }
                 crawlerStatsHelper.discard(statsKey);
+                recordCheckpoint(configMap, lastModified, true);
+                return;
+            }
+
+            final String version = getIssueVersion(lastModified);
+            if (isUnchangedDocument(configMap, url, version, null)) {
+                crawlerStatsHelper.discard(statsKey);
+                recordCheckpoint(configMap, lastModified, true);
                 return;
             }
 
@@ -164,10 +328,20 @@ public class JiraDataStore extends AtlassianDataStore {
             issueMap.put(ISSUE_SUMMARY, issue.getFields().getSummary());
             issueMap.put(ISSUE_DESCRIPTION, getIssueDescription(issue));
             issueMap.put(ISSUE_COMMENTS, getIssueComments(issue, client));
-            issueMap.put(ISSUE_LAST_MODIFIED, getIssueLastModified(issue));
+            issueMap.put(ISSUE_ATTACHMENTS, getIssueAttachments(issue, client, getAttachmentProcessor(configMap)));
+            issueMap.put(ISSUE_LAST_MODIFIED, lastModified);
             issueMap.put(ISSUE_VIEW_URL, url);
             resultMap.put(ISSUE, issueMap);
 
+            // the issue may be updated without changing the indexed text, such as by a transition
+            final String hash = getFingerprintHash(configMap, issueMap.get(ISSUE_SUMMARY), issueMap.get(ISSUE_DESCRIPTION),
+                    issueMap.get(ISSUE_COMMENTS), issueMap.get(ISSUE_ATTACHMENTS));
+            if (hash != null && isUnchangedDocument(configMap, url, version, hash)) {
+                crawlerStatsHelper.discard(statsKey);
+                recordCheckpoint(configMap, lastModified, true);
+                return;
+            }
+
             crawlerStatsHelper.record(statsKey, StatsAction.PREPARED);
 
             if (logger.isDebugEnabled()) {
@@ -192,8 +366,10 @@ public class JiraDataStore extends AtlassianDataStore {
                 statsKey.setUrl(statsUrl);
             }
 
-            callback.store(paramMap, dataMap);
+            storeDocument(callback, configMap, paramMap, dataMap);
             crawlerStatsHelper.record(statsKey, StatsAction.FINISHED);
+            recordFingerprint(configMap, url, version, hash);
+            recordCheckpoint(configMap, lastModified, true);
         } catch (final CrawlingAccessException e) {
             logger.warn("Crawling Access Exception at : {}", dataMap, e);
 
@@ -216,16 +392,29 @@ public class JiraDataStore extends AtlassianDataStore {
             final FailureUrlService failureUrlService = ComponentUtil.getComponent(FailureUrlService.class);
             failureUrlService.store(dataConfig, errorName, url, target);
             crawlerStatsHelper.record(statsKey, StatsAction.ACCESS_EXCEPTION);
+            recordCheckpoint(configMap, lastModified, false);
         } catch (final Throwable t) {
             logger.warn("Crawling Access Exception at : {}", dataMap, t);
             final FailureUrlService failureUrlService = ComponentUtil.getComponent(FailureUrlService.class);
             failureUrlService.store(dataConfig, t.getClass().getCanonicalName(), url, t);
             crawlerStatsHelper.record(statsKey, StatsAction.EXCEPTION);
+            recordCheckpoint(configMap, lastModified, false);
         } finally {
             crawlerStatsHelper.done(statsKey);
         }
     }
 
+    /**
+     * Gets the version of a JIRA issue compared with its fingerprint.
+     * The updated timestamp changes when comments or attachments are added as well.
+     *
+     * @param lastModified the last modified date of the issue
+     * @return the version, or null if not available
+     */
+    protected String getIssueVersion(final Date lastModified) {
+        return lastModified != null ? Long.toString(lastModified.getTime()) : null;
+    }
+
     /**
      * Gets the view URL for a JIRA issue.
      *
@@ -239,6 +428,8 @@ public class JiraDataStore extends AtlassianDataStore {
 
     /**
      * Gets all comments for a JIRA issue as concatenated text.
+     * The comments retrieved with the issue are used if they are complete,
+     * otherwise all comments are retrieved page by page.
      *
      * @param issue  the JIRA issue
      * @param client the JIRA client
@@ -246,16 +437,68 @@ public class JiraDataStore extends AtlassianDataStore {
      */
     protected String getIssueComments(final Issue issue, final JiraClient client) {
         final StringBuilder sb = new StringBuilder();
-        final String id = issue.getId();
-
-        client.getComments(id, comment -> {
+        final Consumer<Comment> consumer = comment -> {
             sb.append("\n\n");
             sb.append(getCommentBodyText(comment));
-        });
+        };
+
+        final Comments embedded = issue.getFields() != null ? issue.getFields().getComment() : null;
+        if (client.isCommentPrefetch() && embedded != null && embedded.isComplete()) {
+            embedded.getComments().forEach(consumer);
+        } else {
+            if (logger.isDebugEnabled() && client.isCommentPrefetch()) {
+                logger.debug("Retrieving comments of {} separately.", issue.getKey());
+            }
+            client.getComments(issue.getId(), consumer);
+        }
 
         return sb.toString();
     }
 
+    /**
+     * Gets the attachments of a JIRA issue to download.
+     * Attachments are filtered by size and MIME type.
+     *
+     * @param issue the JIRA issue
+     * @param attachmentProcessor the attachment processor
+     * @return the attachments to download
+     */
+    protected List<Attachment> getTargetAttachments(final Issue issue, final AttachmentProcessor attachmentProcessor) {
+        final List<Attachment> attachments = issue.getFields() != null ? issue.getFields().getAttachment() : null;
+        if (attachments == null || attachments.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return attachments.stream()
+                .filter(attachment -> attachmentProcessor.accept(attachment.getFilename(), attachment.getMimeType(), attachment.getSize()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Gets the text of the attachments of a JIRA issue.
+     * Each attachment is streamed from its content URL into the extractor by the attachment processor.
+     *
+     * @param issue the JIRA issue
+     * @param client the JIRA client
+     * @param attachmentProcessor the attachment processor, or null if attachments are not indexed
+     * @return the concatenated text of the attachments
+     */
+    protected String getIssueAttachments(final Issue issue, final JiraClient client, final AttachmentProcessor attachmentProcessor) {
+        if (attachmentProcessor == null) {
+            return StringUtil.EMPTY;
+        }
+        final List<Callable<String>> extractors = new ArrayList<>();
+        for (final Attachment attachment : getTargetAttachments(issue, attachmentProcessor)) {
+            extractors.add(() -> attachment.getFilename() + "\n" + client.downloadAttachment(attachment)
+                    .maxContentLength(attachmentProcessor.getMaxSize())
+                    .execute(in -> getExtractedText(in, attachment.getMimeType(), attachment.getFilename())));
+        }
+        try {
+            return attachmentProcessor.process(extractors);
+        } catch (final InterruptedException e) {
+            throw new InterruptedRuntimeException(e);
+        }
+    }
+
     /**
      * Gets the last modified date of a JIRA issue.
      *
@@ -263,13 +506,23 @@ public class JiraDataStore extends AtlassianDataStore {
      * @return the last modified date, or null if parsing fails
      */
     protected Date getIssueLastModified(final Issue issue) {
-        final String updated = issue.getFields().getUpdated();
+        return parseIssueDate(issue.getFields().getUpdated());
+    }
+
+    /**
+     * Parses a date value of a JIRA issue field.
+     *
+     * @param value the date value
+     * @return the date, or null if not available or parsing fails
+     */
+    protected Date parseIssueDate(final String value) {
+        if (value == null) {
+            return null;
+        }
         try {
-            final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSX");
-            format.setTimeZone(TimeZone.getTimeZone("UTC"));
-            return format.parse(updated);
-        } catch (final ParseException e) {
-            logger.warn("Failed to parse: {}", updated, e);
+            return new Date(DateUtil.parseEpochMilli(value));
+        } catch (final DateTimeParseException e) {
+            logger.warn("Failed to parse: {}", value, e);
         }
         return null;
     }
@@ -284,6 +537,8 @@ public class JiraDataStore extends AtlassianDataStore {
         final Object description = issue.getFields().getDescription();
         if (description instanceof String) {
             return (String) description;
+        } else if (description instanceof AdfDocument) {
+            return ((AdfDocument) description).getText();
         } else if (description instanceof Map) {
             @SuppressWarnings("unchecked")
             final Map<String, Object> adf = (Map<String, Object>) description;
@@ -299,41 +554,17 @@ public class JiraDataStore extends AtlassianDataStore {
      * @return the extracted text
      */
     protected String getExtractedTextFromAdf(final Map<String, Object> adf) {
-        final StringBuilder sb = new StringBuilder();
-        extractTextFromAdf(adf, sb);
-        return sb.toString().trim();
+        return AdfTextExtractor.extract(adf);
     }
 
     /**
-     * Recursively extracts text from ADF objects.
+     * Extracts text from ADF objects.
      *
      * @param obj the ADF object (Map or List)
      * @param sb  the StringBuilder to append text to
      */
-    @SuppressWarnings("unchecked")
     protected void extractTextFromAdf(final Object obj, final StringBuilder sb) {
-        if (obj instanceof Map) {
-            final Map<String, Object> map = (Map<String, Object>) obj;
-            if (map.containsKey("text")) {
-                final Object text = map.get("text");
-                if (text != null) {
-                    sb.append(text.toString());
-                }
-            }
-            if (map.containsKey("content")) {
-                extractTextFromAdf(map.get("content"), sb);
-            }
-
-            final Object type = map.get("type");
-            if ("paragraph".equals(type) || "heading".equals(type)) {
-                sb.append("\n");
-            }
-        } else if (obj instanceof List) {
-            final List<Object> list = (List<Object>) obj;
-            for (final Object item : list) {
-                extractTextFromAdf(item, sb);
-            }
-        }
+        AdfTextExtractor.extract(obj, sb);
     }
 
     /**
@@ -346,6 +577,8 @@ public class JiraDataStore extends AtlassianDataStore {
         final Object body = comment.getBody();
         if (body instanceof String) {
             return getExtractedTextFromHtml((String) body);
+        } else if (body instanceof AdfDocument) {
+            return ((AdfDocument) body).getText();
         } else if (body instanceof Map) {
             @SuppressWarnings("unchecked")
             final Map<String, Object> adf = (Map<String, Object>) body;
@@ -15,6 +15,14 @@
  */
 package org.codelibs.fess.ds.atlassian.api;
 
+import java.io.Closeable;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.codelibs.core.lang.StringUtil;
@@ -26,18 +34,20 @@ import org.codelibs.fess.ds.atlassian.api.authentication.OAuthAuthentication;
 import org.codelibs.fess.ds.atlassian.api.endpoint.CloudOAuth2EndpointStrategy;
 import org.codelibs.fess.ds.atlassian.api.endpoint.DefaultEndpointStrategy;
 import org.codelibs.fess.ds.atlassian.api.endpoint.EndpointStrategy;
+import org.codelibs.fess.ds.atlassian.api.transport.AbstractHttpTransport;
+import org.codelibs.fess.ds.atlassian.api.transport.CurlTransport;
+import org.codelibs.fess.ds.atlassian.api.transport.HttpClientTransport;
+import org.codelibs.fess.ds.atlassian.api.transport.HttpTransport;
+import org.codelibs.fess.ds.atlassian.api.transport.TransferStats;
+import org.codelibs.fess.ds.atlassian.api.util.DataConfigWriter;
 import org.codelibs.fess.entity.DataStoreParams;
-import org.codelibs.fess.opensearch.config.exbhv.DataConfigBhv;
 import org.codelibs.fess.opensearch.config.exentity.DataConfig;
-import org.codelibs.fess.util.ComponentUtil;
-
-import java.util.stream.Collectors;
 
 /**
  * Abstract base class for Atlassian API clients providing common authentication
  * and HTTP configuration functionality.
  */
-public abstract class AtlassianClient {
+public abstract class AtlassianClient implements Closeable {
 
     private static final Logger logger = LogManager.getLogger(AtlassianClient.class);
 
@@ -67,6 +77,10 @@ public abstract class AtlassianClient {
     protected static final String OAUTH2_CLIENT_SECRET = "oauth2.client_secret";
     /** Parameter key for OAuth2 token URL. */
     protected static final String OAUTH2_TOKEN_URL = "oauth2.token_url";
+    /** Parameter key for the expiration time of the OAuth2 access token in epoch milliseconds, stored with refreshed tokens. */
+    protected static final String OAUTH2_EXPIRES_AT = "oauth2.expires_at";
+    /** Parameter key for the time in milliseconds before the expiration at which the OAuth2 token is refreshed. */
+    protected static final String OAUTH2_REFRESH_MARGIN = "oauth2.refresh_margin";
 
     /** Parameter key for basic authentication username. */
     protected static final String BASIC_USERNAME_PARAM = "basic.username";
@@ -80,8 +94,35 @@ public abstract class AtlassianClient {
     protected static final String HTTP_CONNECTION_TIMEOUT = "connection_timeout";
     /** Parameter key for HTTP read timeout. */
     protected static final String HTTP_READ_TIMEOUT = "read_timeout";
+    /** Parameter key for the maximum number of concurrent requests to the Atlassian instance. */
+    protected static final String MAX_CONCURRENT_REQUESTS = "max_concurrent_requests";
+    /** Parameter key for the HTTP transport, "httpclient" or "curl". */
+    protected static final String HTTP_TRANSPORT = "http_transport";
+    /** Parameter key for the maximum number of concurrent connections to a route. */
+    protected static final String MAX_CONNECTIONS_PER_ROUTE = "max_connections_per_route";
+    /** Parameter key for requesting compressed responses. */
+    protected static final String HTTP_COMPRESSION = "http_compression";
+    /** Parameter key for enabling the adaptive rate limiter. */
+    protected static final String RATE_LIMIT = "rate_limit";
+    /** Parameter key for the initial request rate per second. */
+    protected static final String RATE_LIMIT_INITIAL_RATE = "rate_limit.initial_rate";
+    /** Parameter key for the minimum request rate per second. */
+    protected static final String RATE_LIMIT_MIN_RATE = "rate_limit.min_rate";
+    /** Parameter key for the maximum request rate per second. */
+    protected static final String RATE_LIMIT_MAX_RATE = "rate_limit.max_rate";
+    /** Parameter key for the maximum number of retries of a throttled request. */
+    protected static final String RATE_LIMIT_MAX_RETRIES = "rate_limit.max_retries";
+    /** Parameter key for the maximum time to wait before retrying a throttled request in milliseconds. */
+    protected static final String RATE_LIMIT_MAX_BACKOFF = "rate_limit.max_backoff";
+
+    /** Base of the exponential backoff of throttled requests in milliseconds. */
+    protected static final long RATE_LIMIT_BASE_BACKOFF = 1000L;
 
     // values for parameters
+    /** Transport type sending requests with a pooled {@link java.net.http.HttpClient}. */
+    protected static final String HTTP_TRANSPORT_HTTPCLIENT = "httpclient";
+    /** Transport type sending requests with curl4j. */
+    protected static final String HTTP_TRANSPORT_CURL = "curl";
     /** Authentication type constant for basic authentication. */
     protected static final String BASIC = "basic";
     /** Authentication type constant for OAuth authentication. */
@@ -92,12 +133,25 @@ public abstract class AtlassianClient {
 
     /** The authentication instance used for API requests. */
     protected Authentication authentication;
+    /** Writer storing refreshed OAuth2 tokens into the DataConfig, or null if not OAuth2. */
+    protected DataConfigWriter tokenWriter;
     /** Endpoint Strategy **/
     protected EndpointStrategy endpointStrategy;
     /** HTTP connection timeout in milliseconds. */
     protected Integer connectionTimeout;
     /** HTTP read timeout in milliseconds. */
     protected Integer readTimeout;
+    /** The semaphores bounding concurrent requests by host, shared by all clients. */
+    protected static final Map<String, HostSemaphore> REQUEST_SEMAPHORES = new ConcurrentHashMap<>();
+
+    /** Maximum number of concurrent requests to the host, 0 or less for unlimited. */
+    protected int maxConcurrentRequests;
+    /** Transport sending requests, owned by this client. */
+    protected HttpTransport transport;
+    /** Rate limiter of the host, or null if the request rate is not limited. */
+    protected RateLimiter rateLimiter;
+    /** Maximum number of retries of a throttled request. */
+    protected int maxRetries;
 
     /**
      * Constructs a new Atlassian client with the given parameters.
@@ -107,112 +161,197 @@ public abstract class AtlassianClient {
      * @param product the Atlassian product type
      */
     protected AtlassianClient(final DataConfig dataConfig, final DataStoreParams paramMap, final AtlassianProduct product) {
+        try {
+            final String home = paramMap.getAsString(HOME_PARAM, StringUtil.EMPTY);
 
-        final String home = paramMap.getAsString(HOME_PARAM, StringUtil.EMPTY);
+            if (home.isEmpty()) {
+                logger.warn("parameter \"{}\" required", HOME_PARAM);
+                return;
+            }
 
-        if (home.isEmpty()) {
-            logger.warn("parameter \"{}\" required", HOME_PARAM);
-            return;
-        }
+            final String authType = getAuthType(paramMap);
+            switch (authType) {
+            case BASIC: {
+                logger.info("Setup basic authentication");
+                final String username = getBasicUsername(paramMap);
+                final String password = getBasicPass(paramMap);
+                if (username.isEmpty() || password.isEmpty()) {
+                    throw new AtlassianDataStoreException(
+                            "parameter \"" + BASIC_USERNAME_PARAM + "\" and \"" + BASIC_PASS_PARAM + " required for Basic authentication.");
+                }
+                authentication = new BasicAuthentication(username, password);
+                endpointStrategy = new DefaultEndpointStrategy(home);
+                break;
+            }
+            case OAUTH: {
+                logger.info("Setup oauth1 authentication");
+                final String consumerKey = getConsumerKey(paramMap);
+                final String privateKey = getPrivateKey(paramMap);
+                final String verifier = getSecret(paramMap);
+                final String accessToken = getAccessToken(paramMap);
+                if (consumerKey.isEmpty() || privateKey.isEmpty() || verifier.isEmpty() || accessToken.isEmpty()) {
+                    throw new AtlassianDataStoreException("parameter \"" + CONSUMER_KEY_PARAM + "\", \"" + PRIVATE_KEY_PARAM + "\", \""
+                            + SECRET_PARAM + "\" and \"" + ACCESS_TOKEN_PARAM + "\" required for OAuth authentication.");
+                }
+                authentication = new OAuthAuthentication(consumerKey, privateKey, accessToken, verifier);
+                endpointStrategy = new DefaultEndpointStrategy(home);
+                break;
+            }
+            case OAUTH2: {
+                logger.info("Setup oauth2 authentication");
+                final String accessToken = paramMap.getAsString(OAUTH2_ACCESS_TOKEN, StringUtil.EMPTY);
+                final String refreshToken = paramMap.getAsString(OAUTH2_REFRESH_TOKEN, StringUtil.EMPTY);
+                final String clientId = paramMap.getAsString(OAUTH2_CLIENT_ID, StringUtil.EMPTY);
+                final String clientSecret = paramMap.getAsString(OAUTH2_CLIENT_SECRET, StringUtil.EMPTY);
+                final String tokenUrl = paramMap.getAsString(OAUTH2_TOKEN_URL, OAuth2Authentication.DEFAULT_TOKEN_URL);
+
+                if (accessToken.isEmpty() || clientId.isEmpty() || clientSecret.isEmpty()) {
+                    throw new AtlassianDataStoreException("Parameters required for OAuth2 are missing.");
+                }
+                final DataConfigWriter writer = new DataConfigWriter(dataConfig);
+                tokenWriter = writer;
+                final OAuth2Authentication oauth2Authentication =
+                        new OAuth2Authentication(accessToken, refreshToken, clientId, clientSecret, tokenUrl, (tokenUpdateResult) -> {
+                            // Process for updating DataConfig by refresh token without blocking the refreshing thread.
+                            final Map<String, String> tokenMap = new HashMap<>();
+                            tokenMap.put(OAUTH2_ACCESS_TOKEN, tokenUpdateResult.getAccessToken());
+                            tokenMap.put(OAUTH2_REFRESH_TOKEN, tokenUpdateResult.getRefreshToken());
+                            final long expiresAt = tokenUpdateResult.getExpiresAt();
+                            tokenMap.put(OAUTH2_EXPIRES_AT, expiresAt > 0L ? Long.toString(expiresAt) : StringUtil.EMPTY);
+                            writer.write(tokenMap);
+                        });
+                oauth2Authentication.setRefreshMargin(Long.parseLong(
+                        paramMap.getAsString(OAUTH2_REFRESH_MARGIN, Long.toString(OAuth2Authentication.DEFAULT_REFRESH_MARGIN))));
+                authentication = oauth2Authentication;
+
+                final boolean isCloud = Boolean.parseBoolean(paramMap.getAsString(IS_CLOUD, "true"));
+                if (isCloud) {
+                    endpointStrategy = new CloudOAuth2EndpointStrategy(home, product, authentication);
+                } else {
+                    endpointStrategy = new DefaultEndpointStrategy(home);
+                }
+                break;
+            }
+            default: {
+                throw new AtlassianDataStoreException(AUTH_TYPE_PARAM + " is empty or invalid.");
+            }
+            }
 
-        final String authType = getAuthType(paramMap);
-        switch (authType) {
-        case BASIC: {
-            logger.info("Setup basic authentication");
-            final String username = getBasicUsername(paramMap);
-            final String password = getBasicPass(paramMap);
-            if (username.isEmpty() || password.isEmpty()) {
-                throw new AtlassianDataStoreException(
-                        "parameter \"" + BASIC_USERNAME_PARAM + "\" and \"" + BASIC_PASS_PARAM + " required for Basic authentication.");
+            logger.info("EndpointStrategy: {}", endpointStrategy.getClass().getName());
+
+            final String httpProxyHost = getProxyHost(paramMap);
+            final String httpProxyPort = getProxyPort(paramMap);
+            if (!httpProxyHost.isEmpty()) {
+                if (httpProxyPort.isEmpty()) {
+                    throw new AtlassianDataStoreException(PROXY_PORT_PARAM + " required.");
+                }
+                try {
+                    final int port = Integer.parseInt(httpProxyPort);
+                    authentication.setHttpProxy(httpProxyHost, port);
+                } catch (final NumberFormatException e) {
+                    throw new AtlassianDataStoreException("parameter " + "'" + PROXY_PORT_PARAM + "' invalid.", e);
+                }
             }
-            authentication = new BasicAuthentication(username, password);
-            endpointStrategy = new DefaultEndpointStrategy(home);
-            break;
-        }
-        case OAUTH: {
-            logger.info("Setup oauth1 authentication");
-            final String consumerKey = getConsumerKey(paramMap);
-            final String privateKey = getPrivateKey(paramMap);
-            final String verifier = getSecret(paramMap);
-            final String accessToken = getAccessToken(paramMap);
-            if (consumerKey.isEmpty() || privateKey.isEmpty() || verifier.isEmpty() || accessToken.isEmpty()) {
-                throw new AtlassianDataStoreException("parameter \"" + CONSUMER_KEY_PARAM + "\", \"" + PRIVATE_KEY_PARAM + "\", \""
-                        + SECRET_PARAM + "\" and \"" + ACCESS_TOKEN_PARAM + "\" required for OAuth authentication.");
+
+            if (paramMap.containsKey(HTTP_CONNECTION_TIMEOUT)) {
+                connectionTimeout = Integer.parseInt(paramMap.getAsString(HTTP_CONNECTION_TIMEOUT));
             }
-            authentication = new OAuthAuthentication(consumerKey, privateKey, accessToken, verifier);
-            endpointStrategy = new DefaultEndpointStrategy(home);
-            break;
-        }
-        case OAUTH2: {
-            logger.info("Setup oauth2 authentication");
-            final String accessToken = paramMap.getAsString(OAUTH2_ACCESS_TOKEN, StringUtil.EMPTY);
-            final String refreshToken = paramMap.getAsString(OAUTH2_REFRESH_TOKEN, StringUtil.EMPTY);
-            final String clientId = paramMap.getAsString(OAUTH2_CLIENT_ID, StringUtil.EMPTY);
-            final String clientSecret = paramMap.getAsString(OAUTH2_CLIENT_SECRET, StringUtil.EMPTY);
-            final String tokenUrl = paramMap.getAsString(OAUTH2_TOKEN_URL, OAuth2Authentication.DEFAULT_TOKEN_URL);
-
-            if (accessToken.isEmpty() || clientId.isEmpty() || clientSecret.isEmpty()) {
-                throw new AtlassianDataStoreException("Parameters required for OAuth2 are missing.");
+            if (paramMap.containsKey(HTTP_READ_TIMEOUT)) {
+                readTimeout = Integer.parseInt(paramMap.getAsString(HTTP_READ_TIMEOUT));
             }
-            authentication = new OAuth2Authentication(accessToken, refreshToken, clientId, clientSecret, tokenUrl, (tokenUpdateResult) -> {
-                // Process for updating DataConfig by refresh token.
-                final String paramStr = dataConfig.getHandlerParameterMap().entrySet().stream().map(e -> {
-                    String value;
-                    if (OAUTH2_ACCESS_TOKEN.equals(e.getKey())) {
-                        value = tokenUpdateResult.getAccessToken();
-                    } else if (OAUTH2_REFRESH_TOKEN.equals(e.getKey())) {
-                        value = tokenUpdateResult.getRefreshToken();
-                    } else {
-                        value = e.getValue();
-                    }
-                    if (value != null) {
-                        // Escape value.
-                        value = value.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r");
-                    } else {
-                        value = StringUtil.EMPTY;
-                    }
-                    return e.getKey() + "=" + value;
-                }).collect(Collectors.joining("\n"));
-
-                dataConfig.setHandlerParameter(paramStr);
-                ComponentUtil.getComponent(DataConfigBhv.class).update(dataConfig);
-                logger.info("Updated DataConfig: {}", dataConfig.getId());
-            });
-
-            final boolean isCloud = Boolean.parseBoolean(paramMap.getAsString(IS_CLOUD, "true"));
-            if (isCloud) {
-                endpointStrategy = new CloudOAuth2EndpointStrategy(home, product, authentication);
-            } else {
-                endpointStrategy = new DefaultEndpointStrategy(home);
+            maxConcurrentRequests = Integer.parseInt(paramMap.getAsString(MAX_CONCURRENT_REQUESTS, "0"));
+            transport = createTransport(paramMap);
+            rateLimiter = createRateLimiter(paramMap);
+            maxRetries = Integer.parseInt(paramMap.getAsString(RATE_LIMIT_MAX_RETRIES, "5"));
+
+            // the token is refreshed in background after the proxy is set
+            if (authentication instanceof OAuth2Authentication oauth2Authentication) {
+                oauth2Authentication.startRefresh(getOAuth2ExpiresAt(paramMap));
             }
-            break;
+        } catch (final RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates the rate limiter on the throttling state shared by the clients accessing the host of the application.
+     * The rate bounds and the backoff of this client are applied on the shared state.
+     * The rate starts at the maximum rate and is decreased only when the server throttles requests.
+     *
+     * @param paramMap the parameter map
+     * @return the rate limiter, or null if the rate limit is disabled
+     */
+    protected RateLimiter createRateLimiter(final DataStoreParams paramMap) {
+        if (!Boolean.parseBoolean(paramMap.getAsString(RATE_LIMIT, "false"))) {
+            return null;
         }
-        default: {
-            throw new AtlassianDataStoreException(AUTH_TYPE_PARAM + " is empty or invalid.");
+        final String maxRate = paramMap.getAsString(RATE_LIMIT_MAX_RATE, "100");
+        final double initialRate = Double.parseDouble(paramMap.getAsString(RATE_LIMIT_INITIAL_RATE, maxRate));
+        final double minRate = Double.parseDouble(paramMap.getAsString(RATE_LIMIT_MIN_RATE, "0.1"));
+        final long maxBackoff = Long.parseLong(paramMap.getAsString(RATE_LIMIT_MAX_BACKOFF, "60000"));
+        final String home = getHome();
+        final String authority = URI.create(home).getAuthority();
+        return RateLimiter.getInstance(authority != null ? authority : home, initialRate, minRate, Double.parseDouble(maxRate),
+                RATE_LIMIT_BASE_BACKOFF, maxBackoff);
+    }
+
+    /**
+     * Creates the transport sending requests of this client.
+     *
+     * @param paramMap the parameter map
+     * @return the transport
+     */
+    protected HttpTransport createTransport(final DataStoreParams paramMap) {
+        final String transportType = paramMap.getAsString(HTTP_TRANSPORT, HTTP_TRANSPORT_HTTPCLIENT);
+        final AbstractHttpTransport httpTransport;
+        switch (transportType) {
+        case HTTP_TRANSPORT_HTTPCLIENT: {
+            final int maxConnectionsPerRoute = Integer.parseInt(paramMap.getAsString(MAX_CONNECTIONS_PER_ROUTE, "20"));
+            logger.info("HTTP transport: {}, maxConnectionsPerRoute: {}", transportType, maxConnectionsPerRoute);
+            httpTransport = new HttpClientTransport(connectionTimeout, readTimeout, authentication.getHttpProxy(), maxConnectionsPerRoute);
+            break;
         }
+        case HTTP_TRANSPORT_CURL:
+            logger.info("HTTP transport: {}", transportType);
+            httpTransport = new CurlTransport(connectionTimeout, readTimeout, authentication.getHttpProxy());
+            break;
+        default:
+            throw new AtlassianDataStoreException(HTTP_TRANSPORT + " is invalid: " + transportType);
         }
+        httpTransport.setCompression(Boolean.parseBoolean(paramMap.getAsString(HTTP_COMPRESSION, "true")));
+        return httpTransport;
+    }
 
-        logger.info("EndpointStrategy: {}", endpointStrategy.getClass().getName());
+    /**
+     * Gets the counters of the responses received by this client.
+     *
+     * @return the transfer stats, or null if the client is closed
+     */
+    public TransferStats getTransferStats() {
+        return transport != null ? transport.getTransferStats() : null;
+    }
 
-        final String httpProxyHost = getProxyHost(paramMap);
-        final String httpProxyPort = getProxyPort(paramMap);
-        if (!httpProxyHost.isEmpty()) {
-            if (httpProxyPort.isEmpty()) {
-                throw new AtlassianDataStoreException(PROXY_PORT_PARAM + " required.");
-            }
-            try {
-                final int port = Integer.parseInt(httpProxyPort);
-                authentication.setHttpProxy(httpProxyHost, port);
-            } catch (final NumberFormatException e) {
-                throw new AtlassianDataStoreException("parameter " + "'" + PROXY_PORT_PARAM + "' invalid.", e);
-            }
+    /**
+     * Logs the transfer stats and releases the transport and the background token refresh of this client.
+     * Refreshed tokens not stored yet are stored into the DataConfig.
+     */
+    @Override
+    public void close() {
+        if (transport != null) {
+            final TransferStats stats = transport.getTransferStats();
+            logger.info("Received {} responses ({} compressed): {} bytes transferred, {} bytes decoded, {} bytes saved",
+                    stats.getResponses(), stats.getCompressedResponses(), stats.getWireBytes(), stats.getContentBytes(),
+                    stats.getSavedBytes());
+            transport.close();
+            transport = null;
         }
-
-        if (paramMap.containsKey(HTTP_CONNECTION_TIMEOUT)) {
-            connectionTimeout = Integer.parseInt(paramMap.getAsString(HTTP_CONNECTION_TIMEOUT));
+        if (authentication instanceof OAuth2Authentication) {
+            ((OAuth2Authentication) authentication).close();
         }
-        if (paramMap.containsKey(HTTP_READ_TIMEOUT)) {
-            readTimeout = Integer.parseInt(paramMap.getAsString(HTTP_READ_TIMEOUT));
+        if (tokenWriter != null) {
+            tokenWriter.close();
+            tokenWriter = null;
         }
     }
 
@@ -228,9 +367,70 @@ public abstract class AtlassianClient {
         request.setApiUrl(getApiUrl());
         request.setConnectionTimeout(connectionTimeout);
         request.setReadTimeout(readTimeout);
+        request.setRequestSemaphore(getRequestSemaphore());
+        request.setTransport(transport);
+        request.setRateLimiter(rateLimiter);
+        request.setMaxRetries(maxRetries);
         return request;
     }
 
+    /**
+     * Gets the semaphore bounding concurrent requests, shared by the clients accessing the host of the application.
+     * The semaphore created first is used, and a different limit of a client created later is logged and ignored.
+     *
+     * @return the semaphore, or null if concurrent requests are unlimited
+     */
+    protected Semaphore getRequestSemaphore() {
+        if (maxConcurrentRequests <= 0) {
+            return null;
+        }
+        final String home = getAppHome();
+        final String authority = home != null ? URI.create(home).getAuthority() : null;
+        final String host = authority != null ? authority : String.valueOf(home);
+        final HostSemaphore semaphore = REQUEST_SEMAPHORES.computeIfAbsent(host, k -> {
+            logger.info("Max concurrent requests to {}: {}", k, maxConcurrentRequests);
+            return new HostSemaphore(maxConcurrentRequests);
+        });
+        if (semaphore.getMaxPermits() != maxConcurrentRequests && semaphore.warned.compareAndSet(false, true)) {
+            logger.warn("{}={} is ignored for {}. {} concurrent requests are allowed by the client created first.",
+                    MAX_CONCURRENT_REQUESTS, maxConcurrentRequests, host, semaphore.getMaxPermits());
+        }
+        return semaphore;
+    }
+
+    /**
+     * Semaphore bounding concurrent requests to a host.
+     */
+    protected static class HostSemaphore extends Semaphore {
+
+        private static final long serialVersionUID = 1L;
+
+        /** The number of permits. */
+        protected final int maxPermits;
+
+        /** Whether a different limit has been logged. */
+        protected final AtomicBoolean warned = new AtomicBoolean();
+
+        /**
+         * Constructs a new fair semaphore.
+         *
+         * @param maxPermits the number of permits
+         */
+        protected HostSemaphore(final int maxPermits) {
+            super(maxPermits, true);
+            this.maxPermits = maxPermits;
+        }
+
+        /**
+         * Gets the number of permits.
+         *
+         * @return the number of permits
+         */
+        public int getMaxPermits() {
+            return maxPermits;
+        }
+    }
+
     /**
      * Gets the application home URL.
      *
@@ -287,6 +487,19 @@ public abstract class AtlassianClient {
         return paramMap.getAsString(ACCESS_TOKEN_PARAM, StringUtil.EMPTY);
     }
 
+    private long getOAuth2ExpiresAt(final DataStoreParams paramMap) {
+        final String value = paramMap.getAsString(OAUTH2_EXPIRES_AT, StringUtil.EMPTY).trim();
+        if (value.isEmpty()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (final NumberFormatException e) {
+            logger.warn("parameter \"{}\" is invalid: {}", OAUTH2_EXPIRES_AT, value);
+            return 0L;
+        }
+    }
+
     private String getAuthType(final DataStoreParams paramMap) {
         return paramMap.getAsString(AUTH_TYPE_PARAM, StringUtil.EMPTY);
     }
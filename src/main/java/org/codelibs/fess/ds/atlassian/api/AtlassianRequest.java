@@ -15,12 +15,17 @@
  */
 package org.codelibs.fess.ds.atlassian.api;
 
+import java.io.IOException;
 import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
 import java.util.function.Function;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.codelibs.core.exception.InterruptedRuntimeException;
 import org.codelibs.curl.Curl;
 import org.codelibs.curl.CurlRequest;
 import org.codelibs.curl.CurlResponse;
@@ -28,8 +33,11 @@ import org.codelibs.fess.ds.atlassian.AtlassianDataStoreException;
 import org.codelibs.fess.ds.atlassian.api.authentication.AuthType;
 import org.codelibs.fess.ds.atlassian.api.authentication.Authentication;
 import org.codelibs.fess.ds.atlassian.api.authentication.OAuth2Authentication;
+import org.codelibs.fess.ds.atlassian.api.transport.HttpTransport;
 import org.codelibs.fess.ds.atlassian.api.util.UrlUtil;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import net.minidev.json.JSONObject;
@@ -77,6 +85,16 @@ public abstract class AtlassianRequest {
     protected Integer connectionTimeout;
     /** HTTP read timeout in milliseconds. */
     protected Integer readTimeout;
+    /** Semaphore bounding concurrent requests, or null if unlimited. */
+    protected Semaphore requestSemaphore;
+    /** Transport sending this request, or null to send it with curl. */
+    protected HttpTransport transport;
+    /** Rate limiter of the host, or null if unlimited. */
+    protected RateLimiter rateLimiter;
+    /** Maximum number of retries of a throttled request. */
+    protected int maxRetries;
+    /** Maximum length of the response body, or a negative value for unlimited. */
+    protected long maxContentLength = -1L;
 
     /**
      * Gets the application home URL.
@@ -143,24 +161,83 @@ public abstract class AtlassianRequest {
      */
     public CurlResponse getCurlResponse(final Function<String, CurlRequest> method, final String requestMethod) {
         try {
-            CurlResponse response = doExecute(method, requestMethod);
-            if (response.getHttpStatusCode() == 401 && authentication.getAuthType() == AuthType.OAUTH2) {
-                try {
-                    response.close();
-                } catch (Exception e) {
-                    logger.warn("Failed to close response.", e);
-                }
+            final String accessToken =
+                    authentication.getAuthType() == AuthType.OAUTH2 ? ((OAuth2Authentication) authentication).getAccessToken() : null;
+            CurlResponse response = executeWithRetry(method, requestMethod);
+            if (response.getHttpStatusCode() == 401 && accessToken != null) {
+                closeQuietly(response);
 
-                // Refresh token
-                ((OAuth2Authentication) authentication).refreshAccessToken();
-                response = doExecute(method, requestMethod);
+                // Refresh token unless another request has already refreshed it
+                ((OAuth2Authentication) authentication).refreshAccessToken(accessToken);
+                response = executeWithRetry(method, requestMethod);
             }
             return response;
+        } catch (final InterruptedException e) {
+            throw new InterruptedRuntimeException(e);
+        } catch (final InterruptedRuntimeException e) {
+            throw e;
         } catch (final Exception e) {
             throw new AtlassianDataStoreException("Failed to access " + getURL(), e);
         }
     }
 
+    private CurlResponse executeWithRetry(final Function<String, CurlRequest> method, final String requestMethod) throws Exception {
+        for (int retries = 0;; retries++) {
+            if (rateLimiter == null) {
+                return executeWithPermit(method, requestMethod);
+            }
+            rateLimiter.acquire();
+            final CurlResponse response = executeWithPermit(method, requestMethod);
+            final int statusCode = response.getHttpStatusCode();
+            final long delay = rateLimiter.record(statusCode, name -> getHeaderValue(response, name));
+            if (!RateLimiter.isThrottled(statusCode) || retries >= maxRetries) {
+                return response;
+            }
+            closeQuietly(response);
+            logger.info("Retrying {} in {} ms. retries: {}/{}", getURL(), delay, retries + 1, maxRetries);
+        }
+    }
+
+    private void closeQuietly(final CurlResponse response) {
+        try {
+            response.close();
+        } catch (final Exception e) {
+            logger.warn("Failed to close response.", e);
+        }
+    }
+
+    /**
+     * Gets the first value of a response header ignoring the case of the name.
+     *
+     * @param response the HTTP response
+     * @param name the header name
+     * @return the header value, or null if not present
+     */
+    protected static String getHeaderValue(final CurlResponse response, final String name) {
+        final Map<String, List<String>> headers = response.getHeaders();
+        if (headers == null) {
+            return null;
+        }
+        for (final Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (name.equalsIgnoreCase(entry.getKey()) && entry.getValue() != null && !entry.getValue().isEmpty()) {
+                return entry.getValue().get(0);
+            }
+        }
+        return null;
+    }
+
+    private CurlResponse executeWithPermit(final Function<String, CurlRequest> method, final String requestMethod) throws Exception {
+        if (requestSemaphore == null) {
+            return doExecute(method, requestMethod);
+        }
+        requestSemaphore.acquire();
+        try {
+            return doExecute(method, requestMethod);
+        } finally {
+            requestSemaphore.release();
+        }
+    }
+
     private CurlResponse doExecute(final Function<String, CurlRequest> method, final String requestMethod) throws Exception {
         final StringBuilder urlBuf = new StringBuilder();
         urlBuf.append(getURL());
@@ -170,12 +247,18 @@ public abstract class AtlassianRequest {
             urlBuf.append('?').append(queryParams);
         }
 
-        final CurlRequest request = authentication.getCurlRequest(method, requestMethod, new URI(urlBuf.toString()).toURL());
-
+        final URI uri = new URI(urlBuf.toString());
         final Map<String, Object> bodyMap = getBodyMap();
-        if (bodyMap != null) {
-            final String source = new JSONObject(bodyMap).toJSONString();
-            request.body(source);
+        final String body = bodyMap != null ? new JSONObject(bodyMap).toJSONString() : null;
+
+        if (transport != null) {
+            final Map<String, String> headers = authentication.getHeaders(requestMethod, uri);
+            return transport.execute(requestMethod, uri, headers, body, maxContentLength);
+        }
+
+        final CurlRequest request = authentication.getCurlRequest(method, requestMethod, uri.toURL());
+        if (body != null) {
+            request.body(body);
         }
 
         request.onConnect((req, con) -> {
@@ -193,6 +276,59 @@ public abstract class AtlassianRequest {
         return request.execute();
     }
 
+    /**
+     * Reads a JSON object and passes each element of the specified array field to the element reader
+     * without building a JSON tree or objects of the whole document.
+     * When the element reader is called, the parser is positioned at the start of the element,
+     * and the element reader must consume the whole element.
+     *
+     * @param parser the JSON parser positioned before the root object
+     * @param fieldName the name of the array field to stream
+     * @param elementReader the reader called for each element of the array
+     * @return the other top-level fields of the object, or an empty map if the content is empty
+     * @throws IOException if the JSON cannot be read
+     */
+    protected static Map<String, Object> readArrayField(final JsonParser parser, final String fieldName, final ElementReader elementReader)
+            throws IOException {
+        final Map<String, Object> fieldMap = new LinkedHashMap<>();
+        final JsonToken first = parser.nextToken();
+        if (first == null) {
+            return fieldMap;
+        }
+        if (first != JsonToken.START_OBJECT) {
+            throw new IOException("Expected an object, but was " + first);
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.currentName();
+            final JsonToken token = parser.nextToken();
+            if (fieldName.equals(name) && token == JsonToken.START_ARRAY) {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    elementReader.read(parser);
+                }
+            } else if (token == JsonToken.VALUE_NULL) {
+                fieldMap.put(name, null);
+            } else {
+                fieldMap.put(name, parser.readValueAs(Object.class));
+            }
+        }
+        return fieldMap;
+    }
+
+    /**
+     * Reader for an element of a streamed JSON array.
+     */
+    @FunctionalInterface
+    protected interface ElementReader {
+
+        /**
+         * Reads the element at the current position of the parser.
+         *
+         * @param parser the JSON parser positioned at the start of the element
+         * @throws IOException if the element cannot be read
+         */
+        void read(JsonParser parser) throws IOException;
+    }
+
     /**
      * Sets the authentication for this request.
      *
@@ -229,4 +365,39 @@ public abstract class AtlassianRequest {
         this.readTimeout = readTimeout;
     }
 
+    /**
+     * Sets the semaphore bounding concurrent requests.
+     *
+     * @param requestSemaphore the semaphore, or null if unlimited
+     */
+    public void setRequestSemaphore(final Semaphore requestSemaphore) {
+        this.requestSemaphore = requestSemaphore;
+    }
+
+    /**
+     * Sets the transport sending this request.
+     *
+     * @param transport the transport, or null to send this request with curl
+     */
+    public void setTransport(final HttpTransport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Sets the rate limiter of the host.
+     *
+     * @param rateLimiter the rate limiter, or null if unlimited
+     */
+    public void setRateLimiter(final RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Sets the maximum number of retries of a request throttled with 429 or 503.
+     *
+     * @param maxRetries the maximum number of retries
+     */
+    public void setMaxRetries(final int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.codelibs.curl.CurlException;
+import org.codelibs.curl.CurlResponse;
+import org.codelibs.fess.ds.atlassian.AtlassianDataStoreException;
+
+/**
+ * Request class for downloading a file such as an attachment.
+ * The response body is passed to a reader as a stream and is not kept as a string.
+ */
+public class DownloadRequest extends AtlassianRequest {
+
+    private final String link;
+
+    /**
+     * Constructs a request to download the file of the link.
+     *
+     * @param link the absolute URL, or the path relative to the API URL
+     */
+    public DownloadRequest(final String link) {
+        this.link = link;
+    }
+
+    /**
+     * Sets the maximum size of the file to download.
+     *
+     * @param maxContentLength the maximum size in bytes, or a negative value for unlimited
+     * @return this request instance for method chaining
+     */
+    public DownloadRequest maxContentLength(final long maxContentLength) {
+        this.maxContentLength = maxContentLength;
+        return this;
+    }
+
+    /**
+     * Executes the request and passes the downloaded file to the reader.
+     *
+     * @param <T> the type of the result
+     * @param reader the reader of the downloaded file
+     * @return the result of the reader
+     * @throws AtlassianDataStoreException if the request fails
+     */
+    public <T> T execute(final ContentReader<T> reader) {
+        try (CurlResponse response = getCurlResponse(GET)) {
+            if (response.getHttpStatusCode() != 200) {
+                throw new CurlException("HTTP Status : " + response.getHttpStatusCode());
+            }
+            try (InputStream in = response.getContentAsStream()) {
+                return reader.read(in);
+            }
+        } catch (final AtlassianDataStoreException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new AtlassianDataStoreException("Failed to access " + this, e);
+        }
+    }
+
+    @Override
+    public String getURL() {
+        if (link.startsWith("http://") || link.startsWith("https://")) {
+            return link;
+        }
+        return apiUrl + link;
+    }
+
+    @Override
+    public String toString() {
+        return "DownloadRequest [link=" + link + ", maxContentLength=" + maxContentLength + "]";
+    }
+
+    /**
+     * Reader of a downloaded file.
+     *
+     * @param <T> the type of the result
+     */
+    @FunctionalInterface
+    public interface ContentReader<T> {
+
+        /**
+         * Reads the downloaded file.
+         *
+         * @param in the content of the file
+         * @return the result
+         * @throws IOException if the file cannot be read
+         */
+        T read(InputStream in) throws IOException;
+    }
+}
@@ -0,0 +1,435 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian.api;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codelibs.core.lang.StringUtil;
+
+/**
+ * Adaptive token bucket limiting the request rate to a host.
+ * The rate is increased additively while requests succeed and decreased multiplicatively when the server
+ * responds with 429 or 503 or reports that the rate limit is nearly reached.
+ * Requests are blocked until the time given by the Retry-After or X-RateLimit-Reset header,
+ * or for an exponential backoff with jitter if the server does not tell when to retry.
+ * The throttling state is shared by all clients accessing the same host,
+ * while the rate bounds and the backoff are applied by each limiter with its own settings.
+ */
+public class RateLimiter {
+
+    private static final Logger logger = LogManager.getLogger(RateLimiter.class);
+
+    /** The throttling states by host. */
+    protected static final Map<String, State> STATES = new ConcurrentHashMap<>();
+
+    /** Time after which the state of a host without requests is discarded in nanoseconds. */
+    protected static final long STATE_IDLE_TIMEOUT = TimeUnit.HOURS.toNanos(1);
+
+    /** Nanoseconds per second. */
+    protected static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /** Header giving the time to wait before retrying. */
+    protected static final String RETRY_AFTER = "Retry-After";
+
+    /** Header giving the number of requests remaining in the current window. */
+    protected static final String RATE_LIMIT_REMAINING = "X-RateLimit-Remaining";
+
+    /** Header giving the time when the current window is reset. */
+    protected static final String RATE_LIMIT_RESET = "X-RateLimit-Reset";
+
+    /** Header telling that less than 20% of the rate limit remains. */
+    protected static final String RATE_LIMIT_NEAR_LIMIT = "X-RateLimit-NearLimit";
+
+    /** Factor applied to the rate when the server throttles requests. */
+    protected static final double DECREASE_FACTOR = 0.5;
+
+    /** Factor applied to the rate when the rate limit is nearly reached. */
+    protected static final double NEAR_LIMIT_FACTOR = 0.8;
+
+    /** The minimum rate in requests per second. */
+    protected final double minRate;
+
+    /** The maximum rate in requests per second. */
+    protected final double maxRate;
+
+    /** The base of the exponential backoff in milliseconds. */
+    protected final long baseBackoff;
+
+    /** The maximum time to wait before retrying in milliseconds. */
+    protected final long maxBackoff;
+
+    /** The throttling state, which may be shared with other limiters. */
+    protected final State state;
+
+    /**
+     * Constructs a new rate limiter.
+     *
+     * @param initialRate the initial rate in requests per second
+     * @param minRate the minimum rate in requests per second
+     * @param maxRate the maximum rate in requests per second
+     * @param baseBackoff the base of the exponential backoff in milliseconds
+     * @param maxBackoff the maximum time to wait before retrying in milliseconds
+     */
+    public RateLimiter(final double initialRate, final double minRate, final double maxRate, final long baseBackoff,
+            final long maxBackoff) {
+        this(null, initialRate, minRate, maxRate, baseBackoff, maxBackoff);
+    }
+
+    /**
+     * Constructs a new rate limiter on the throttling state.
+     *
+     * @param state the throttling state, or null to create a new one
+     * @param initialRate the initial rate in requests per second, used if the state is created
+     * @param minRate the minimum rate in requests per second
+     * @param maxRate the maximum rate in requests per second
+     * @param baseBackoff the base of the exponential backoff in milliseconds
+     * @param maxBackoff the maximum time to wait before retrying in milliseconds
+     */
+    protected RateLimiter(final State state, final double initialRate, final double minRate, final double maxRate,
+            final long baseBackoff, final long maxBackoff) {
+        if (minRate <= 0 || maxRate < minRate) {
+            throw new IllegalArgumentException("Invalid rate: min=" + minRate + ", max=" + maxRate);
+        }
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.baseBackoff = baseBackoff;
+        this.maxBackoff = maxBackoff;
+        this.state = state != null ? state : new State(Math.min(maxRate, Math.max(minRate, initialRate)), nanoTime());
+    }
+
+    /**
+     * Gets a limiter on the throttling state shared by the clients accessing the host.
+     * The state is created with the initial rate if it does not exist, and the states of hosts
+     * without requests for {@link #STATE_IDLE_TIMEOUT} are discarded.
+     *
+     * @param host the host
+     * @param initialRate the initial rate in requests per second
+     * @param minRate the minimum rate in requests per second
+     * @param maxRate the maximum rate in requests per second
+     * @param baseBackoff the base of the exponential backoff in milliseconds
+     * @param maxBackoff the maximum time to wait before retrying in milliseconds
+     * @return the rate limiter
+     */
+    public static RateLimiter getInstance(final String host, final double initialRate, final double minRate, final double maxRate,
+            final long baseBackoff, final long maxBackoff) {
+        final long now = System.nanoTime();
+        STATES.entrySet().removeIf(e -> {
+            if (e.getValue().isIdle(now)) {
+                logger.info("Discarded rate limit state for {}.", e.getKey());
+                return true;
+            }
+            return false;
+        });
+        final State state = STATES.computeIfAbsent(host, k -> {
+            final State created = new State(Math.min(maxRate, Math.max(minRate, initialRate)), now);
+            logger.info("Created rate limit state for {}: rate={}/s", k, created.rate);
+            return created;
+        });
+        final RateLimiter limiter = new RateLimiter(state, initialRate, minRate, maxRate, baseBackoff, maxBackoff);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Created {} for {}", limiter, host);
+        }
+        return limiter;
+    }
+
+    /**
+     * Waits until a request can be sent.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        final long waitNanos = reserve(nanoTime());
+        if (waitNanos > 0) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Waiting {} ms for rate limit.", TimeUnit.NANOSECONDS.toMillis(waitNanos));
+            }
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Reserves a permit and returns the time to wait for it.
+     *
+     * @param now the current time in nanoseconds
+     * @return the time to wait in nanoseconds
+     */
+    protected long reserve(final long now) {
+        synchronized (state) {
+            state.lastUsedNanos = now;
+            final double rate = getRate();
+            if (now - state.nextFreeNanos > 0) {
+                // a permit is stored for each interval without requests, up to one second of requests
+                state.storedPermits =
+                        Math.min(Math.max(1.0, rate), state.storedPermits + (now - state.nextFreeNanos) * rate / NANOS_PER_SECOND);
+                state.nextFreeNanos = now;
+            }
+            if (state.blockedUntilNanos - state.nextFreeNanos > 0) {
+                state.nextFreeNanos = state.blockedUntilNanos;
+                state.storedPermits = 0;
+            }
+            final long ticket = state.nextFreeNanos;
+            final double fromStored = Math.min(1.0, state.storedPermits);
+            state.storedPermits -= fromStored;
+            state.nextFreeNanos += (long) ((1.0 - fromStored) * NANOS_PER_SECOND / rate);
+            return Math.max(0L, ticket - now);
+        }
+    }
+
+    /**
+     * Adjusts the rate by the response of a request.
+     *
+     * @param statusCode the HTTP status code
+     * @param headers the function returning the value of a response header, or null if not present
+     * @return the time to wait before retrying in milliseconds if the request was throttled, otherwise 0
+     */
+    public long record(final int statusCode, final Function<String, String> headers) {
+        final long now = nanoTime();
+        if (isThrottled(statusCode)) {
+            Long delay = parseRetryAfter(headers.apply(RETRY_AFTER), now);
+            if (delay == null) {
+                delay = parseReset(headers.apply(RATE_LIMIT_RESET));
+            }
+            synchronized (state) {
+                state.throttledCount++;
+                if (delay == null) {
+                    delay = getBackoff(state.throttledCount);
+                }
+                delay = Math.min(delay, maxBackoff);
+                decrease(now, DECREASE_FACTOR);
+                state.blockedUntilNanos = Math.max(state.blockedUntilNanos, now + TimeUnit.MILLISECONDS.toNanos(delay));
+            }
+            logger.warn("Throttled by the server (HTTP {}). Waiting {} ms. rate={}/s", statusCode, delay, getRate());
+            return delay;
+        }
+        if (statusCode >= 400) {
+            return 0L;
+        }
+        synchronized (state) {
+            state.throttledCount = 0;
+            final String remaining = headers.apply(RATE_LIMIT_REMAINING);
+            if (remaining != null && "0".equals(remaining.trim())) {
+                final Long delay = parseReset(headers.apply(RATE_LIMIT_RESET));
+                if (delay != null) {
+                    state.blockedUntilNanos =
+                            Math.max(state.blockedUntilNanos, now + TimeUnit.MILLISECONDS.toNanos(Math.min(delay, maxBackoff)));
+                }
+                decrease(now, DECREASE_FACTOR);
+            } else if (isNearLimit(headers.apply(RATE_LIMIT_NEAR_LIMIT))) {
+                decrease(now, NEAR_LIMIT_FACTOR);
+            } else {
+                // additive increase: the rate grows by one request per second for every second of successful requests
+                final double rate = getRate();
+                state.rate = Math.min(maxRate, rate + 1.0 / rate);
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Checks if the status code tells that the request was throttled.
+     *
+     * @param statusCode the HTTP status code
+     * @return true if the request should be retried later
+     */
+    public static boolean isThrottled(final int statusCode) {
+        return statusCode == 429 || statusCode == 503;
+    }
+
+    /**
+     * Checks if the X-RateLimit-NearLimit header tells that the rate limit is nearly reached.
+     *
+     * @param value the header value
+     * @return true if the rate limit is nearly reached
+     */
+    protected boolean isNearLimit(final String value) {
+        return value != null && Boolean.parseBoolean(value.trim());
+    }
+
+    /**
+     * Decreases the rate.
+     * The rate is decreased at most once per second, so that responses to concurrent requests throttled together
+     * do not decrease the rate many times.
+     *
+     * @param now the current time in nanoseconds
+     * @param factor the factor applied to the rate
+     */
+    protected void decrease(final long now, final double factor) {
+        synchronized (state) {
+            if (now - state.lastDecreaseNanos < TimeUnit.SECONDS.toNanos(1)) {
+                return;
+            }
+            state.lastDecreaseNanos = now;
+            state.rate = Math.max(minRate, getRate() * factor);
+        }
+    }
+
+    /**
+     * Gets the exponential backoff with full jitter.
+     *
+     * @param attempts the number of consecutive throttled responses
+     * @return the time to wait in milliseconds
+     */
+    protected long getBackoff(final int attempts) {
+        final long ceiling = Math.min(maxBackoff, baseBackoff << Math.min(attempts - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+
+    /**
+     * Parses the Retry-After header given in seconds or as an HTTP date.
+     *
+     * @param value the header value
+     * @param now the current time in nanoseconds
+     * @return the time to wait in milliseconds, or null if not available
+     */
+    protected Long parseRetryAfter(final String value, final long now) {
+        if (StringUtil.isBlank(value)) {
+            return null;
+        }
+        final String trimmed = value.trim();
+        try {
+            return Math.max(0L, (long) (Double.parseDouble(trimmed) * 1000));
+        } catch (final NumberFormatException e) {
+            // HTTP date
+        }
+        try {
+            return Math.max(0L, ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli()
+                    - currentTimeMillis());
+        } catch (final DateTimeParseException e) {
+            logger.warn("Invalid {}: {}", RETRY_AFTER, value);
+            return null;
+        }
+    }
+
+    /**
+     * Parses the X-RateLimit-Reset header given as an ISO-8601 timestamp or as epoch seconds.
+     *
+     * @param value the header value
+     * @return the time to wait in milliseconds, or null if not available
+     */
+    protected Long parseReset(final String value) {
+        if (StringUtil.isBlank(value)) {
+            return null;
+        }
+        final String trimmed = value.trim();
+        try {
+            return Math.max(0L, Long.parseLong(trimmed) * 1000 - currentTimeMillis());
+        } catch (final NumberFormatException e) {
+            // ISO-8601 timestamp
+        }
+        try {
+            return Math.max(0L, Instant.parse(trimmed).toEpochMilli() - currentTimeMillis());
+        } catch (final DateTimeParseException e) {
+            logger.warn("Invalid {}: {}", RATE_LIMIT_RESET, value);
+            return null;
+        }
+    }
+
+    /**
+     * Gets the current rate bounded by the settings of this limiter.
+     *
+     * @return the rate in requests per second
+     */
+    public double getRate() {
+        synchronized (state) {
+            return Math.min(maxRate, Math.max(minRate, state.rate));
+        }
+    }
+
+    /**
+     * Gets the current time for rate calculation.
+     *
+     * @return the current time in nanoseconds
+     */
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Gets the current wall-clock time for header values.
+     *
+     * @return the current time in milliseconds
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimiter [rate=" + getRate() + ", minRate=" + minRate + ", maxRate=" + maxRate + ", baseBackoff=" + baseBackoff
+                + ", maxBackoff=" + maxBackoff + "]";
+    }
+
+    /**
+     * Throttling state of a host shared by the limiters of the clients accessing it.
+     */
+    protected static class State {
+
+        /** The current rate in requests per second. */
+        protected double rate;
+
+        /** The number of permits stored while no request is made. */
+        protected double storedPermits;
+
+        /** The time when the next permit is available in nanoseconds. */
+        protected long nextFreeNanos;
+
+        /** The time until which requests are blocked in nanoseconds. */
+        protected long blockedUntilNanos;
+
+        /** The time when the rate was decreased last in nanoseconds. */
+        protected long lastDecreaseNanos;
+
+        /** The time when a permit was reserved last in nanoseconds. */
+        protected long lastUsedNanos;
+
+        /** The number of consecutive throttled responses. */
+        protected int throttledCount;
+
+        /**
+         * Constructs a new throttling state.
+         *
+         * @param rate the initial rate in requests per second
+         * @param now the current time in nanoseconds
+         */
+        protected State(final double rate, final long now) {
+            this.rate = rate;
+            nextFreeNanos = now;
+            blockedUntilNanos = now;
+            lastDecreaseNanos = now - TimeUnit.SECONDS.toNanos(1);
+            lastUsedNanos = now;
+        }
+
+        /**
+         * Checks if no request has been made for {@link #STATE_IDLE_TIMEOUT} and no request is blocked.
+         *
+         * @param now the current time in nanoseconds
+         * @return true if the state can be discarded
+         */
+        protected synchronized boolean isIdle(final long now) {
+            return now - lastUsedNanos > STATE_IDLE_TIMEOUT && now - blockedUntilNanos > 0;
+        }
+    }
+}
@@ -17,7 +17,10 @@ package org.codelibs.fess.ds.atlassian.api.authentication;
 
 import java.net.InetSocketAddress;
 import java.net.Proxy;
+import java.net.MalformedURLException;
+import java.net.URI;
 import java.net.URL;
+import java.util.Map;
 import java.util.function.Function;
 
 import org.codelibs.curl.CurlRequest;
@@ -34,8 +37,8 @@ public abstract class Authentication {
         // Default constructor
     }
 
-    /** HTTP proxy configuration. */
-    protected Proxy httpProxy;
+    /** HTTP proxy configuration, read by the background token refresh. */
+    protected volatile Proxy httpProxy;
 
     /**
      * Sets the HTTP proxy configuration.
@@ -47,6 +50,15 @@ public abstract class Authentication {
         this.httpProxy = new Proxy(Proxy.Type.HTTP, new InetSocketAddress(httpProxyHost, httpProxyPort));
     }
 
+    /**
+     * Gets the HTTP proxy configuration.
+     *
+     * @return the proxy, or null if not configured
+     */
+    public Proxy getHttpProxy() {
+        return httpProxy;
+    }
+
     /**
      * Creates an authenticated curl request.
      *
@@ -55,7 +67,38 @@ public abstract class Authentication {
      * @param url the target URL
      * @return the authenticated curl request
      */
-    public abstract CurlRequest getCurlRequest(final Function<String, CurlRequest> request, final String requestMethod, final URL url);
+    public CurlRequest getCurlRequest(final Function<String, CurlRequest> request, final String requestMethod, final URL url) {
+        final CurlRequest curlRequest = request.apply(url.toString());
+        getHeaders(requestMethod, url).forEach(curlRequest::header);
+
+        if (httpProxy != null) {
+            curlRequest.proxy(httpProxy);
+        }
+
+        return curlRequest;
+    }
+
+    /**
+     * Gets the headers authenticating a request.
+     *
+     * @param requestMethod the HTTP method
+     * @param url the target URL
+     * @return the headers by name
+     */
+    public abstract Map<String, String> getHeaders(final String requestMethod, final URL url);
+
+    /**
+     * Gets the headers authenticating a request.
+     * The URI is converted to a URL only by the authentications signing the request URL.
+     *
+     * @param requestMethod the HTTP method
+     * @param uri the target URI
+     * @return the headers by name
+     * @throws MalformedURLException if the URI cannot be converted to a URL
+     */
+    public Map<String, String> getHeaders(final String requestMethod, final URI uri) throws MalformedURLException {
+        return getHeaders(requestMethod, uri.toURL());
+    }
 
     /**
      * Returns the authentication type.
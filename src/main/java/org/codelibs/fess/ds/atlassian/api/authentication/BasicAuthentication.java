@@ -15,11 +15,11 @@
  */
 package org.codelibs.fess.ds.atlassian.api.authentication;
 
+import java.net.URI;
 import java.net.URL;
 import java.util.Base64;
-import java.util.function.Function;
-
-import org.codelibs.curl.CurlRequest;
+import java.util.Collections;
+import java.util.Map;
 
 /**
  * Basic authentication implementation using username and password.
@@ -43,14 +43,14 @@ public class BasicAuthentication extends Authentication {
     }
 
     @Override
-    public CurlRequest getCurlRequest(final Function<String, CurlRequest> method, final String requestMethod, final URL url) {
-        final CurlRequest request = method.apply(url.toString()).header("Authorization", "Basic " + encode(username + ":" + password));
-
-        if (httpProxy != null) {
-            request.proxy(httpProxy);
-        }
+    public Map<String, String> getHeaders(final String requestMethod, final URL url) {
+        return Collections.singletonMap("Authorization", "Basic " + encode(username + ":" + password));
+    }
 
-        return request;
+    @Override
+    public Map<String, String> getHeaders(final String requestMethod, final URI uri) {
+        // the headers do not depend on the URL
+        return getHeaders(requestMethod, (URL) null);
     }
 
     /**
@@ -15,12 +15,20 @@
  */
 package org.codelibs.fess.ds.atlassian.api.authentication;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.net.URI;
 import java.net.URL;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
-import java.util.function.Function;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -36,18 +44,24 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * OAuth2 authentication implementation for Atlassian API.
+ * The current token is published through an atomic reference, so requests read it without locking.
+ * When the expiration time of the token is known from the configuration or from expires_in of the token response,
+ * the token is refreshed in the background before it expires,
+ * and a refresh after a 401 response is performed only once for the concurrent requests rejected with the same token.
  */
-public class OAuth2Authentication extends Authentication {
+public class OAuth2Authentication extends Authentication implements Closeable {
     private static final Logger logger = LogManager.getLogger(OAuth2Authentication.class);
 
     /** The default token URL for Atlassian OAuth2. */
     public static final String DEFAULT_TOKEN_URL = "https://auth.atlassian.com/oauth/token";
+
+    /** The default time in milliseconds before the expiration at which the token is refreshed. */
+    public static final long DEFAULT_REFRESH_MARGIN = 60000L;
+
     private static final long MIN_REFRESH_INTERVAL = 3000;
 
-    /** The access token. */
-    protected String accessToken;
-    /** The refresh token. */
-    protected String refreshToken;
+    /** The current token. */
+    protected final AtomicReference<TokenState> tokenState;
     /** The client ID. */
     protected final String clientId;
     /** The client secret. */
@@ -56,7 +70,15 @@ public class OAuth2Authentication extends Authentication {
     protected final String tokenUrl;
     /** The callback for token updates. */
     protected final Consumer<TokenUpdateResult> tokenUpdateCallback;
-    private volatile long lastRefreshTime = 0;
+    /** The lock held while refreshing the token. */
+    protected final ReentrantLock refreshLock = new ReentrantLock();
+    /** The time in milliseconds before the expiration at which the token is refreshed, or a negative value to disable. */
+    protected long refreshMargin = DEFAULT_REFRESH_MARGIN;
+    /** The scheduler of proactive refreshes, created on the first scheduled refresh. */
+    protected ScheduledExecutorService refreshScheduler;
+    /** The next proactive refresh. */
+    protected ScheduledFuture<?> scheduledRefresh;
+    private volatile boolean closed;
 
     /**
      * Constructs a new OAuth2 authentication.
@@ -70,30 +92,38 @@ public class OAuth2Authentication extends Authentication {
      */
     public OAuth2Authentication(final String accessToken, final String refreshToken, final String clientId, final String clientSecret,
             final String tokenUrl, final Consumer<TokenUpdateResult> tokenUpdateCallback) {
-        this.accessToken = accessToken;
-        this.refreshToken = refreshToken;
+        this.tokenState = new AtomicReference<>(new TokenState(accessToken, refreshToken, 0L, 0L));
         this.clientId = clientId;
         this.clientSecret = clientSecret;
         this.tokenUrl = tokenUrl;
         this.tokenUpdateCallback = tokenUpdateCallback;
     }
 
-    @Override
-    public CurlRequest getCurlRequest(final Function<String, CurlRequest> method, final String requestMethod, final URL url) {
-        final CurlRequest request = method.apply(url.toString());
+    /**
+     * Sets the time before the expiration at which the token is refreshed in the background.
+     *
+     * @param refreshMargin the margin in milliseconds, or a negative value to refresh only after 401 responses
+     */
+    public void setRefreshMargin(final long refreshMargin) {
+        this.refreshMargin = refreshMargin;
+    }
 
+    @Override
+    public Map<String, String> getHeaders(final String requestMethod, final URL url) {
         if (logger.isDebugEnabled()) {
             logger.debug("Setting OAuth2 Authorization header.");
         }
 
-        request.header("Authorization", "Bearer " + accessToken);
-        request.header("Accept", "application/json");
-
-        if (httpProxy != null) {
-            request.proxy(httpProxy);
-        }
+        final Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Authorization", "Bearer " + tokenState.get().accessToken);
+        headers.put("Accept", "application/json");
+        return headers;
+    }
 
-        return request;
+    @Override
+    public Map<String, String> getHeaders(final String requestMethod, final URI uri) {
+        // the headers do not depend on the URL
+        return getHeaders(requestMethod, (URL) null);
     }
 
     @Override
@@ -103,26 +133,94 @@ public class OAuth2Authentication extends Authentication {
 
     /**
      * Refreshes the access token using the refresh token.
+     * The refresh is skipped if the token was refreshed recently.
      */
-    public synchronized void refreshAccessToken() {
-        final long currentTime = System.currentTimeMillis();
+    public void refreshAccessToken() {
+        refreshLock.lock();
+        try {
+            // Skip refreshing token if token was refreshed recently.
+            if (System.currentTimeMillis() - tokenState.get().refreshedAt < MIN_REFRESH_INTERVAL) {
+                logger.debug("Access token was refreshed recently. Skipping.");
+                return;
+            }
+            doRefreshAccessToken();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
 
-        // Skip refreshing token if token was refreshed recently.
-        if (currentTime - lastRefreshTime < MIN_REFRESH_INTERVAL) {
-            logger.debug("Access token was refreshed recently. Skipping.");
+    /**
+     * Refreshes the access token rejected by the server, such as with a 401 response.
+     * If another thread has already replaced the rejected token, the refresh is skipped,
+     * so concurrent requests rejected with the same token cause only one refresh.
+     *
+     * @param rejectedAccessToken the access token used by the rejected request
+     */
+    public void refreshAccessToken(final String rejectedAccessToken) {
+        if (isRefreshed(rejectedAccessToken)) {
             return;
         }
+        refreshLock.lock();
+        try {
+            if (isRefreshed(rejectedAccessToken)) {
+                return;
+            }
+            doRefreshAccessToken();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
 
-        if (StringUtil.isBlank(refreshToken)) {
+    private boolean isRefreshed(final String rejectedAccessToken) {
+        if (rejectedAccessToken != null && !rejectedAccessToken.equals(tokenState.get().accessToken)) {
+            logger.debug("Access token was already refreshed. Skipping.");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Requests a new token and publishes it. Must be called while holding the refresh lock.
+     */
+    protected void doRefreshAccessToken() {
+        final TokenState current = tokenState.get();
+        if (StringUtil.isBlank(current.refreshToken)) {
             throw new AtlassianDataStoreException("Refresh token is not available.");
         }
 
         final Map<String, String> params = new HashMap<>();
         params.put("grant_type", "refresh_token");
-        params.put("refresh_token", refreshToken);
+        params.put("refresh_token", current.refreshToken);
         params.put("client_id", clientId);
         params.put("client_secret", clientSecret);
 
+        final Map<String, String> tokenMap = requestToken(params);
+        final long now = System.currentTimeMillis();
+        final String newAccessToken = tokenMap.get("access_token");
+        final String newRefreshToken = tokenMap.get("refresh_token");
+        final long expiresAt = getExpiresAt(tokenMap.get("expires_in"), now);
+        final TokenState updated = new TokenState(StringUtil.isNotBlank(newAccessToken) ? newAccessToken : current.accessToken,
+                StringUtil.isNotBlank(newRefreshToken) ? newRefreshToken : current.refreshToken, expiresAt, now);
+        tokenState.set(updated);
+
+        if (expiresAt > 0L) {
+            logger.info("Refreshed access token successfully. It expires in {} ms.", expiresAt - now);
+        } else {
+            logger.info("Refreshed access token successfully.");
+        }
+
+        tokenUpdateCallback.accept(new TokenUpdateResult(updated.accessToken, updated.refreshToken, updated.expiresAt));
+        scheduleRefresh(updated);
+    }
+
+    /**
+     * Sends the token request to the token URL.
+     *
+     * @param params the parameters of the token request
+     * @return the token response
+     * @throws AtlassianDataStoreException if the token cannot be obtained
+     */
+    protected Map<String, String> requestToken(final Map<String, String> params) {
         final CurlRequest request = Curl.post(tokenUrl).header("Content-Type", "application/json");
 
         if (httpProxy != null) {
@@ -139,32 +237,118 @@ public class OAuth2Authentication extends Authentication {
 
         try (CurlResponse response = request.execute()) {
             if (response.getHttpStatusCode() == 200) {
-                final String content = response.getContentAsString();
-                final Map<String, String> tokenMap = parseJsonResponse(content);
-
-                final String newAccessToken = tokenMap.get("access_token");
-                if (StringUtil.isNotBlank(newAccessToken)) {
-                    this.accessToken = newAccessToken;
-                }
-
-                final String newRefreshToken = tokenMap.get("refresh_token");
-                if (StringUtil.isNotBlank(newRefreshToken)) {
-                    this.refreshToken = newRefreshToken;
-                }
-
-                logger.info("Refreshed access token successfully.");
-
-                this.lastRefreshTime = System.currentTimeMillis();
-                tokenUpdateCallback.accept(new TokenUpdateResult(this.accessToken, this.refreshToken));
-            } else {
-                throw new AtlassianDataStoreException("Failed to refresh access token. Status: " + response.getHttpStatusCode() + " Body: "
-                        + response.getContentAsString());
+                return parseJsonResponse(response.getContentAsString());
             }
+            throw new AtlassianDataStoreException(
+                    "Failed to refresh access token. Status: " + response.getHttpStatusCode() + " Body: " + response.getContentAsString());
         } catch (final CurlException | IOException e) {
             throw new AtlassianDataStoreException("Failed to refresh access token.", e);
         }
     }
 
+    /**
+     * Gets the expiration time of a token.
+     *
+     * @param expiresIn the expires_in value of the token response in seconds, or null
+     * @param now the current time in milliseconds
+     * @return the expiration time in milliseconds, or 0 if unknown
+     */
+    protected static long getExpiresAt(final String expiresIn, final long now) {
+        if (StringUtil.isBlank(expiresIn)) {
+            return 0L;
+        }
+        try {
+            final long seconds = Long.parseLong(expiresIn.trim());
+            return seconds > 0L ? now + seconds * 1000L : 0L;
+        } catch (final NumberFormatException e) {
+            logger.warn("Invalid expires_in: {}", expiresIn);
+            return 0L;
+        }
+    }
+
+    /**
+     * Starts the background refresh of the configured token.
+     * If the expiration time of the configured token is not known, such as when it was not stored with the token,
+     * the token is refreshed once in the background, and the next refresh is scheduled by the expires_in of the response.
+     *
+     * @param expiresAt the expiration time of the configured access token in milliseconds, or 0 if unknown
+     */
+    public void startRefresh(final long expiresAt) {
+        if (refreshMargin < 0L) {
+            return;
+        }
+        final TokenState current = tokenState.get();
+        if (expiresAt > 0L) {
+            final TokenState state = new TokenState(current.accessToken, current.refreshToken, expiresAt, current.refreshedAt);
+            if (tokenState.compareAndSet(current, state)) {
+                scheduleRefresh(state);
+            }
+            return;
+        }
+        if (StringUtil.isBlank(current.refreshToken)) {
+            return;
+        }
+        logger.info("Expiration time of the access token is unknown. Refreshing it in background.");
+        scheduleRefresh(current, 0L);
+    }
+
+    /**
+     * Schedules the refresh of the token before it expires.
+     *
+     * @param state the token to refresh
+     */
+    protected synchronized void scheduleRefresh(final TokenState state) {
+        if (state.expiresAt <= 0L) {
+            return;
+        }
+        scheduleRefresh(state, Math.max(state.expiresAt - refreshMargin - System.currentTimeMillis(), MIN_REFRESH_INTERVAL));
+    }
+
+    /**
+     * Schedules the refresh of the token after the delay.
+     *
+     * @param state the token to refresh
+     * @param delay the delay in milliseconds
+     */
+    protected synchronized void scheduleRefresh(final TokenState state, final long delay) {
+        if (closed || refreshMargin < 0L) {
+            return;
+        }
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+        }
+        if (refreshScheduler == null) {
+            refreshScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread thread = new Thread(r, "OAuth2TokenRefresher");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Scheduling access token refresh in {} ms.", delay);
+        }
+        scheduledRefresh = refreshScheduler.schedule(() -> {
+            try {
+                refreshAccessToken(state.accessToken);
+            } catch (final Exception e) {
+                logger.warn("Failed to refresh access token in background. It will be refreshed when a request is rejected.", e);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background refresh.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (refreshScheduler != null) {
+            refreshScheduler.shutdownNow();
+            refreshScheduler = null;
+            scheduledRefresh = null;
+        }
+    }
+
     /**
      * Parses a JSON response string into a map.
      *
@@ -187,7 +371,54 @@ public class OAuth2Authentication extends Authentication {
      * @return the access token
      */
     public String getAccessToken() {
-        return accessToken;
+        return tokenState.get().accessToken;
+    }
+
+    /**
+     * Returns the client ID.
+     *
+     * @return the client ID
+     */
+    public String getClientId() {
+        return clientId;
+    }
+
+    /**
+     * Returns the expiration time of the access token.
+     *
+     * @return the expiration time in milliseconds, or 0 if unknown
+     */
+    public long getExpiresAt() {
+        return tokenState.get().expiresAt;
+    }
+
+    /**
+     * Immutable state of the token.
+     */
+    protected static class TokenState {
+        /** The access token. */
+        protected final String accessToken;
+        /** The refresh token. */
+        protected final String refreshToken;
+        /** The expiration time of the access token in milliseconds, or 0 if unknown. */
+        protected final long expiresAt;
+        /** The time of the refresh in milliseconds, or 0 if not refreshed. */
+        protected final long refreshedAt;
+
+        /**
+         * Constructs a new token state.
+         *
+         * @param accessToken the access token
+         * @param refreshToken the refresh token
+         * @param expiresAt the expiration time of the access token in milliseconds, or 0 if unknown
+         * @param refreshedAt the time of the refresh in milliseconds, or 0 if not refreshed
+         */
+        protected TokenState(final String accessToken, final String refreshToken, final long expiresAt, final long refreshedAt) {
+            this.accessToken = accessToken;
+            this.refreshToken = refreshToken;
+            this.expiresAt = expiresAt;
+            this.refreshedAt = refreshedAt;
+        }
     }
 
     /**
@@ -196,6 +427,7 @@ public class OAuth2Authentication extends Authentication {
     public static class TokenUpdateResult {
         private final String accessToken;
         private final String refreshToken;
+        private final long expiresAt;
 
         /**
          * Constructs a new token update result.
@@ -204,8 +436,20 @@ public class OAuth2Authentication extends Authentication {
          * @param refreshToken the new refresh token
          */
         public TokenUpdateResult(String accessToken, String refreshToken) {
+            this(accessToken, refreshToken, 0L);
+        }
+
+        /**
+         * Constructs a new token update result.
+         *
+         * @param accessToken the new access token
+         * @param refreshToken the new refresh token
+         * @param expiresAt the expiration time of the new access token in milliseconds, or 0 if unknown
+         */
+        public TokenUpdateResult(String accessToken, String refreshToken, long expiresAt) {
             this.accessToken = accessToken;
             this.refreshToken = refreshToken;
+            this.expiresAt = expiresAt;
         }
 
         /**
@@ -225,5 +469,14 @@ public class OAuth2Authentication extends Authentication {
         public String getRefreshToken() {
             return refreshToken;
         }
+
+        /**
+         * Returns the expiration time of the access token.
+         *
+         * @return the expiration time in milliseconds, or 0 if unknown
+         */
+        public long getExpiresAt() {
+            return expiresAt;
+        }
     }
 }
\ No newline at end of file
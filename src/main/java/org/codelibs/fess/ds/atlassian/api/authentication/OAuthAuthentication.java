@@ -17,9 +17,10 @@ package org.codelibs.fess.ds.atlassian.api.authentication;
 
 import java.net.URL;
 import java.security.PrivateKey;
-import java.util.function.Function;
+import java.util.Collections;
+import java.util.Map;
 
-import org.codelibs.curl.CurlRequest;
+import org.codelibs.fess.ds.atlassian.api.util.OAuthSigner;
 import org.codelibs.fess.ds.atlassian.api.util.OAuthUtil;
 
 /**
@@ -39,6 +40,9 @@ public class OAuthAuthentication extends Authentication {
     /** The OAuth verifier. */
     protected final String verifier;
 
+    /** The signer reusing initialized signatures across requests. */
+    protected final OAuthSigner signer;
+
     /**
      * Constructs a new OAuth authentication with the given parameters.
      *
@@ -52,19 +56,12 @@ public class OAuthAuthentication extends Authentication {
         this.privateKey = OAuthUtil.getPrivateKey(privateKey);
         this.token = token;
         this.verifier = verifier;
+        signer = new OAuthSigner(consumerKey, this.privateKey, token, verifier);
     }
 
     @Override
-    public CurlRequest getCurlRequest(final Function<String, CurlRequest> method, final String requestMethod, final URL url) {
-        final CurlRequest request = method.apply(url.toString());
-
-        request.header("Authorization", OAuthUtil.getAuthorizationHeader(consumerKey, privateKey, token, verifier, requestMethod, url));
-
-        if (httpProxy != null) {
-            request.proxy(httpProxy);
-        }
-
-        return request;
+    public Map<String, String> getHeaders(final String requestMethod, final URL url) {
+        return Collections.singletonMap("Authorization", signer.getAuthorizationHeader(requestMethod, url));
     }
 
     @Override
@@ -19,16 +19,19 @@ import java.io.Closeable;
 import java.util.List;
 import java.util.function.Consumer;
 
+import org.codelibs.fess.Constants;
 import org.codelibs.fess.ds.atlassian.api.AtlassianClient;
 import org.codelibs.fess.ds.atlassian.api.AtlassianProduct;
+import org.codelibs.fess.ds.atlassian.api.DownloadRequest;
 import org.codelibs.fess.ds.atlassian.api.confluence.content.GetContentRequest;
 import org.codelibs.fess.ds.atlassian.api.confluence.content.GetContentsRequest;
-import org.codelibs.fess.ds.atlassian.api.confluence.content.GetContentsResponse;
 import org.codelibs.fess.ds.atlassian.api.confluence.content.child.GetAttachmentsOfContentRequest;
 import org.codelibs.fess.ds.atlassian.api.confluence.content.child.GetCommentsOfContentRequest;
 import org.codelibs.fess.ds.atlassian.api.confluence.content.child.GetCommentsOfContentResponse;
+import org.codelibs.fess.ds.atlassian.api.confluence.domain.Attachment;
 import org.codelibs.fess.ds.atlassian.api.confluence.domain.Comment;
 import org.codelibs.fess.ds.atlassian.api.confluence.domain.Content;
+import org.codelibs.fess.ds.atlassian.api.confluence.domain.Space;
 import org.codelibs.fess.ds.atlassian.api.confluence.space.GetSpaceRequest;
 import org.codelibs.fess.ds.atlassian.api.confluence.space.GetSpacesRequest;
 import org.codelibs.fess.entity.DataStoreParams;
@@ -47,6 +50,9 @@ public class ConfluenceClient extends AtlassianClient implements Closeable {
     /** Parameter key for content limit configuration. */
     protected static final String CONTENT_LIMIT_PARAM = "content_limit";
 
+    /** Parameter key for expanding comments in the content search. */
+    protected static final String CONTENT_COMMENT_INLINE_PARAM = "content.comment.inline";
+
     /** The Confluence instance home URL. */
     protected final String confluenceHome;
 
@@ -56,6 +62,9 @@ public class ConfluenceClient extends AtlassianClient implements Closeable {
     /** The maximum number of content items to retrieve per request. */
     protected final Integer contentLimit;
 
+    /** Whether comments are expanded in the content search. */
+    protected final boolean commentInline;
+
     /**
      * Constructs a new Confluence client with the specified parameters.
      *
@@ -64,14 +73,20 @@ public class ConfluenceClient extends AtlassianClient implements Closeable {
      */
     public ConfluenceClient(final DataConfig dataConfig, final DataStoreParams paramMap) {
         super(dataConfig, paramMap, AtlassianProduct.CONFLUENCE);
-        confluenceHome = getHome();
-        confluenceApiUrl = getApiUrl();
-        contentLimit = getContentLimit(paramMap);
+        try {
+            confluenceHome = getHome();
+            confluenceApiUrl = getApiUrl();
+            contentLimit = getContentLimit(paramMap);
+            commentInline = isCommentInline(paramMap);
+        } catch (final RuntimeException e) {
+            close();
+            throw e;
+        }
     }
 
     @Override
     public void close() {
-        // TODO
+        super.close();
     }
 
     /**
@@ -93,6 +108,30 @@ public class ConfluenceClient extends AtlassianClient implements Closeable {
         return Integer.parseInt(paramMap.getAsString(CONTENT_LIMIT_PARAM, DEFAULT_CONTENT_LIMIT));
     }
 
+    /**
+     * Checks if comments are expanded in the content search from parameters.
+     *
+     * @param paramMap the parameter map
+     * @return true if comments are expanded inline
+     */
+    protected boolean isCommentInline(final DataStoreParams paramMap) {
+        return Constants.TRUE.equalsIgnoreCase(paramMap.getAsString(CONTENT_COMMENT_INLINE_PARAM, Constants.TRUE));
+    }
+
+    /**
+     * Gets the expand parameters of the content search.
+     * If comments are expanded inline, replies are expanded as well to detect comments not included in the page.
+     *
+     * @return the expand parameters
+     */
+    protected String[] getContentExpand() {
+        if (commentInline) {
+            return new String[] { "content.space", "content.version", "content.body.view", "content.children.comment.body.view",
+                    "content.children.comment.children.comment" };
+        }
+        return new String[] { "content.space", "content.version", "content.body.view" };
+    }
+
     /**
      * Creates a request to get all spaces.
      *
@@ -151,6 +190,16 @@ public class ConfluenceClient extends AtlassianClient implements Closeable {
         return createRequest(new GetAttachmentsOfContentRequest(contentId));
     }
 
+    /**
+     * Creates a request to download an attachment.
+     *
+     * @param attachment the attachment
+     * @return a DownloadRequest instance
+     */
+    public DownloadRequest downloadAttachment(final Attachment attachment) {
+        return createRequest(new DownloadRequest(attachment.getDownloadLink()));
+    }
+
     @Override
     protected String getAppHome() {
         return confluenceHome;
@@ -167,12 +216,48 @@ public class ConfluenceClient extends AtlassianClient implements Closeable {
      * @param consumer the consumer to process each content item
      */
     public void getContents(final Consumer<Content> consumer) {
+        getContents(null, consumer);
+    }
+
+    /**
+     * Retrieves content pages modified since the given date using pagination and passes them to the consumer.
+     *
+     * @param lastModifiedFrom the lower bound of the last modified date as a CQL date, or null for all content
+     * @param consumer the consumer to process each content item
+     */
+    public void getContents(final String lastModifiedFrom, final Consumer<Content> consumer) {
+        getContents(null, null, lastModifiedFrom, consumer);
+    }
+
+    /**
+     * Retrieves pages modified since the given date using pagination and passes them to the consumer.
+     *
+     * @param spaceKey the space key, or null for all spaces
+     * @param lastModifiedFrom the lower bound of the last modified date as a CQL date, or null for all pages
+     * @param consumer the consumer to process each page
+     */
+    public void getPageContents(final String spaceKey, final String lastModifiedFrom, final Consumer<Content> consumer) {
+        getContents("page", spaceKey, lastModifiedFrom, consumer);
+    }
+
+    /**
+     * Retrieves content of the given type modified since the given date using pagination and passes them to the consumer.
+     *
+     * @param type the content type, or null for pages and blog posts
+     * @param spaceKey the space key, or null for all spaces
+     * @param lastModifiedFrom the lower bound of the last modified date as a CQL date, or null for all content
+     * @param consumer the consumer to process each content item
+     */
+    public void getContents(final String type, final String spaceKey, final String lastModifiedFrom, final Consumer<Content> consumer) {
         for (int start = 0;; start += contentLimit) {
-            final GetContentsResponse response =
-                    contents().start(start).limit(contentLimit).expand("content.space", "content.version", "content.body.view").execute();
-            final List<Content> contents = response.getContents();
-            contents.forEach(consumer);
-            if (contents.size() < contentLimit) {
+            final int count = contents().start(start)
+                    .limit(contentLimit)
+                    .type(type)
+                    .spaceKey(spaceKey)
+                    .lastModifiedFrom(lastModifiedFrom)
+                    .expand(getContentExpand())
+                    .execute(consumer);
+            if (count < contentLimit) {
                 break;
             }
         }
@@ -184,15 +269,56 @@ public class ConfluenceClient extends AtlassianClient implements Closeable {
      * @param consumer the consumer to process each blog content item
      */
     public void getBlogContents(final Consumer<Content> consumer) {
+        getBlogContents(null, consumer);
+    }
+
+    /**
+     * Retrieves blog content modified since the given date using pagination and passes them to the consumer.
+     *
+     * @param lastModifiedFrom the lower bound of the last modified date as a CQL date, or null for all blog content
+     * @param consumer the consumer to process each blog content item
+     */
+    public void getBlogContents(final String lastModifiedFrom, final Consumer<Content> consumer) {
+        getBlogContents(null, lastModifiedFrom, consumer);
+    }
+
+    /**
+     * Retrieves blog content in the space modified since the given date using pagination and passes them to the consumer.
+     *
+     * @param spaceKey the space key, or null for all spaces
+     * @param lastModifiedFrom the lower bound of the last modified date as a CQL date, or null for all blog content
+     * @param consumer the consumer to process each blog content item
+     */
+    public void getBlogContents(final String spaceKey, final String lastModifiedFrom, final Consumer<Content> consumer) {
+        getContents("blogpost", spaceKey, lastModifiedFrom, consumer);
+    }
+
+    /**
+     * Retrieves all spaces using pagination and passes them to the consumer.
+     *
+     * @param consumer the consumer to process each space
+     */
+    public void getSpaces(final Consumer<Space> consumer) {
         for (int start = 0;; start += contentLimit) {
-            final GetContentsResponse response = contents().start(start)
-                    .limit(contentLimit)
-                    .type("blogpost")
-                    .expand("content.space", "content.version", "content.body.view")
-                    .execute();
-            final List<Content> contents = response.getContents();
-            contents.forEach(consumer);
-            if (contents.size() < contentLimit) {
+            final List<Space> spaces = spaces().start(start).limit(contentLimit).execute().getSpaces();
+            spaces.forEach(consumer);
+            if (spaces.size() < contentLimit) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Retrieves all attachments for specific content using pagination and passes them to the consumer.
+     *
+     * @param id the content ID
+     * @param consumer the consumer to process each attachment
+     */
+    public void getContentAttachments(final String id, final Consumer<Attachment> consumer) {
+        for (int start = 0;; start += contentLimit) {
+            final List<Attachment> attachments = attachmentsOfContent(id).start(start).limit(contentLimit).execute().getAttachments();
+            attachments.forEach(consumer);
+            if (attachments.size() < contentLimit) {
                 break;
             }
         }
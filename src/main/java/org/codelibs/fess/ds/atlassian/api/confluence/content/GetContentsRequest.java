@@ -16,14 +16,17 @@
 package org.codelibs.fess.ds.atlassian.api.confluence.content;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import org.codelibs.core.lang.StringUtil;
 import org.codelibs.curl.CurlException;
 import org.codelibs.curl.CurlResponse;
@@ -52,6 +55,9 @@ public class GetContentsRequest extends AtlassianRequest {
     /** The posting day filter. */
     private String postingDay;
 
+    /** The lower bound of the last modified date filter. */
+    private String lastModifiedFrom;
+
     /** The expand parameters for additional data. */
     private String[] expand;
 
@@ -122,6 +128,18 @@ public class GetContentsRequest extends AtlassianRequest {
         return this;
     }
 
+    /**
+     * Sets the lower bound of the last modified date filter.
+     * The value is a CQL date such as "yyyy/MM/dd HH:mm".
+     *
+     * @param lastModifiedFrom the lower bound of the last modified date
+     * @return this request instance for method chaining
+     */
+    public GetContentsRequest lastModifiedFrom(final String lastModifiedFrom) {
+        this.lastModifiedFrom = lastModifiedFrom;
+        return this;
+    }
+
     /**
      * Sets the expand parameters for additional data.
      *
@@ -181,30 +199,88 @@ public class GetContentsRequest extends AtlassianRequest {
         if (StringUtil.isBlank(json)) {
             return new GetContentsResponse(Collections.emptyList());
         }
-        try {
-            final JsonNode rootNode = mapper.readTree(json);
-            final JsonNode resultsNode = rootNode.get("results");
-            final List<Content> contents = new ArrayList<>();
-
-            if (resultsNode != null && resultsNode.isArray()) {
-                final Iterator<JsonNode> elements = resultsNode.elements();
-                while (elements.hasNext()) {
-                    final JsonNode item = elements.next();
-                    if (item.has("content")) {
-                        final JsonNode contentNode = item.get("content");
-                        contents.add(mapper.treeToValue(contentNode, Content.class));
-                    } else {
-                        contents.add(mapper.treeToValue(item, Content.class));
-                    }
-                }
-            }
-
+        final List<Content> contents = new ArrayList<>();
+        try (JsonParser parser = mapper.createParser(json)) {
+            readContents(parser, contents::add);
             return new GetContentsResponse(contents);
         } catch (final IOException e) {
             throw new AtlassianDataStoreException("Failed to parse contents from: " + json, e);
         }
     }
 
+    /**
+     * Executes the request and passes each content to the consumer while parsing the response.
+     * The response body is buffered by the transport, in memory or in a temporary file if it is large,
+     * and is parsed from the buffer without building a string or a JSON tree of the whole page.
+     *
+     * @param consumer the consumer to process each content
+     * @return the number of contents in the response
+     */
+    public int execute(final Consumer<Content> consumer) {
+        try (CurlResponse response = getCurlResponse(GET)) {
+            if (response.getHttpStatusCode() != 200) {
+                throw new CurlException("HTTP Status : " + response.getHttpStatusCode() + ", error : " + response.getContentAsString());
+            }
+            try (InputStream in = response.getContentAsStream()) {
+                return parseResponse(in, consumer);
+            }
+        } catch (final CurlException | IOException e) {
+            throw new AtlassianDataStoreException("Failed to access " + this, e);
+        }
+    }
+
+    /**
+     * Parses the JSON response from the stream and passes each content to the consumer.
+     *
+     * @param in the input stream of the JSON response
+     * @param consumer the consumer to process each content
+     * @return the number of contents in the response
+     */
+    public static int parseResponse(final InputStream in, final Consumer<Content> consumer) {
+        try (JsonParser parser = mapper.createParser(in)) {
+            return readContents(parser, consumer);
+        } catch (final IOException e) {
+            throw new AtlassianDataStoreException("Failed to parse contents.", e);
+        }
+    }
+
+    private static int readContents(final JsonParser parser, final Consumer<Content> consumer) throws IOException {
+        final int[] count = { 0 };
+        readArrayField(parser, "results", p -> {
+            consumer.accept(readContent(p));
+            count[0]++;
+        });
+        return count[0];
+    }
+
+    /**
+     * Reads the content of a search result, binding the "content" field directly from the parser.
+     * If the result does not have the field, the result itself is read as the content.
+     *
+     * @param parser the JSON parser positioned at the start of the result object
+     * @return the content
+     * @throws IOException if the result cannot be read
+     */
+    private static Content readContent(final JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            return parser.readValueAs(Content.class);
+        }
+        final Map<String, Object> fieldMap = new LinkedHashMap<>();
+        Content content = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.currentName();
+            final JsonToken token = parser.nextToken();
+            if (content == null && "content".equals(name) && token == JsonToken.START_OBJECT) {
+                content = parser.readValueAs(Content.class);
+            } else if (content == null) {
+                fieldMap.put(name, token == JsonToken.VALUE_NULL ? null : parser.readValueAs(Object.class));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return content != null ? content : mapper.convertValue(fieldMap, Content.class);
+    }
+
     @Override
     public String getURL() {
         return apiUrl + "/rest/api/search";
@@ -235,6 +311,9 @@ public class GetContentsRequest extends AtlassianRequest {
         if (cqlParts.isEmpty()) {
             cqlParts.add("type in (page,blogpost)");
         }
+        if (StringUtil.isNotBlank(lastModifiedFrom)) {
+            cqlParts.add("lastmodified>=\"" + escapeQuery(lastModifiedFrom) + "\"");
+        }
 
         queryParams.put("cql", String.join(" AND ", cqlParts));
 
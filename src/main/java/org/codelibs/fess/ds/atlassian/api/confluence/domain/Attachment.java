@@ -27,6 +27,9 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class Attachment {
 
+    /** The ID of the attachment. */
+    protected String id;
+
     /** The title of the attachment. */
     protected String title;
 
@@ -38,6 +41,10 @@ public class Attachment {
     @JsonIgnore
     protected String downloadLink;
 
+    /** The file size of the attachment in bytes. */
+    @JsonIgnore
+    protected Long fileSize;
+
     /**
      * Default constructor for Attachment.
      */
@@ -45,6 +52,15 @@ public class Attachment {
         // Default constructor
     }
 
+    /**
+     * Gets the attachment ID.
+     *
+     * @return the attachment ID
+     */
+    public String getId() {
+        return id;
+    }
+
     /**
      * Gets the attachment title.
      *
@@ -72,6 +88,15 @@ public class Attachment {
         return downloadLink;
     }
 
+    /**
+     * Gets the file size of the attachment.
+     *
+     * @return the file size in bytes, or null if not available
+     */
+    public Long getFileSize() {
+        return fileSize;
+    }
+
     /**
      * Unpacks metadata from the API response.
      *
@@ -82,6 +107,21 @@ public class Attachment {
         this.mediaType = (String) metadata.get("mediaType");
     }
 
+    /**
+     * Unpacks extensions from the API response.
+     *
+     * @param extensions the extensions from API response
+     */
+    @JsonProperty("extensions")
+    public void unpackExtensions(final Map<String, Object> extensions) {
+        if (mediaType == null && extensions.get("mediaType") instanceof String value) {
+            this.mediaType = value;
+        }
+        if (extensions.get("fileSize") instanceof Number value) {
+            this.fileSize = value.longValue();
+        }
+    }
+
     /**
      * Unpacks links from the API response.
      *
@@ -15,10 +15,12 @@
  */
 package org.codelibs.fess.ds.atlassian.api.confluence.domain;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.TimeZone;
+
+import org.codelibs.fess.ds.atlassian.api.util.DateUtil;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
@@ -51,6 +53,14 @@ public class Content {
     @JsonIgnore
     protected Long lastModified;
 
+    /** The version number. */
+    @JsonIgnore
+    protected Integer versionNumber;
+
+    /** The comments expanded inline, or null if not expanded or truncated. */
+    @JsonIgnore
+    protected List<Comment> comments;
+
     /**
      * Default constructor.
      */
@@ -111,6 +121,26 @@ public class Content {
         return lastModified;
     }
 
+    /**
+     * Gets the version number, which is incremented when the content is edited.
+     *
+     * @return the version number, or null if not available
+     */
+    public Integer getVersionNumber() {
+        return versionNumber;
+    }
+
+    /**
+     * Gets the comments expanded inline.
+     * Returns null if comments were not expanded or the expanded page does not contain all comments,
+     * in which case they need to be retrieved by the child comment request.
+     *
+     * @return the comments, or null if not available
+     */
+    public List<Comment> getComments() {
+        return comments;
+    }
+
     /**
      * Unpacks the body content from the API response.
      *
@@ -128,18 +158,55 @@ public class Content {
      * Unpacks version information from the API response.
      *
      * @param version the version data from API response
-     * @throws ParseException if the date format cannot be parsed
+     * @throws DateTimeParseException if the date format cannot be parsed
      */
     @JsonProperty("version")
-    public void unpackVersion(final Map<String, Object> version) throws ParseException {
+    public void unpackVersion(final Map<String, Object> version) {
         final String when = (String) version.get("when");
-        try {
-            final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSX");
-            format.setTimeZone(TimeZone.getTimeZone("UTC"));
-            this.lastModified = format.parse(when).getTime();
-        } catch (final ParseException e) {
-            throw e; // TODO
+        if (when != null) {
+            this.lastModified = DateUtil.parseEpochMilli(when);
+        }
+        if (version.get("number") instanceof Number number) {
+            this.versionNumber = number.intValue();
+        }
+    }
+
+    /**
+     * Unpacks child comments expanded by "children.comment" from the API response.
+     * The comments are kept only if the expanded page is not full and no comment has replies.
+     *
+     * @param children the children data from API response
+     */
+    @JsonProperty("children")
+    public void unpackChildren(final Map<String, Object> children) {
+        if (!(children.get("comment") instanceof Map<?, ?> page) || !(page.get("results") instanceof List<?> results)) {
+            return;
+        }
+        if (page.get("limit") instanceof Number limit && results.size() >= limit.intValue()) {
+            return;
+        }
+        if (page.get("_links") instanceof Map<?, ?> links && links.get("next") != null) {
+            return;
+        }
+        final List<Comment> list = new ArrayList<>(results.size());
+        for (final Object result : results) {
+            if (!(result instanceof Map<?, ?> map)) {
+                return;
+            }
+            if (map.get("children") instanceof Map<?, ?> replies && replies.get("comment") instanceof Map<?, ?> replyPage
+                    && replyPage.get("results") instanceof List<?> replyResults && !replyResults.isEmpty()) {
+                return;
+            }
+            final Comment comment = new Comment();
+            comment.title = (String) map.get("title");
+            if (map.get("body") instanceof Map<?, ?> body && body.get("view") != null) {
+                @SuppressWarnings("unchecked")
+                final Map<String, Object> bodyMap = (Map<String, Object>) body;
+                comment.unpackBody(bodyMap);
+            }
+            list.add(comment);
         }
+        this.comments = list;
     }
 
 }
@@ -32,6 +32,11 @@ import org.codelibs.fess.ds.atlassian.api.util.UrlUtil;
 import java.net.URI;
 import java.net.URL;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Endpoint strategy for Atlassian Cloud using OAuth2 authentication.
@@ -43,13 +48,26 @@ public class CloudOAuth2EndpointStrategy implements EndpointStrategy {
 
     private static final String CLOUD_API_ACCESSIBLE_RESOURCES_URL = "https://api.atlassian.com/oauth/token/accessible-resources";
 
+    /** The default time in milliseconds for which a resolved Cloud ID is cached. */
+    public static final long DEFAULT_CLOUD_ID_TTL = 3600000L;
+
+    /** The default time in milliseconds for which a failure to resolve a Cloud ID is cached. */
+    public static final long DEFAULT_CLOUD_ID_NEGATIVE_TTL = 60000L;
+
+    /** Cloud IDs shared by all clients in the process, keyed by home URL and client ID. */
+    private static final Map<String, CloudIdEntry> CLOUD_IDS = new ConcurrentHashMap<>();
+
+    private static volatile long cloudIdTtl = DEFAULT_CLOUD_ID_TTL;
+
+    private static volatile long cloudIdNegativeTtl = DEFAULT_CLOUD_ID_NEGATIVE_TTL;
+
     private final String home;
 
     private final AtlassianProduct product;
 
     private final OAuth2Authentication authentication;
 
-    private String cachedApiUrl = null;
+    private volatile ApiUrl cachedApiUrl = null;
 
     /**
      * Constructs a new Cloud OAuth2 endpoint strategy.
@@ -75,14 +93,14 @@ public class CloudOAuth2EndpointStrategy implements EndpointStrategy {
     }
 
     @Override
-    public synchronized String getApiUrl() {
-        if (cachedApiUrl != null) {
-            return cachedApiUrl;
+    public String getApiUrl() {
+        // Get Cloud ID, which is looked up in the shared cache for each call so that a refreshed Cloud ID is used
+        final String cloudId = getCloudId();
+        final ApiUrl cached = cachedApiUrl;
+        if (cached != null && cached.cloudId().equals(cloudId)) {
+            return cached.url();
         }
 
-        // Get Cloud ID
-        final String cloudId = resolveCloudId(home, authentication);
-
         final String segment = product.segment();
 
         // Build API URL: https://api.atlassian.com/ex/{product}/{cloudId}
@@ -92,21 +110,116 @@ public class CloudOAuth2EndpointStrategy implements EndpointStrategy {
             path = path + "/wiki";
         }
 
-        cachedApiUrl = UrlUtil.normalizeUrl(baseUri + path);
+        final String apiUrl = UrlUtil.normalizeUrl(baseUri + path);
+        cachedApiUrl = new ApiUrl(cloudId, apiUrl);
+
+        logger.info("Resolved Atlassian Cloud API URL: {}", apiUrl);
+
+        return apiUrl;
+    }
 
-        logger.info("Resolved Atlassian Cloud API URL: {}", cachedApiUrl);
+    /**
+     * Sets the times for which Cloud IDs are cached in the process.
+     *
+     * @param ttl the time in milliseconds for which a resolved Cloud ID is cached
+     * @param negativeTtl the time in milliseconds for which a failure to resolve a Cloud ID is cached
+     */
+    public static void setCloudIdTtl(final long ttl, final long negativeTtl) {
+        cloudIdTtl = ttl;
+        cloudIdNegativeTtl = negativeTtl;
+    }
 
-        return cachedApiUrl;
+    /**
+     * Removes all cached Cloud IDs.
+     */
+    public static void clearCloudIdCache() {
+        CLOUD_IDS.clear();
     }
 
-    private String resolveCloudId(String home, OAuth2Authentication authentication) {
+    /**
+     * Gets the Cloud ID of the site from the cache shared by all clients in the process.
+     * Only the first thread resolves a Cloud ID that is not cached, and the other threads for the same site wait for it.
+     * Failures are cached for a shorter time, so data configs with an inaccessible site fail fast,
+     * except for authentication failures, which depend on the token of each client and are not cached.
+     * Once the Cloud ID has been cached for half of its lifetime, it is resolved again in the background,
+     * so it is replaced before it expires without blocking.
+     *
+     * @return the Cloud ID
+     * @throws AtlassianDataStoreException if the Cloud ID cannot be resolved
+     */
+    protected String getCloudId() {
+        final String key = home + " " + authentication.getClientId();
+        final long now = System.currentTimeMillis();
+        final CloudIdEntry current = CLOUD_IDS.get(key);
+        final CloudIdEntry entry;
+        if (current != null && !current.isExpired(now)) {
+            entry = current;
+            if (entry.shouldRefresh(now)) {
+                Thread.ofVirtual().name("CloudIdResolver").start(() -> refreshCloudId(key, entry));
+            }
+        } else {
+            final CloudIdEntry created = new CloudIdEntry();
+            entry = CLOUD_IDS.compute(key, (k, v) -> v == null || v == current || v.isExpired(now) ? created : v);
+            if (entry == created) {
+                loadCloudId(key, entry);
+            }
+        }
+        try {
+            return entry.future.join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof AtlassianDataStoreException) {
+                throw (AtlassianDataStoreException) e.getCause();
+            }
+            throw new AtlassianDataStoreException("Failed to resolve Cloud ID for url: " + home, e.getCause());
+        }
+    }
+
+    private void loadCloudId(final String key, final CloudIdEntry entry) {
+        try {
+            final String cloudId = resolveCloudId();
+            entry.complete(cloudId, System.currentTimeMillis() + cloudIdTtl);
+        } catch (final AuthenticationFailedException e) {
+            entry.fail(e, System.currentTimeMillis());
+            CLOUD_IDS.remove(key, entry);
+        } catch (final RuntimeException e) {
+            entry.fail(e, System.currentTimeMillis() + cloudIdNegativeTtl);
+        }
+    }
+
+    private void refreshCloudId(final String key, final CloudIdEntry entry) {
+        try {
+            final CloudIdEntry refreshed = new CloudIdEntry();
+            refreshed.complete(resolveCloudId(), System.currentTimeMillis() + cloudIdTtl);
+            CLOUD_IDS.replace(key, entry, refreshed);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Refreshed Cloud ID for {}", home);
+            }
+        } catch (final Exception e) {
+            // keep the current Cloud ID until it expires
+            logger.warn("Failed to refresh Cloud ID for {}", home, e);
+        }
+    }
+
+    /**
+     * Resolves the Cloud ID of the site from the accessible resources of the token.
+     *
+     * @return the Cloud ID
+     * @throws AuthenticationFailedException if the token is rejected
+     * @throws AtlassianDataStoreException if the Cloud ID cannot be resolved
+     */
+    protected String resolveCloudId() {
+        final String accessToken = authentication.getAccessToken();
         ResolveCloudIdResponse response = resolveCloudIdInternal(home, authentication);
         if (response.statusCode == 401) {
             // refresh token
-            authentication.refreshAccessToken();
+            authentication.refreshAccessToken(accessToken);
             response = resolveCloudIdInternal(home, authentication);
         }
 
+        if (response.statusCode == 401 || response.statusCode == 403) {
+            throw new AuthenticationFailedException(
+                    "Failed to access accessible resources. " + "Status: " + response.statusCode + ", Body: " + response.responseContent);
+        }
         if (response.statusCode != 200) {
             throw new AtlassianDataStoreException(
                     "Failed to access accessible resources. " + "Status: " + response.statusCode + ", Body: " + response.responseContent);
@@ -191,4 +304,54 @@ public class CloudOAuth2EndpointStrategy implements EndpointStrategy {
 
     private record ResolveCloudIdResponse(int statusCode, String cloudId, String responseContent) {
     }
+
+    private record ApiUrl(String cloudId, String url) {
+    }
+
+    /**
+     * Exception thrown when the accessible resources are rejected for the token.
+     */
+    protected static class AuthenticationFailedException extends AtlassianDataStoreException {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructs a new exception with the specified detail message.
+         *
+         * @param message the detail message
+         */
+        public AuthenticationFailedException(final String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Cached result of a Cloud ID resolution.
+     */
+    private static class CloudIdEntry {
+        private final CompletableFuture<String> future = new CompletableFuture<>();
+        private final long createdAt = System.currentTimeMillis();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile long expiresAt = Long.MAX_VALUE;
+        private volatile boolean failed;
+
+        void complete(final String cloudId, final long expiresAt) {
+            this.expiresAt = expiresAt;
+            future.complete(cloudId);
+        }
+
+        void fail(final RuntimeException e, final long expiresAt) {
+            this.expiresAt = expiresAt;
+            failed = true;
+            future.completeExceptionally(e);
+        }
+
+        boolean isExpired(final long now) {
+            return now >= expiresAt;
+        }
+
+        boolean shouldRefresh(final long now) {
+            return future.isDone() && !failed && now - createdAt >= (expiresAt - createdAt) / 2 && refreshing.compareAndSet(false, true);
+        }
+    }
 }
@@ -16,14 +16,26 @@
 package org.codelibs.fess.ds.atlassian.api.jira;
 
 import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.codelibs.core.lang.StringUtil;
+import org.codelibs.fess.Constants;
 import org.codelibs.fess.ds.atlassian.api.AtlassianClient;
 import org.codelibs.fess.ds.atlassian.api.AtlassianProduct;
+import org.codelibs.fess.ds.atlassian.api.DownloadRequest;
+import org.codelibs.fess.ds.atlassian.api.jira.domain.Attachment;
 import org.codelibs.fess.ds.atlassian.api.jira.domain.Comment;
 import org.codelibs.fess.ds.atlassian.api.jira.domain.Issue;
+import org.codelibs.fess.ds.atlassian.api.jira.domain.Project;
 import org.codelibs.fess.ds.atlassian.api.jira.issue.GetCommentsRequest;
 import org.codelibs.fess.ds.atlassian.api.jira.issue.GetCommentsResponse;
 import org.codelibs.fess.ds.atlassian.api.jira.issue.GetIssueRequest;
@@ -40,6 +52,15 @@ import org.codelibs.fess.opensearch.config.exentity.DataConfig;
  */
 public class JiraClient extends AtlassianClient implements Closeable {
 
+    private static final Logger logger = LogManager.getLogger(JiraClient.class);
+
+    /**
+     * Pattern to find the ORDER BY clause in JQL.
+     * Quoted strings are matched as a whole so that ORDER BY inside a value is skipped; group 1 is the clause.
+     */
+    protected static final Pattern ORDER_BY_PATTERN =
+            Pattern.compile("\"(?:[^\"\\\\]|\\\\.)*\"?|'(?:[^'\\\\]|\\\\.)*'?|(\\border\\s+by\\b)", Pattern.CASE_INSENSITIVE);
+
     /** Default maximum number of issues to retrieve per request. */
     protected static final String DEFAULT_ISSUE_MAX_RESULTS = "50";
 
@@ -50,6 +71,12 @@ public class JiraClient extends AtlassianClient implements Closeable {
     /** Parameter key for issue max results configuration. */
     protected static final String ISSUE_MAX_RESULTS_PARAM = "issue_max_results";
 
+    /** Parameter key for retrieving comments together with issues. */
+    protected static final String ISSUE_COMMENT_PREFETCH_PARAM = "issue.comment.prefetch";
+
+    /** Parameter key for retrieving attachments in the issue search. */
+    protected static final String ISSUE_ATTACHMENT_PARAM = "issue.attachment";
+
     /** The JIRA instance home URL. */
     protected final String jiraHome;
 
@@ -62,6 +89,12 @@ public class JiraClient extends AtlassianClient implements Closeable {
     /** The maximum number of issues to retrieve per request. */
     protected final Integer issueMaxResults;
 
+    /** Whether comments are retrieved together with issues. */
+    protected final boolean commentPrefetch;
+
+    /** Whether attachments are retrieved in the issue search. */
+    protected final boolean attachment;
+
     /**
      * Constructs a new JIRA client with the specified parameters.
      *
@@ -70,15 +103,22 @@ public class JiraClient extends AtlassianClient implements Closeable {
      */
     public JiraClient(final DataConfig dataConfig, final DataStoreParams paramMap) {
         super(dataConfig, paramMap, AtlassianProduct.JIRA);
-        jiraHome = getHome();
-        jiraApiUrl = getApiUrl();
-        jql = getJql(paramMap);
-        issueMaxResults = getIssueMaxResults(paramMap);
+        try {
+            jiraHome = getHome();
+            jiraApiUrl = getApiUrl();
+            jql = getJql(paramMap);
+            issueMaxResults = getIssueMaxResults(paramMap);
+            commentPrefetch = isCommentPrefetch(paramMap);
+            attachment = isAttachment(paramMap);
+        } catch (final RuntimeException e) {
+            close();
+            throw e;
+        }
     }
 
     @Override
     public void close() {
-        // TODO
+        super.close();
     }
 
     /**
@@ -107,6 +147,62 @@ public class JiraClient extends AtlassianClient implements Closeable {
         return Integer.parseInt(paramMap.getAsString(ISSUE_MAX_RESULTS_PARAM, DEFAULT_ISSUE_MAX_RESULTS));
     }
 
+    /**
+     * Checks if comments are retrieved together with issues from parameters.
+     *
+     * @param paramMap the parameter map
+     * @return true if comments are retrieved in the search request
+     */
+    protected boolean isCommentPrefetch(final DataStoreParams paramMap) {
+        return Constants.TRUE.equalsIgnoreCase(paramMap.getAsString(ISSUE_COMMENT_PREFETCH_PARAM, Constants.TRUE));
+    }
+
+    /**
+     * Checks if comments are retrieved together with issues.
+     * If true, the comment field of the retrieved issues contains the first page of comments.
+     *
+     * @return true if comments are retrieved in the search request
+     */
+    public boolean isCommentPrefetch() {
+        return commentPrefetch;
+    }
+
+    /**
+     * Checks if attachments are retrieved together with issues from parameters.
+     *
+     * @param paramMap the parameter map
+     * @return true if the attachment metadata is retrieved in the search request
+     */
+    protected boolean isAttachment(final DataStoreParams paramMap) {
+        return Constants.TRUE.equalsIgnoreCase(paramMap.getAsString(ISSUE_ATTACHMENT_PARAM, Constants.FALSE));
+    }
+
+    /**
+     * Checks if attachments are retrieved together with issues.
+     * If true, the attachment field of the retrieved issues contains the attachment metadata.
+     *
+     * @return true if the attachment metadata is retrieved in the search request
+     */
+    public boolean isAttachment() {
+        return attachment;
+    }
+
+    /**
+     * Gets the fields to retrieve in the search request.
+     *
+     * @return the field names
+     */
+    protected String[] getSearchFields() {
+        final List<String> fields = new ArrayList<>(Arrays.asList("summary", "description", "updated"));
+        if (commentPrefetch) {
+            fields.add("comment");
+        }
+        if (attachment) {
+            fields.add("attachment");
+        }
+        return fields.toArray(new String[fields.size()]);
+    }
+
     /**
      * Gets the JIRA home URL.
      *
@@ -164,6 +260,16 @@ public class JiraClient extends AtlassianClient implements Closeable {
         return createRequest(new GetCommentsRequest(issueIdOrKey));
     }
 
+    /**
+     * Creates a request to download the content of an attachment.
+     *
+     * @param attachment the attachment
+     * @return a DownloadRequest instance
+     */
+    public DownloadRequest downloadAttachment(final Attachment attachment) {
+        return createRequest(new DownloadRequest("/rest/api/3/attachment/content/" + attachment.getId()));
+    }
+
     @Override
     protected String getAppHome() {
         return jiraHome;
@@ -181,25 +287,210 @@ public class JiraClient extends AtlassianClient implements Closeable {
      * @param consumer the consumer to process each issue
      */
     public void getIssues(final Consumer<Issue> consumer) {
+        getIssues(null, consumer);
+    }
+
+    /**
+     * Retrieves issues updated on or after the given date using pagination and passes them to the consumer.
+     * Uses the configured JQL query to filter issues.
+     *
+     * @param updatedFrom the date value in JQL format (e.g. "2024/01/31 12:34"), or null to retrieve all issues
+     * @param consumer the consumer to process each issue
+     */
+    public void getIssues(final String updatedFrom, final Consumer<Issue> consumer) {
+        getIssues(null, null, null, updatedFrom, consumer);
+    }
+
+    /**
+     * Retrieves issues in a shard of the configured JQL query using pagination and passes them to the consumer.
+     * A shard is limited to a project and a range of the created date, so that shards can be searched concurrently.
+     *
+     * @param projectKey the project key, or null for all projects
+     * @param createdFrom the inclusive lower bound of the created date in JQL format, or null for no lower bound
+     * @param createdTo the exclusive upper bound of the created date in JQL format, or null for no upper bound
+     * @param updatedFrom the date value in JQL format, or null to retrieve all issues
+     * @param consumer the consumer to process each issue
+     */
+    public void getIssues(final String projectKey, final String createdFrom, final String createdTo, final String updatedFrom,
+            final Consumer<Issue> consumer) {
+        searchIssues(appendShardClause(jql, projectKey, createdFrom, createdTo, updatedFrom), consumer);
+    }
+
+    /**
+     * Gets the keys of all projects visible to the user.
+     *
+     * @return the project keys
+     */
+    public List<String> getProjectKeys() {
+        return projects().execute().getProjects().stream().map(Project::getKey).collect(Collectors.toList());
+    }
+
+    /**
+     * Gets the created date of the oldest issue in a project matching the configured JQL query.
+     *
+     * @param projectKey the project key
+     * @param updatedFrom the date value in JQL format, or null to search all issues
+     * @return the created date of the oldest issue, or null if no issue matches
+     */
+    public String getEarliestCreated(final String projectKey, final String updatedFrom) {
+        final String shardJql = replaceOrderBy(appendShardClause(jql, projectKey, null, null, updatedFrom), "ORDER BY created ASC");
+        if (logger.isDebugEnabled()) {
+            logger.debug("jql: {}", shardJql);
+        }
+        final List<Issue> issues = search().jql(shardJql).maxResults(1).fields("created").execute().getIssues();
+        if (issues == null || issues.isEmpty() || issues.get(0).getFields() == null) {
+            return null;
+        }
+        return issues.get(0).getFields().getCreated();
+    }
+
+    /**
+     * Retrieves all issues matching the JQL query using pagination and passes them to the consumer.
+     *
+     * @param jql the JQL query
+     * @param consumer the consumer to process each issue
+     */
+    protected void searchIssues(final String jql, final Consumer<Issue> consumer) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("jql: {}", jql);
+        }
+        String nextPageToken = null;
         int startAt = 0;
         while (true) {
-            final SearchResponse searchResponse =
-                    search().jql(jql).startAt(startAt).maxResults(issueMaxResults).fields("summary", "description", "updated").execute();
-            final List<Issue> issues = searchResponse.getIssues();
-            issues.forEach(consumer);
-
-            final Long total = searchResponse.getTotal();
-            if (total != null) {
-                if (startAt + issues.size() >= total) {
-                    break;
-                }
-            } else {
-                if (issues.size() < issueMaxResults) {
-                    break;
-                }
+            final SearchRequest request = search().jql(jql).maxResults(issueMaxResults).fields(getSearchFields());
+            if (nextPageToken != null) {
+                request.nextPageToken(nextPageToken);
+            } else if (startAt > 0) {
+                request.startAt(startAt);
             }
-            startAt += issueMaxResults;
+            final AtomicInteger count = new AtomicInteger();
+            final SearchResponse searchResponse = request.execute(issue -> {
+                count.incrementAndGet();
+                consumer.accept(issue);
+            });
+
+            if (!hasNextPage(searchResponse, count.get(), startAt)) {
+                break;
+            }
+            nextPageToken = searchResponse.getNextPageToken();
+            startAt += count.get();
+        }
+    }
+
+    /**
+     * Checks if the search result has the next page.
+     * The page token and the last page flag are used if available,
+     * otherwise the total number of hits or the page size is used.
+     *
+     * @param searchResponse the search response of the current page
+     * @param size the number of issues in the current page
+     * @param startAt the start index of the current page
+     * @return true if the next page exists
+     */
+    protected boolean hasNextPage(final SearchResponse searchResponse, final int size, final int startAt) {
+        if (size == 0 || Boolean.TRUE.equals(searchResponse.getLast())) {
+            return false;
+        }
+        if (StringUtil.isNotBlank(searchResponse.getNextPageToken())) {
+            return true;
         }
+        if (Boolean.FALSE.equals(searchResponse.getLast())) {
+            logger.warn("nextPageToken is not returned though the page is not the last. startAt: {}", startAt);
+        }
+        final Long total = searchResponse.getTotal();
+        if (total != null) {
+            return startAt + size < total;
+        }
+        return size >= issueMaxResults;
+    }
+
+    /**
+     * Combines a clause with the JQL query by AND.
+     * The ORDER BY clause of the JQL query is kept at the end.
+     *
+     * @param jql the JQL query
+     * @param clause the clause to add
+     * @return the combined JQL query
+     */
+    protected static String appendJqlClause(final String jql, final String clause) {
+        final String[] parts = splitOrderBy(jql);
+        final String orderBy = parts[1].isEmpty() ? StringUtil.EMPTY : " " + parts[1];
+        if (StringUtil.isBlank(parts[0])) {
+            return clause + orderBy;
+        }
+        return clause + " AND (" + parts[0] + ")" + orderBy;
+    }
+
+    /**
+     * Combines the clauses limiting a shard with the JQL query by AND.
+     *
+     * @param jql the JQL query
+     * @param projectKey the project key, or null for all projects
+     * @param createdFrom the inclusive lower bound of the created date, or null for no lower bound
+     * @param createdTo the exclusive upper bound of the created date, or null for no upper bound
+     * @param updatedFrom the inclusive lower bound of the updated date, or null for no lower bound
+     * @return the combined JQL query
+     */
+    protected static String appendShardClause(final String jql, final String projectKey, final String createdFrom, final String createdTo,
+            final String updatedFrom) {
+        final List<String> clauses = new ArrayList<>();
+        if (StringUtil.isNotBlank(projectKey)) {
+            clauses.add("project = \"" + escapeJqlString(projectKey) + "\"");
+        }
+        if (StringUtil.isNotBlank(createdFrom)) {
+            clauses.add("created >= \"" + escapeJqlString(createdFrom) + "\"");
+        }
+        if (StringUtil.isNotBlank(createdTo)) {
+            clauses.add("created < \"" + escapeJqlString(createdTo) + "\"");
+        }
+        if (StringUtil.isNotBlank(updatedFrom)) {
+            clauses.add("updated >= \"" + escapeJqlString(updatedFrom) + "\"");
+        }
+        if (clauses.isEmpty()) {
+            return jql;
+        }
+        return appendJqlClause(jql, String.join(" AND ", clauses));
+    }
+
+    /**
+     * Replaces the ORDER BY clause of the JQL query.
+     *
+     * @param jql the JQL query
+     * @param orderBy the ORDER BY clause to set
+     * @return the JQL query with the given ORDER BY clause
+     */
+    protected static String replaceOrderBy(final String jql, final String orderBy) {
+        final String condition = splitOrderBy(jql)[0];
+        if (StringUtil.isBlank(condition)) {
+            return orderBy;
+        }
+        return condition + " " + orderBy;
+    }
+
+    /**
+     * Splits the JQL query into the condition and the ORDER BY clause.
+     *
+     * @param jql the JQL query
+     * @return the trimmed condition and the trimmed ORDER BY clause, which is empty if not present
+     */
+    protected static String[] splitOrderBy(final String jql) {
+        final Matcher matcher = ORDER_BY_PATTERN.matcher(jql);
+        while (matcher.find()) {
+            if (matcher.group(1) != null) {
+                return new String[] { jql.substring(0, matcher.start(1)).trim(), jql.substring(matcher.start(1)).trim() };
+            }
+        }
+        return new String[] { jql.trim(), StringUtil.EMPTY };
+    }
+
+    /**
+     * Escapes a value to be quoted as a JQL string.
+     *
+     * @param value the value
+     * @return the escaped value
+     */
+    protected static String escapeJqlString(final String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
     }
 
     /**
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian.api.jira.adf;
+
+import java.io.IOException;
+
+import org.codelibs.fess.ds.atlassian.api.jira.domain.AdfDocument;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+
+/**
+ * Deserializer for fields that are either a string or a document in Atlassian Document Format (ADF).
+ * ADF objects are converted to {@link AdfDocument} by {@link AdfTextExtractor} from the JSON tokens
+ * without building a map of the document. Other values are deserialized as usual.
+ */
+public class AdfDeserializer extends JsonDeserializer<Object> {
+
+    @Override
+    public Object deserialize(final JsonParser parser, final DeserializationContext context) throws IOException {
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            return new AdfDocument(AdfTextExtractor.extract(parser));
+        }
+        return context.readValue(parser, Object.class);
+    }
+}
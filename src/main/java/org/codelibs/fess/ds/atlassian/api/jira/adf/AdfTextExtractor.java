@@ -0,0 +1,252 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian.api.jira.adf;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Extracts text from documents in Atlassian Document Format (ADF).
+ * Documents are walked iteratively with an explicit stack, so deeply nested documents do not overflow the call stack.
+ * The text of a document can be extracted from the JSON tokens while it is parsed, or from the map of an already parsed document.
+ */
+public final class AdfTextExtractor {
+
+    /** Node types separated from the surrounding text by line breaks. */
+    private static final Set<String> BLOCK_TYPES = Set.of("doc", "paragraph", "heading", "blockquote", "bulletList", "orderedList",
+            "listItem", "codeBlock", "panel", "rule", "table", "tableRow", "tableHeader", "tableCell", "mediaSingle", "mediaGroup",
+            "expand", "nestedExpand", "taskList", "taskItem", "decisionList", "decisionItem", "layoutSection", "layoutColumn", "blockCard",
+            "embedCard");
+
+    /** Node types whose URL is indexed. */
+    private static final Set<String> CARD_TYPES = Set.of("inlineCard", "blockCard", "embedCard");
+
+    private static final String TYPE = "type";
+
+    private static final String TEXT = "text";
+
+    private static final String ATTRS = "attrs";
+
+    private static final String CONTENT = "content";
+
+    private static final String URL = "url";
+
+    private static final String SHORT_NAME = "shortName";
+
+    private AdfTextExtractor() {
+        // utility class
+    }
+
+    /**
+     * Extracts the text of the ADF document read from the parser.
+     * The parser must be positioned at the start of the document object, and is positioned at its end when returning.
+     *
+     * @param parser the JSON parser
+     * @return the text of the document
+     * @throws IOException if the document cannot be read
+     */
+    public static String extract(final JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected an object, but was " + parser.currentToken());
+        }
+        final StringBuilder sb = new StringBuilder(256);
+        final Deque<Node> stack = new ArrayDeque<>();
+        stack.push(new Node());
+        while (!stack.isEmpty()) {
+            final JsonToken token = parser.nextToken();
+            if (token == null) {
+                throw new IOException("Unexpected end of the document.");
+            }
+            final Node node = stack.peek();
+            if (node.inContent) {
+                if (token == JsonToken.START_OBJECT) {
+                    stack.push(new Node());
+                } else if (token == JsonToken.END_ARRAY) {
+                    node.inContent = false;
+                } else {
+                    parser.skipChildren();
+                }
+            } else if (token == JsonToken.FIELD_NAME) {
+                final String name = parser.currentName();
+                final JsonToken value = parser.nextToken();
+                if (TYPE.equals(name) && value.isScalarValue()) {
+                    node.type = parser.getValueAsString();
+                } else if (TEXT.equals(name) && value.isScalarValue()) {
+                    node.text = parser.getValueAsString();
+                } else if (ATTRS.equals(name) && value == JsonToken.START_OBJECT) {
+                    readAttrs(parser, node);
+                } else if (CONTENT.equals(name) && value == JsonToken.START_ARRAY) {
+                    node.inContent = true;
+                } else {
+                    parser.skipChildren();
+                }
+            } else if (token == JsonToken.END_OBJECT) {
+                stack.pop();
+                appendNode(node.type, node.text, node.attrText, node.url, node.shortName, sb);
+            } else {
+                throw new IOException("Unexpected token: " + token);
+            }
+        }
+        return sb.toString().trim();
+    }
+
+    private static void readAttrs(final JsonParser parser, final Node node) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.currentName();
+            final JsonToken value = parser.nextToken();
+            if (value.isScalarValue()) {
+                if (TEXT.equals(name)) {
+                    node.attrText = parser.getValueAsString();
+                } else if (URL.equals(name)) {
+                    node.url = parser.getValueAsString();
+                } else if (SHORT_NAME.equals(name)) {
+                    node.shortName = parser.getValueAsString();
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Extracts the text of the ADF document parsed as maps and lists.
+     *
+     * @param adf the ADF document
+     * @return the text of the document
+     */
+    public static String extract(final Map<String, Object> adf) {
+        final StringBuilder sb = new StringBuilder(256);
+        extract(adf, sb);
+        return sb.toString().trim();
+    }
+
+    /**
+     * Extracts the text of the ADF object parsed as maps and lists, and appends it to the builder.
+     *
+     * @param adf the ADF object (Map or List)
+     * @param sb the builder to append the text to
+     */
+    public static void extract(final Object adf, final StringBuilder sb) {
+        final Deque<Object> stack = new ArrayDeque<>();
+        if (adf != null) {
+            stack.push(adf);
+        }
+        while (!stack.isEmpty()) {
+            final Object obj = stack.pop();
+            if (obj instanceof NodeEnd) {
+                final Map<?, ?> map = ((NodeEnd) obj).node;
+                final Object attrsObj = map.get(ATTRS);
+                final Map<?, ?> attrs = attrsObj instanceof Map ? (Map<?, ?>) attrsObj : Collections.emptyMap();
+                appendNode(toString(map.get(TYPE)), toString(map.get(TEXT)), toString(attrs.get(TEXT)), toString(attrs.get(URL)),
+                        toString(attrs.get(SHORT_NAME)), sb);
+            } else if (obj instanceof Map) {
+                final Map<?, ?> map = (Map<?, ?>) obj;
+                stack.push(new NodeEnd(map));
+                pushReversed(map.get(CONTENT), stack);
+            } else if (obj instanceof List) {
+                pushReversed(obj, stack);
+            }
+        }
+    }
+
+    private static void pushReversed(final Object content, final Deque<Object> stack) {
+        if (content instanceof List) {
+            final List<?> list = (List<?>) content;
+            for (int i = list.size() - 1; i >= 0; i--) {
+                final Object item = list.get(i);
+                if (item != null) {
+                    stack.push(item);
+                }
+            }
+        } else if (content instanceof Map) {
+            stack.push(content);
+        }
+    }
+
+    private static String toString(final Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static void appendNode(final String type, final String text, final String attrText, final String url,
+            final String shortName, final StringBuilder sb) {
+        if (type != null) {
+            switch (type) {
+            case "hardBreak":
+                sb.append('\n');
+                return;
+            case "mention":
+            case "status":
+                appendAtom(attrText, sb);
+                return;
+            case "emoji":
+                appendAtom(attrText != null ? attrText : shortName, sb);
+                return;
+            default:
+                if (CARD_TYPES.contains(type)) {
+                    appendAtom(url, sb);
+                }
+                break;
+            }
+        }
+        if (text != null) {
+            sb.append(text);
+        }
+        if (type != null && BLOCK_TYPES.contains(type) && sb.length() > 0 && sb.charAt(sb.length() - 1) != '\n') {
+            sb.append('\n');
+        }
+    }
+
+    private static void appendAtom(final String value, final StringBuilder sb) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        if (sb.length() > 0 && !Character.isWhitespace(sb.charAt(sb.length() - 1))) {
+            sb.append(' ');
+        }
+        sb.append(value);
+    }
+
+    /**
+     * A node being read from the JSON tokens.
+     */
+    private static class Node {
+        String type;
+        String text;
+        String attrText;
+        String url;
+        String shortName;
+        boolean inContent;
+    }
+
+    /**
+     * A marker of the end of a node in the map walk.
+     */
+    private static class NodeEnd {
+        final Map<?, ?> node;
+
+        NodeEnd(final Map<?, ?> node) {
+            this.node = node;
+        }
+    }
+}
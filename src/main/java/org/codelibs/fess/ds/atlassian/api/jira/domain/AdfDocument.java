@@ -0,0 +1,49 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian.api.jira.domain;
+
+/**
+ * Represents a document in Atlassian Document Format (ADF) such as an issue description or a comment body.
+ * Only the text of the document is kept, extracted while the JSON is parsed.
+ */
+public class AdfDocument {
+
+    /** The text of the document. */
+    protected final String text;
+
+    /**
+     * Constructs a new ADF document.
+     *
+     * @param text the text of the document
+     */
+    public AdfDocument(final String text) {
+        this.text = text;
+    }
+
+    /**
+     * Gets the text of the document.
+     *
+     * @return the text
+     */
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return "AdfDocument [text=" + text + "]";
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian.api.jira.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Represents a file attached to a JIRA issue.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class Attachment {
+
+    /** The ID of the attachment. */
+    protected String id;
+
+    /** The file name of the attachment. */
+    protected String filename;
+
+    /** The MIME type of the attachment. */
+    protected String mimeType;
+
+    /** The size of the attachment in bytes. */
+    protected Long size;
+
+    /** The URL of the content of the attachment. */
+    protected String content;
+
+    /**
+     * Default constructor.
+     */
+    public Attachment() {
+    }
+
+    /**
+     * Gets the attachment ID.
+     *
+     * @return the attachment ID
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the file name of the attachment.
+     *
+     * @return the file name
+     */
+    public String getFilename() {
+        return filename;
+    }
+
+    /**
+     * Gets the MIME type of the attachment.
+     *
+     * @return the MIME type
+     */
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    /**
+     * Gets the size of the attachment.
+     *
+     * @return the size in bytes, or null if not available
+     */
+    public Long getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the URL of the content of the attachment.
+     *
+     * @return the content URL
+     */
+    public String getContent() {
+        return content;
+    }
+
+    @Override
+    public String toString() {
+        return "Attachment [id=" + id + ", filename=" + filename + ", mimeType=" + mimeType + ", size=" + size + "]";
+    }
+
+}
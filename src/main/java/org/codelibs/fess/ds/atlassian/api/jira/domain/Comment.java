@@ -15,7 +15,10 @@
  */
 package org.codelibs.fess.ds.atlassian.api.jira.domain;
 
+import org.codelibs.fess.ds.atlassian.api.jira.adf.AdfDeserializer;
+
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 /**
  * Represents a comment on a JIRA issue.
@@ -24,6 +27,7 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 public class Comment {
 
     /** The body content of the comment. */
+    @JsonDeserialize(using = AdfDeserializer.class)
     protected Object body;
 
     /**
@@ -29,6 +29,9 @@ public class Comments {
     /** The total number of comments. */
     protected Long total;
 
+    /** The maximum number of comments in this page. */
+    protected Long maxResults;
+
     /** The list of comment objects. */
     protected List<Comment> comments;
 
@@ -47,6 +50,31 @@ public class Comments {
         return total;
     }
 
+    /**
+     * Gets the maximum number of comments in this page.
+     *
+     * @return the maximum number of comments
+     */
+    public Long getMaxResults() {
+        return maxResults;
+    }
+
+    /**
+     * Checks if this page contains all comments of the issue.
+     * If the total is not returned, a page filled up to maxResults is treated as truncated.
+     *
+     * @return true if all comments are contained, false if the page is truncated
+     */
+    public boolean isComplete() {
+        if (comments == null) {
+            return false;
+        }
+        if (total != null) {
+            return comments.size() >= total;
+        }
+        return maxResults == null || comments.size() < maxResults;
+    }
+
     /**
      * Gets the list of comments.
      *
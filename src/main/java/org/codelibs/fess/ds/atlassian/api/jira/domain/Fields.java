@@ -15,12 +15,17 @@
  */
 package org.codelibs.fess.ds.atlassian.api.jira.domain;
 
+import java.util.List;
+
+import org.codelibs.fess.ds.atlassian.api.jira.adf.AdfDeserializer;
+
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 /**
  * Represents the fields of a JIRA issue.
- * Contains essential information like summary, description, update time, and
- * comments.
+ * Contains essential information like summary, description, update time,
+ * comments, and attachments.
  */
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class Fields {
@@ -28,15 +33,22 @@ public class Fields {
     /** The summary of the issue. */
     protected String summary;
 
+    /** The created timestamp of the issue. */
+    protected String created;
+
     /** The last updated timestamp of the issue. */
     protected String updated;
 
     /** The description of the issue. */
+    @JsonDeserialize(using = AdfDeserializer.class)
     protected Object description;
 
     /** The comments associated with the issue. */
     protected Comments comment;
 
+    /** The attachments of the issue. */
+    protected List<Attachment> attachment;
+
     /**
      * Default constructor.
      */
@@ -52,6 +64,15 @@ public class Fields {
         return summary;
     }
 
+    /**
+     * Gets the created timestamp.
+     *
+     * @return the created timestamp
+     */
+    public String getCreated() {
+        return created;
+    }
+
     /**
      * Gets the last updated timestamp.
      *
@@ -79,6 +100,15 @@ public class Fields {
         return comment;
     }
 
+    /**
+     * Gets the issue attachments.
+     *
+     * @return the issue attachments, or null if not retrieved
+     */
+    public List<Attachment> getAttachment() {
+        return attachment;
+    }
+
     @Override
     public String toString() {
         return "Fields [summary=" + summary + ", updated=" + updated + ", description=" + description + "]";
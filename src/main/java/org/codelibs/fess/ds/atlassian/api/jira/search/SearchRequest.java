@@ -16,15 +16,20 @@
 package org.codelibs.fess.ds.atlassian.api.jira.search;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import org.codelibs.core.lang.StringUtil;
 import org.codelibs.curl.CurlException;
 import org.codelibs.curl.CurlResponse;
 import org.codelibs.fess.ds.atlassian.AtlassianDataStoreException;
 import org.codelibs.fess.ds.atlassian.api.AtlassianRequest;
+import org.codelibs.fess.ds.atlassian.api.jira.domain.Issue;
+
+import com.fasterxml.jackson.core.JsonParser;
 
 /**
  * Request class for searching JIRA issues using JQL (JIRA Query Language).
@@ -34,6 +39,7 @@ public class SearchRequest extends AtlassianRequest {
 
     private String jql;
     private Integer startAt;
+    private String nextPageToken;
     private Integer maxResults;
     private Boolean validateQuery;
     private String[] fields;
@@ -68,6 +74,18 @@ public class SearchRequest extends AtlassianRequest {
         return this;
     }
 
+    /**
+     * Sets the token of the page to retrieve.
+     * The token is returned as "nextPageToken" in the previous response.
+     *
+     * @param nextPageToken the next page token
+     * @return this request instance for method chaining
+     */
+    public SearchRequest nextPageToken(final String nextPageToken) {
+        this.nextPageToken = nextPageToken;
+        return this;
+    }
+
     /**
      * Sets the maximum number of results to return.
      *
@@ -130,6 +148,24 @@ public class SearchRequest extends AtlassianRequest {
         }
     }
 
+    /**
+     * Parses the JSON response from the stream and passes each issue to the consumer.
+     * Issues are not kept in the returned response.
+     *
+     * @param in the input stream of the JSON response
+     * @param consumer the consumer to process each issue
+     * @return the response without issues
+     * @throws AtlassianDataStoreException if parsing fails
+     */
+    public static SearchResponse parseResponse(final InputStream in, final Consumer<Issue> consumer) {
+        try (JsonParser parser = mapper.createParser(in)) {
+            final Map<String, Object> fieldMap = readArrayField(parser, "issues", p -> consumer.accept(p.readValueAs(Issue.class)));
+            return mapper.convertValue(fieldMap, SearchResponse.class);
+        } catch (final IOException e) {
+            throw new AtlassianDataStoreException("Failed to parse issues.", e);
+        }
+    }
+
     /**
      * Executes the search request and returns the response.
      *
@@ -147,6 +183,29 @@ public class SearchRequest extends AtlassianRequest {
         }
     }
 
+    /**
+     * Executes the search request and passes each issue to the consumer while parsing the response.
+     * The response body is buffered by the transport, in memory or in a temporary file if it is large,
+     * and is parsed from the buffer without building a string or a JSON tree of the whole page.
+     *
+     * @param consumer the consumer to process each issue
+     * @return the response without issues, containing paging information
+     * @throws AtlassianDataStoreException if the request fails
+     * @throws RuntimeException if the consumer fails, which is thrown as it is
+     */
+    public SearchResponse execute(final Consumer<Issue> consumer) {
+        try (CurlResponse response = getCurlResponse(GET)) {
+            if (response.getHttpStatusCode() != 200) {
+                throw new CurlException("HTTP Status : " + response.getHttpStatusCode() + ", error : " + response.getContentAsString());
+            }
+            try (InputStream in = response.getContentAsStream()) {
+                return parseResponse(in, consumer);
+            }
+        } catch (final CurlException | IOException e) {
+            throw new AtlassianDataStoreException("Failed to access " + this, e);
+        }
+    }
+
     @Override
     public String getURL() {
         return apiUrl + "/rest/api/3/search/jql";
@@ -161,6 +220,9 @@ public class SearchRequest extends AtlassianRequest {
         if (startAt != null) {
             queryParams.put("startAt", startAt.toString());
         }
+        if (nextPageToken != null && !nextPageToken.isEmpty()) {
+            queryParams.put("nextPageToken", nextPageToken);
+        }
         if (maxResults != null) {
             queryParams.put("maxResults", maxResults.toString());
         }
@@ -20,6 +20,7 @@ import java.util.List;
 import org.codelibs.fess.ds.atlassian.api.jira.domain.Issue;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
  * Response containing search results from JIRA.
@@ -34,6 +35,13 @@ public class SearchResponse {
     /** The list of issues returned by the search. */
     protected List<Issue> issues;
 
+    /** The token to retrieve the next page, or null if not available. */
+    protected String nextPageToken;
+
+    /** Whether this is the last page, or null if not reported. */
+    @JsonProperty("isLast")
+    protected Boolean last;
+
     /**
      * Default constructor for SearchResponse.
      */
@@ -59,6 +67,24 @@ public class SearchResponse {
         return issues;
     }
 
+    /**
+     * Returns the token to retrieve the next page.
+     *
+     * @return the next page token, or null if not available
+     */
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    /**
+     * Returns whether this is the last page.
+     *
+     * @return true if this is the last page, or null if not reported
+     */
+    public Boolean getLast() {
+        return last;
+    }
+
     /**
      * Creates a SearchResponse with the given list of issues.
      *
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian.api.transport;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.codelibs.curl.CurlResponse;
+import org.codelibs.curl.io.ContentCache;
+
+/**
+ * Base class of transports requesting compressed responses and decoding them.
+ * Large response bodies are written to temporary files instead of being kept in memory.
+ */
+public abstract class AbstractHttpTransport implements HttpTransport {
+
+    /** Accept-Encoding header name. */
+    protected static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+    /** Content-Encoding header name. */
+    protected static final String CONTENT_ENCODING = "Content-Encoding";
+
+    /** Content codings accepted by the transport. */
+    protected static final String ACCEPTED_ENCODINGS = "gzip, deflate";
+
+    /** The counters of the responses received by this transport. */
+    protected final TransferStats transferStats = new TransferStats();
+
+    /** Whether compressed responses are requested. */
+    protected boolean compression = true;
+
+    /** The maximum number of bytes of a response body kept in memory. */
+    protected int memoryThreshold = 1024 * 1024;
+
+    /**
+     * Sets whether compressed responses are requested.
+     *
+     * @param compression true to send Accept-Encoding: gzip, deflate
+     */
+    public void setCompression(final boolean compression) {
+        this.compression = compression;
+    }
+
+    @Override
+    public TransferStats getTransferStats() {
+        return transferStats;
+    }
+
+    /**
+     * Sets the maximum number of bytes of a response body kept in memory.
+     * Larger bodies are written to a temporary file.
+     *
+     * @param memoryThreshold the maximum number of bytes kept in memory
+     */
+    public void setMemoryThreshold(final int memoryThreshold) {
+        this.memoryThreshold = memoryThreshold;
+    }
+
+    /**
+     * Reads the whole response body and decodes it according to the content coding.
+     * The decoded body is kept in memory up to the memory threshold, and written to a temporary file beyond it.
+     *
+     * @param contentEncoding the Content-Encoding header value, or null if not present
+     * @param in the response body as transferred
+     * @param maxContentLength the maximum length of the decoded body, or a negative value for unlimited
+     * @return the decoded response body
+     * @throws IOException if the body cannot be read or decoded, or exceeds the maximum length
+     */
+    protected ContentCache readContent(final String contentEncoding, final InputStream in, final long maxContentLength)
+            throws IOException {
+        final CountingInputStream wireIn = new CountingInputStream(in);
+        final String coding = contentEncoding != null ? contentEncoding.trim().toLowerCase(Locale.ROOT) : "";
+        final boolean compressed;
+        final InputStream decodedIn;
+        switch (coding) {
+        case "gzip":
+        case "x-gzip":
+            decodedIn = new GZIPInputStream(wireIn, 8192);
+            compressed = true;
+            break;
+        case "deflate":
+            decodedIn = newInflaterInputStream(wireIn);
+            compressed = true;
+            break;
+        case "":
+        case "identity":
+            decodedIn = wireIn;
+            compressed = false;
+            break;
+        default:
+            wireIn.close();
+            throw new IOException("Unsupported content encoding: " + contentEncoding);
+        }
+
+        final byte[] buf = new byte[8192];
+        final ByteArrayOutputStream memoryOut = new ByteArrayOutputStream();
+        OutputStream out = memoryOut;
+        File file = null;
+        long length = 0;
+        try (InputStream decoded = decodedIn) {
+            int n;
+            while ((n = decoded.read(buf)) != -1) {
+                length += n;
+                if (maxContentLength >= 0 && length > maxContentLength) {
+                    throw new IOException("The content length exceeds " + maxContentLength + " bytes.");
+                }
+                if (file == null && length > memoryThreshold) {
+                    file = File.createTempFile("fess-ds-atlassian-", ".tmp");
+                    out = new BufferedOutputStream(new FileOutputStream(file));
+                    memoryOut.writeTo(out);
+                    memoryOut.reset();
+                }
+                out.write(buf, 0, n);
+            }
+            out.close();
+        } catch (final IOException | RuntimeException e) {
+            if (file != null) {
+                out.close();
+                Files.deleteIfExists(file.toPath());
+            }
+            throw e;
+        }
+        transferStats.record(compressed, wireIn.getCount(), length);
+        return file != null ? new ContentCache(file) : new ContentCache(memoryOut.toByteArray());
+    }
+
+    /**
+     * Gets the first value of a response header ignoring the case of the name.
+     *
+     * @param response the HTTP response
+     * @param name the header name
+     * @return the header value, or null if not present
+     */
+    protected static String getHeaderValue(final CurlResponse response, final String name) {
+        final Map<String, List<String>> headers = response.getHeaders();
+        if (headers != null) {
+            for (final Map.Entry<String, List<String>> entry : headers.entrySet()) {
+                if (name.equalsIgnoreCase(entry.getKey()) && entry.getValue() != null && !entry.getValue().isEmpty()) {
+                    return entry.getValue().get(0);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates a stream inflating a deflate body.
+     * The body is a zlib stream as defined by RFC 9110, but raw deflate data sent by some servers is also accepted.
+     *
+     * @param in the compressed body
+     * @return the inflating stream
+     * @throws IOException if the body cannot be read
+     */
+    protected static InputStream newInflaterInputStream(final InputStream in) throws IOException {
+        final PushbackInputStream pushbackIn = new PushbackInputStream(in, 2);
+        final byte[] header = pushbackIn.readNBytes(2);
+        pushbackIn.unread(header);
+        final boolean zlib = header.length == 2 && (header[0] & 0x0f) == 8 && (((header[0] & 0xff) << 8) | (header[1] & 0xff)) % 31 == 0;
+        return new InflaterInputStream(pushbackIn, new Inflater(!zlib), 8192) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inf.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Input stream counting the bytes read.
+     */
+    protected static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        /**
+         * Constructs a new counting stream.
+         *
+         * @param in the underlying stream
+         */
+        protected CountingInputStream(final InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            final int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            final long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        /**
+         * Gets the number of bytes read.
+         *
+         * @return the number of bytes read
+         */
+        public long getCount() {
+            return count;
+        }
+    }
+}
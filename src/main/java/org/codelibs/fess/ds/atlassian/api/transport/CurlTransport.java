@@ -0,0 +1,157 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian.api.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Proxy;
+import java.net.URI;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codelibs.curl.Curl;
+import org.codelibs.curl.CurlRequest;
+import org.codelibs.curl.CurlResponse;
+import org.codelibs.curl.io.ContentCache;
+
+/**
+ * Transport sending each request with curl4j on a new {@link java.net.HttpURLConnection}.
+ * Compressed response bodies are decoded after curl has read them.
+ */
+public class CurlTransport extends AbstractHttpTransport {
+
+    private static final Logger logger = LogManager.getLogger(CurlTransport.class);
+
+    /** HTTP connection timeout in milliseconds, or null for the default. */
+    protected final Integer connectionTimeout;
+
+    /** HTTP read timeout in milliseconds, or null for the default. */
+    protected final Integer readTimeout;
+
+    /** HTTP proxy, or null if not used. */
+    protected final Proxy proxy;
+
+    /**
+     * Constructs a new curl transport.
+     *
+     * @param connectionTimeout the connection timeout in milliseconds, or null for the default
+     * @param readTimeout the read timeout in milliseconds, or null for the default
+     * @param proxy the HTTP proxy, or null if not used
+     */
+    public CurlTransport(final Integer connectionTimeout, final Integer readTimeout, final Proxy proxy) {
+        this.connectionTimeout = connectionTimeout;
+        this.readTimeout = readTimeout;
+        this.proxy = proxy;
+    }
+
+    @Override
+    public CurlResponse execute(final String method, final URI uri, final Map<String, String> headers, final String body,
+            final long maxContentLength) throws IOException {
+        final CurlRequest request = createRequest(method, uri.toString());
+        headers.forEach(request::header);
+        if (compression) {
+            request.header(ACCEPT_ENCODING, ACCEPTED_ENCODINGS);
+        }
+        if (proxy != null) {
+            request.proxy(proxy);
+        }
+        if (body != null) {
+            request.body(body);
+        }
+        request.onConnect((req, con) -> {
+            if (logger.isDebugEnabled()) {
+                logger.debug("connectionTimeout: {}, readTimeout: {}", connectionTimeout, readTimeout);
+            }
+            if (connectionTimeout != null) {
+                con.setConnectTimeout(connectionTimeout);
+            }
+            if (readTimeout != null) {
+                con.setReadTimeout(readTimeout);
+            }
+        });
+        return decode(request.execute(), maxContentLength);
+    }
+
+    /**
+     * Decodes the compressed body of a response.
+     * A body without content coding is returned as buffered by curl without copying it.
+     *
+     * @param response the response read by curl
+     * @param maxContentLength the maximum length of the decoded body, or a negative value for unlimited
+     * @return the response holding the decoded body
+     * @throws IOException if the body cannot be read or decoded, or exceeds the maximum length
+     */
+    protected CurlResponse decode(final CurlResponse response, final long maxContentLength) throws IOException {
+        final String contentEncoding = getHeaderValue(response, CONTENT_ENCODING);
+        if (contentEncoding == null || contentEncoding.isBlank() || "identity".equalsIgnoreCase(contentEncoding.trim())) {
+            boolean accepted = false;
+            try {
+                final long length;
+                try (InputStream in = response.getContentAsStream()) {
+                    length = in.transferTo(OutputStream.nullOutputStream());
+                }
+                if (maxContentLength >= 0 && length > maxContentLength) {
+                    throw new IOException("The content length " + length + " exceeds " + maxContentLength + " bytes.");
+                }
+                transferStats.record(false, length, length);
+                accepted = true;
+                return response;
+            } finally {
+                if (!accepted) {
+                    response.close();
+                }
+            }
+        }
+        try (CurlResponse original = response) {
+            final ContentCache content = readContent(contentEncoding, original.getContentAsStream(), maxContentLength);
+            final CurlResponse decoded = new CurlResponse();
+            decoded.setHttpStatusCode(original.getHttpStatusCode());
+            decoded.setHeaders(original.getHeaders());
+            decoded.setEncoding(original.getEncoding());
+            decoded.setContentCache(content);
+            return decoded;
+        }
+    }
+
+    /**
+     * Creates a curl request for the HTTP method.
+     *
+     * @param method the HTTP method
+     * @param url the request URL
+     * @return the curl request
+     */
+    protected CurlRequest createRequest(final String method, final String url) {
+        switch (method) {
+        case "GET":
+            return Curl.get(url);
+        case "POST":
+            return Curl.post(url);
+        case "PUT":
+            return Curl.put(url);
+        case "DELETE":
+            return Curl.delete(url);
+        default:
+            throw new IllegalArgumentException("Invalid request method : " + method);
+        }
+    }
+
+    @Override
+    public void close() {
+        // connections are not kept
+    }
+}
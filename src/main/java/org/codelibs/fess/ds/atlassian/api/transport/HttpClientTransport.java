@@ -0,0 +1,182 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian.api.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codelibs.curl.CurlResponse;
+import org.codelibs.curl.io.ContentCache;
+
+/**
+ * Transport sending requests with a {@link HttpClient} shared by all requests of a client.
+ * Connections are kept alive and reused, HTTP/2 is used if the server supports it,
+ * and TLS sessions are shared by the connections of the client.
+ * The number of concurrent requests to a route (scheme, host and port) can be limited.
+ * Responses are requested with gzip or deflate compression, and decoded as they are read.
+ */
+public class HttpClientTransport extends AbstractHttpTransport {
+
+    private static final Logger logger = LogManager.getLogger(HttpClientTransport.class);
+
+    /** The HTTP client. */
+    protected final HttpClient httpClient;
+
+    /** HTTP read timeout, or null for no timeout. */
+    protected final Duration readTimeout;
+
+    /** The maximum number of concurrent requests to a route, 0 or less for unlimited. */
+    protected final int maxConnectionsPerRoute;
+
+    /** The semaphores limiting concurrent requests by route. */
+    protected final Map<String, Semaphore> routeSemaphores = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new transport.
+     *
+     * @param connectionTimeout the connection timeout in milliseconds, or null for the default
+     * @param readTimeout the read timeout in milliseconds, or null for no timeout
+     * @param proxy the HTTP proxy, or null if not used
+     * @param maxConnectionsPerRoute the maximum number of concurrent requests to a route, 0 or less for unlimited
+     */
+    public HttpClientTransport(final Integer connectionTimeout, final Integer readTimeout, final Proxy proxy,
+            final int maxConnectionsPerRoute) {
+        final HttpClient.Builder builder =
+                HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).followRedirects(HttpClient.Redirect.NORMAL);
+        if (connectionTimeout != null) {
+            builder.connectTimeout(Duration.ofMillis(connectionTimeout));
+        }
+        if (proxy != null && proxy.type() == Proxy.Type.HTTP) {
+            builder.proxy(ProxySelector.of((InetSocketAddress) proxy.address()));
+        }
+        httpClient = builder.build();
+        this.readTimeout = readTimeout != null ? Duration.ofMillis(readTimeout) : null;
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    @Override
+    public CurlResponse execute(final String method, final URI uri, final Map<String, String> headers, final String body,
+            final long maxContentLength) throws IOException, InterruptedException {
+        final HttpRequest.Builder builder = HttpRequest.newBuilder(uri);
+        if (readTimeout != null) {
+            builder.timeout(readTimeout);
+        }
+        headers.forEach(builder::header);
+        if (compression) {
+            builder.header(ACCEPT_ENCODING, ACCEPTED_ENCODINGS);
+        }
+        final BodyPublisher publisher = body != null ? BodyPublishers.ofString(body, StandardCharsets.UTF_8) : BodyPublishers.noBody();
+        builder.method(method, publisher);
+
+        final Semaphore semaphore = getRouteSemaphore(uri);
+        if (semaphore == null) {
+            return send(builder.build(), maxContentLength);
+        }
+        semaphore.acquire();
+        try {
+            return send(builder.build(), maxContentLength);
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    /**
+     * Sends a request and reads the whole response, decoding the compressed body.
+     *
+     * @param request the HTTP request
+     * @param maxContentLength the maximum length of the decoded body, or a negative value for unlimited
+     * @return the HTTP response
+     * @throws IOException if the request fails or the body exceeds the maximum length
+     * @throws InterruptedException if interrupted while waiting for the response
+     */
+    protected CurlResponse send(final HttpRequest request, final long maxContentLength) throws IOException, InterruptedException {
+        final HttpResponse<InputStream> response = httpClient.send(request, BodyHandlers.ofInputStream());
+        final HttpHeaders headers = response.headers();
+        final String contentEncoding = headers.firstValue(CONTENT_ENCODING).orElse(null);
+        final long contentLength = headers.firstValueAsLong("Content-Length").orElse(-1L);
+        if (maxContentLength >= 0 && contentEncoding == null && contentLength > maxContentLength) {
+            response.body().close();
+            throw new IOException("The content length " + contentLength + " exceeds " + maxContentLength + " bytes.");
+        }
+        final ContentCache content = readContent(contentEncoding, response.body(), maxContentLength);
+        if (logger.isDebugEnabled()) {
+            logger.debug("{} {} {} {}", response.version(), request.method(), request.uri(), response.statusCode());
+        }
+
+        final CurlResponse curlResponse = new CurlResponse();
+        curlResponse.setHttpStatusCode(response.statusCode());
+        curlResponse.setHeaders(headers.map());
+        curlResponse.setEncoding(getCharset(headers.firstValue("Content-Type").orElse(null)));
+        curlResponse.setContentCache(content);
+        return curlResponse;
+    }
+
+    /**
+     * Gets the semaphore limiting concurrent requests to the route of the URI.
+     *
+     * @param uri the request URI
+     * @return the semaphore, or null if unlimited
+     */
+    protected Semaphore getRouteSemaphore(final URI uri) {
+        if (maxConnectionsPerRoute <= 0) {
+            return null;
+        }
+        final String route = uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+        return routeSemaphores.computeIfAbsent(route, k -> new Semaphore(maxConnectionsPerRoute, true));
+    }
+
+    /**
+     * Gets the charset of the content type.
+     *
+     * @param contentType the content type header value, or null if not present
+     * @return the charset name, defaults to UTF-8
+     */
+    protected static String getCharset(final String contentType) {
+        if (contentType != null) {
+            for (final String param : contentType.split(";")) {
+                final String value = param.trim();
+                if (value.toLowerCase(Locale.ROOT).startsWith("charset=")) {
+                    return value.substring("charset=".length()).replace("\"", "").trim();
+                }
+            }
+        }
+        return StandardCharsets.UTF_8.name();
+    }
+
+    @Override
+    public void close() {
+        httpClient.close();
+    }
+}
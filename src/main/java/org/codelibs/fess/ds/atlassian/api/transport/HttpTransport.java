@@ -0,0 +1,72 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian.api.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+
+import org.codelibs.curl.CurlResponse;
+
+/**
+ * Transport sending HTTP requests to an Atlassian instance.
+ * A transport is owned by a client and may keep connections open until it is closed.
+ * Compressed response bodies are decoded by the transport.
+ */
+public interface HttpTransport extends Closeable {
+
+    /**
+     * Sends a request and reads the whole response.
+     *
+     * @param method the HTTP method
+     * @param uri the request URI including the query parameters
+     * @param headers the request headers
+     * @param body the request body, or null if no body
+     * @return the HTTP response
+     * @throws IOException if the request fails
+     * @throws InterruptedException if interrupted while waiting for the response
+     */
+    default CurlResponse execute(final String method, final URI uri, final Map<String, String> headers, final String body)
+            throws IOException, InterruptedException {
+        return execute(method, uri, headers, body, -1L);
+    }
+
+    /**
+     * Sends a request and reads the whole response, failing if the decoded body exceeds the maximum length.
+     *
+     * @param method the HTTP method
+     * @param uri the request URI including the query parameters
+     * @param headers the request headers
+     * @param body the request body, or null if no body
+     * @param maxContentLength the maximum length of the decoded body, or a negative value for unlimited
+     * @return the HTTP response
+     * @throws IOException if the request fails or the body exceeds the maximum length
+     * @throws InterruptedException if interrupted while waiting for the response
+     */
+    CurlResponse execute(String method, URI uri, Map<String, String> headers, String body, long maxContentLength)
+            throws IOException, InterruptedException;
+
+    /**
+     * Gets the counters of the responses received by this transport.
+     *
+     * @return the transfer stats
+     */
+    TransferStats getTransferStats();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian.api.transport;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the responses received by a transport.
+ * The wire bytes are the bytes of the response bodies as transferred, possibly compressed,
+ * and the content bytes are the bytes of the decoded bodies.
+ */
+public class TransferStats {
+
+    /** The number of responses. */
+    protected final LongAdder responses = new LongAdder();
+
+    /** The number of compressed responses. */
+    protected final LongAdder compressedResponses = new LongAdder();
+
+    /** The number of bytes transferred. */
+    protected final LongAdder wireBytes = new LongAdder();
+
+    /** The number of bytes after decoding. */
+    protected final LongAdder contentBytes = new LongAdder();
+
+    /**
+     * Records a response.
+     *
+     * @param compressed true if the response body was compressed
+     * @param wireBytes the number of bytes transferred
+     * @param contentBytes the number of bytes after decoding
+     */
+    public void record(final boolean compressed, final long wireBytes, final long contentBytes) {
+        responses.increment();
+        if (compressed) {
+            compressedResponses.increment();
+        }
+        this.wireBytes.add(wireBytes);
+        this.contentBytes.add(contentBytes);
+    }
+
+    /**
+     * Gets the number of responses.
+     *
+     * @return the number of responses
+     */
+    public long getResponses() {
+        return responses.sum();
+    }
+
+    /**
+     * Gets the number of compressed responses.
+     *
+     * @return the number of compressed responses
+     */
+    public long getCompressedResponses() {
+        return compressedResponses.sum();
+    }
+
+    /**
+     * Gets the number of bytes transferred.
+     *
+     * @return the number of bytes transferred
+     */
+    public long getWireBytes() {
+        return wireBytes.sum();
+    }
+
+    /**
+     * Gets the number of bytes after decoding.
+     *
+     * @return the number of bytes after decoding
+     */
+    public long getContentBytes() {
+        return contentBytes.sum();
+    }
+
+    /**
+     * Gets the number of bytes saved by compression.
+     *
+     * @return the number of bytes saved
+     */
+    public long getSavedBytes() {
+        return getContentBytes() - getWireBytes();
+    }
+
+    @Override
+    public String toString() {
+        return "TransferStats [responses=" + getResponses() + ", compressedResponses=" + getCompressedResponses() + ", wireBytes="
+                + getWireBytes() + ", contentBytes=" + getContentBytes() + ", savedBytes=" + getSavedBytes() + "]";
+    }
+}
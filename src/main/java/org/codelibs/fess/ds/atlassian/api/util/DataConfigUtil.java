@@ -0,0 +1,77 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian.api.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codelibs.core.lang.StringUtil;
+import org.codelibs.fess.opensearch.config.exbhv.DataConfigBhv;
+import org.codelibs.fess.opensearch.config.exentity.DataConfig;
+import org.codelibs.fess.util.ComponentUtil;
+
+/**
+ * Utility class for persisting handler parameters of a DataConfig.
+ */
+public class DataConfigUtil {
+    private static final Logger logger = LogManager.getLogger(DataConfigUtil.class);
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private DataConfigUtil() {
+        // do nothing
+    }
+
+    /**
+     * Merges the given values into the handler parameters of the DataConfig and stores it.
+     * Existing parameters are kept in their original order and new parameters are appended.
+     *
+     * @param dataConfig the data configuration to update
+     * @param params the parameters to set
+     */
+    public static void updateHandlerParameters(final DataConfig dataConfig, final Map<String, String> params) {
+        synchronized (dataConfig) {
+            final Map<String, String> paramMap = new LinkedHashMap<>(dataConfig.getHandlerParameterMap());
+            paramMap.putAll(params);
+            dataConfig.setHandlerParameter(toParameterString(paramMap));
+            ComponentUtil.getComponent(DataConfigBhv.class).update(dataConfig);
+        }
+        logger.info("Updated DataConfig: {}", dataConfig.getId());
+    }
+
+    /**
+     * Converts the parameter map to the handler parameter format.
+     *
+     * @param paramMap the parameter map
+     * @return the handler parameter string
+     */
+    public static String toParameterString(final Map<String, String> paramMap) {
+        return paramMap.entrySet().stream().map(e -> {
+            String value = e.getValue();
+            if (value != null) {
+                // Escape value.
+                value = value.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r");
+            } else {
+                value = StringUtil.EMPTY;
+            }
+            return e.getKey() + "=" + value;
+        }).collect(Collectors.joining("\n"));
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian.api.util;
+
+import java.io.Closeable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codelibs.fess.opensearch.config.exentity.DataConfig;
+
+/**
+ * Writer persisting handler parameters of a DataConfig in the background.
+ * Parameters written within the delay are coalesced, so only the latest value of each parameter is stored,
+ * and the caller does not wait for the index write. Failed writes are retried with exponential backoff,
+ * and parameters still pending are stored on the closing thread when the writer is closed.
+ */
+public class DataConfigWriter implements Closeable {
+    private static final Logger logger = LogManager.getLogger(DataConfigWriter.class);
+
+    /** The default delay in milliseconds before pending parameters are stored. */
+    public static final long DEFAULT_DELAY = 1000L;
+
+    /** The default maximum delay in milliseconds before a failed write is retried. */
+    public static final long DEFAULT_MAX_RETRY_DELAY = 60000L;
+
+    /** The maximum time in milliseconds to wait for a running write when closing. */
+    protected static final long CLOSE_TIMEOUT = 30000L;
+
+    /** The data configuration to update. */
+    protected final DataConfig dataConfig;
+
+    /** The delay in milliseconds before pending parameters are stored. */
+    protected final long delay;
+
+    /** The maximum delay in milliseconds before a failed write is retried. */
+    protected final long maxRetryDelay;
+
+    /** The executor storing the parameters. */
+    protected final ScheduledThreadPoolExecutor executor;
+
+    /** The parameters not stored yet. */
+    protected Map<String, String> pending = new LinkedHashMap<>();
+
+    /** Whether a write is scheduled. */
+    protected boolean scheduled;
+
+    /** The number of consecutive failed writes. */
+    protected int failures;
+
+    /** Whether the writer is closed. */
+    protected boolean closed;
+
+    /**
+     * Constructs a new writer with the default delays.
+     *
+     * @param dataConfig the data configuration to update
+     */
+    public DataConfigWriter(final DataConfig dataConfig) {
+        this(dataConfig, DEFAULT_DELAY, DEFAULT_MAX_RETRY_DELAY);
+    }
+
+    /**
+     * Constructs a new writer.
+     *
+     * @param dataConfig the data configuration to update
+     * @param delay the delay in milliseconds before pending parameters are stored
+     * @param maxRetryDelay the maximum delay in milliseconds before a failed write is retried
+     */
+    public DataConfigWriter(final DataConfig dataConfig, final long delay, final long maxRetryDelay) {
+        this.dataConfig = dataConfig;
+        this.delay = delay;
+        this.maxRetryDelay = maxRetryDelay;
+        executor = new ScheduledThreadPoolExecutor(1, r -> {
+            final Thread thread = new Thread(r, "DataConfigWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Writes the parameters in the background.
+     * Values replace pending values of the same parameters.
+     *
+     * @param params the parameters to set
+     */
+    public synchronized void write(final Map<String, String> params) {
+        pending.putAll(params);
+        if (closed) {
+            // stored when closing
+            return;
+        }
+        schedule(delay);
+    }
+
+    /**
+     * Schedules the write of the pending parameters unless already scheduled.
+     * Must be called while holding the lock of this writer.
+     *
+     * @param delayMillis the delay in milliseconds
+     */
+    protected void schedule(final long delayMillis) {
+        if (scheduled) {
+            return;
+        }
+        scheduled = true;
+        executor.schedule(this::flush, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stores the pending parameters. If the write fails, the parameters are kept unless newer values are written,
+     * and the write is retried.
+     */
+    protected void flush() {
+        final Map<String, String> params;
+        synchronized (this) {
+            scheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            params = pending;
+            pending = new LinkedHashMap<>();
+        }
+        try {
+            store(params);
+            synchronized (this) {
+                failures = 0;
+            }
+        } catch (final Exception e) {
+            synchronized (this) {
+                final Map<String, String> merged = new LinkedHashMap<>(params);
+                merged.putAll(pending);
+                pending = merged;
+                failures++;
+                if (closed) {
+                    return;
+                }
+                final long retryDelay = getRetryDelay(failures);
+                logger.warn("Failed to update DataConfig: {}. Retrying in {} ms.", dataConfig.getId(), retryDelay, e);
+                schedule(retryDelay);
+            }
+        }
+    }
+
+    /**
+     * Gets the delay before retrying a failed write.
+     *
+     * @param failureCount the number of consecutive failures
+     * @return the delay in milliseconds
+     */
+    protected long getRetryDelay(final int failureCount) {
+        final long retryDelay = Math.max(delay, 1L) << Math.min(failureCount, 20);
+        return Math.min(retryDelay, maxRetryDelay);
+    }
+
+    /**
+     * Stores the parameters into the DataConfig.
+     *
+     * @param params the parameters to set
+     */
+    protected void store(final Map<String, String> params) {
+        DataConfigUtil.updateHandlerParameters(dataConfig, params);
+    }
+
+    /**
+     * Stops the background writes and stores the pending parameters on the calling thread.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                logger.warn("DataConfig writer did not finish in {} ms.", CLOSE_TIMEOUT);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        synchronized (this) {
+            if (!pending.isEmpty()) {
+                logger.warn("Could not store parameters {} of DataConfig: {}", pending.keySet(), dataConfig.getId());
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian.api.util;
+
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.util.Locale;
+
+/**
+ * Utility class for parsing timestamps returned by the Atlassian REST APIs.
+ * The formatter is immutable and thread-safe, so it is shared instead of creating a date format for each document.
+ */
+public class DateUtil {
+
+    /**
+     * Formatter of Atlassian timestamps, such as {@code 2024-01-31T12:34:56.789+0000} (JIRA)
+     * and {@code 2024-01-31T12:34:56.789Z} (Confluence).
+     * Fractions of seconds are optional, the offset may be {@code Z}, {@code +HH:MM}, {@code +HHMM} or {@code +HH},
+     * and timestamps without an offset are in UTC.
+     */
+    public static final DateTimeFormatter TIMESTAMP_FORMATTER = new DateTimeFormatterBuilder().append(DateTimeFormatter.ISO_LOCAL_DATE)
+            .appendLiteral('T')
+            .appendValue(ChronoField.HOUR_OF_DAY, 2)
+            .appendLiteral(':')
+            .appendValue(ChronoField.MINUTE_OF_HOUR, 2)
+            .optionalStart()
+            .appendLiteral(':')
+            .appendValue(ChronoField.SECOND_OF_MINUTE, 2)
+            .optionalStart()
+            .appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true)
+            .optionalEnd()
+            .optionalEnd()
+            .optionalStart()
+            .appendOffset("+HH:MM", "Z")
+            .optionalEnd()
+            .optionalStart()
+            .appendOffset("+HHmm", "Z")
+            .optionalEnd()
+            .parseDefaulting(ChronoField.OFFSET_SECONDS, 0)
+            .toFormatter(Locale.ROOT);
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private DateUtil() {
+        // do nothing
+    }
+
+    /**
+     * Parses an Atlassian timestamp.
+     *
+     * @param value the timestamp
+     * @return the instant
+     * @throws DateTimeParseException if the timestamp cannot be parsed
+     */
+    public static Instant parseInstant(final CharSequence value) {
+        return TIMESTAMP_FORMATTER.parse(value, Instant::from);
+    }
+
+    /**
+     * Parses an Atlassian timestamp as milliseconds from the epoch.
+     *
+     * @param value the timestamp
+     * @return the milliseconds from the epoch
+     * @throws DateTimeParseException if the timestamp cannot be parsed
+     */
+    public static long parseEpochMilli(final CharSequence value) {
+        return parseInstant(value).toEpochMilli();
+    }
+}
@@ -26,12 +26,15 @@ import java.security.Signature;
 import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.TreeMap;
-import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -53,6 +56,16 @@ public class OAuthUtil {
     /** OAuth signature method used for RSA-SHA1 signing. */
     private static final String SIGNATURE_METHOD = "RSA-SHA1";
 
+    /** Signature algorithm of the OAuth signature method. */
+    public static final String SIGNATURE_ALGORITHM = "SHA1withRSA";
+
+    /** Upper case hexadecimal digits of percent-encoding. */
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /** Order of encoded parameters by name, then by value. */
+    private static final Comparator<String[]> PARAMETER_COMPARATOR =
+            Comparator.<String[], String> comparing(p -> p[0]).thenComparing(p -> p[1]);
+
     /**
      * Private constructor to prevent instantiation.
      */
@@ -95,7 +108,23 @@ public class OAuthUtil {
         final String nonce = generateNonce();
         final String timestamp = generateTimestamp();
         final String signature = generateSignature(consumerKey, privateKey, token, verifier, nonce, timestamp, requestMethod, url);
-        final StringBuilder buf = new StringBuilder("OAuth");
+        return buildAuthorizationHeader(consumerKey, token, verifier, nonce, timestamp, signature);
+    }
+
+    /**
+     * Builds the OAuth Authorization header from the signed parameters.
+     *
+     * @param consumerKey the OAuth consumer key
+     * @param token the OAuth access token
+     * @param verifier the OAuth verifier
+     * @param nonce the OAuth nonce
+     * @param timestamp the OAuth timestamp
+     * @param signature the OAuth signature
+     * @return the OAuth Authorization header value
+     */
+    public static String buildAuthorizationHeader(final String consumerKey, final String token, final String verifier, final String nonce,
+            final String timestamp, final String signature) {
+        final StringBuilder buf = new StringBuilder(512).append("OAuth");
         appendParameter(buf, "oauth_consumer_key", consumerKey);
         appendParameter(buf, "oauth_nonce", nonce);
         appendParameter(buf, "oauth_signature", signature);
@@ -108,27 +137,74 @@ public class OAuthUtil {
 
     /**
      * Appends an OAuth parameter to the authorization header buffer.
+     * Parameters without a value are not appended.
      *
      * @param buf the string buffer to append to
      * @param name the parameter name
-     * @param value the parameter value
+     * @param value the parameter value, or null
      */
     public static void appendParameter(final StringBuilder buf, final String name, final String value) {
-        buf.append(' ').append(UrlUtil.encode(name)).append("=\"").append(UrlUtil.encode(value)).append("\",");
+        if (value == null) {
+            return;
+        }
+        buf.append(' ');
+        appendPercentEncoded(buf, name);
+        buf.append("=\"");
+        appendPercentEncoded(buf, value);
+        buf.append("\",");
     }
 
     /**
      * Extracts query parameters from a URL into a map.
+     * Values are split at the first '=', and parameters without a value have an empty value.
+     * If a parameter is repeated, the last value is kept.
      *
      * @param url the URL to extract parameters from
      * @return map of query parameter names to values
      */
     public static Map<String, String> getQueryMapFromUrl(final URL url) {
-        final String query = url.getQuery();
-        if (query == null) {
+        final List<String[]> parameters = getQueryParameters(url);
+        if (parameters.isEmpty()) {
             return Collections.emptyMap();
         }
-        return Arrays.stream(query.split("&")).collect(Collectors.toMap(p -> p.split("=")[0], p -> UrlUtil.decode(p.split("=")[1])));
+        final Map<String, String> queryMap = new LinkedHashMap<>();
+        for (final String[] parameter : parameters) {
+            queryMap.put(parameter[0], parameter[1]);
+        }
+        return queryMap;
+    }
+
+    /**
+     * Extracts the decoded query parameters of a URL in order, keeping repeated parameters.
+     * Values are split at the first '=', and parameters without a value have an empty value.
+     *
+     * @param url the URL to extract parameters from
+     * @return the list of decoded name and value pairs
+     */
+    public static List<String[]> getQueryParameters(final URL url) {
+        final String query = url.getQuery();
+        if (StringUtil.isEmpty(query)) {
+            return Collections.emptyList();
+        }
+        final List<String[]> parameters = new ArrayList<>();
+        int start = 0;
+        while (start <= query.length()) {
+            int end = query.indexOf('&', start);
+            if (end == -1) {
+                end = query.length();
+            }
+            if (end > start) {
+                final int eq = query.indexOf('=', start);
+                if (eq != -1 && eq < end) {
+                    parameters.add(
+                            new String[] { UrlUtil.decode(query.substring(start, eq)), UrlUtil.decode(query.substring(eq + 1, end)) });
+                } else {
+                    parameters.add(new String[] { UrlUtil.decode(query.substring(start, end)), StringUtil.EMPTY });
+                }
+            }
+            start = end + 1;
+        }
+        return parameters;
     }
 
     /**
@@ -146,25 +222,131 @@ public class OAuthUtil {
      */
     public static String generateSignature(final String consumerKey, final PrivateKey privateKey, final String token, final String verifier,
             final String nonce, final String timestamp, final String requestMethod, final URL url) {
+        return computeSignature(privateKey, getSignatureBaseString(consumerKey, token, verifier, nonce, timestamp, requestMethod, url));
+    }
+
+    /**
+     * Builds the signature base string of a request as defined in RFC 5849, section 3.4.1.
+     * The OAuth parameters and the query parameters are percent-encoded and sorted,
+     * and the normalized parameter string is encoded again while it is appended, without building it as a string.
+     *
+     * @param consumerKey the OAuth consumer key
+     * @param token the OAuth access token
+     * @param verifier the OAuth verifier
+     * @param nonce the OAuth nonce
+     * @param timestamp the OAuth timestamp
+     * @param requestMethod the HTTP request method
+     * @param url the request URL
+     * @return the signature base string
+     */
+    public static String getSignatureBaseString(final String consumerKey, final String token, final String verifier, final String nonce,
+            final String timestamp, final String requestMethod, final URL url) {
+        final List<String[]> queryParameters = getQueryParameters(url);
+        final String[][] parameters = new String[queryParameters.size() + 6][];
+        int size = 0;
+        size = addEncodedParameter(parameters, size, "oauth_consumer_key", consumerKey);
+        size = addEncodedParameter(parameters, size, "oauth_nonce", nonce);
+        size = addEncodedParameter(parameters, size, "oauth_signature_method", SIGNATURE_METHOD);
+        size = addEncodedParameter(parameters, size, "oauth_timestamp", timestamp);
+        size = addEncodedParameter(parameters, size, "oauth_token", token);
+        size = addEncodedParameter(parameters, size, "oauth_verifier", verifier);
+        for (final String[] parameter : queryParameters) {
+            size = addEncodedParameter(parameters, size, parameter[0], parameter[1]);
+        }
+        Arrays.sort(parameters, 0, size, PARAMETER_COMPARATOR);
+
+        final StringBuilder buf = new StringBuilder(256 + size * 32);
+        appendPercentEncoded(buf, requestMethod.toUpperCase(Locale.ROOT));
+        buf.append('&');
+        appendPercentEncoded(buf, getBaseStringUri(url));
+        buf.append('&');
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                buf.append("%26");
+            }
+            appendPercentEncoded(buf, parameters[i][0]);
+            buf.append("%3D");
+            appendPercentEncoded(buf, parameters[i][1]);
+        }
+        return buf.toString();
+    }
+
+    private static int addEncodedParameter(final String[][] parameters, final int size, final String name, final String value) {
+        if (value == null) {
+            return size;
+        }
+        parameters[size] = new String[] { percentEncode(name), percentEncode(value) };
+        return size + 1;
+    }
 
-        final Map<String, String> parameters = new TreeMap<>();
-        parameters.put("oauth_consumer_key", consumerKey);
-        parameters.put("oauth_nonce", nonce);
-        parameters.put("oauth_signature_method", SIGNATURE_METHOD);
-        parameters.put("oauth_timestamp", timestamp);
-        parameters.put("oauth_token", token);
-        parameters.put("oauth_verifier", verifier);
+    /**
+     * Builds the base string URI of a request as defined in RFC 5849, section 3.4.1.2.
+     * The scheme and host are lowercased, the default port is omitted, and the query and fragment are excluded.
+     *
+     * @param url the request URL
+     * @return the base string URI
+     */
+    public static String getBaseStringUri(final URL url) {
+        final String scheme = url.getProtocol().toLowerCase(Locale.ROOT);
+        final StringBuilder buf = new StringBuilder(128).append(scheme).append("://").append(url.getHost().toLowerCase(Locale.ROOT));
+        final int port = url.getPort();
+        if (port != -1 && port != url.getDefaultPort()) {
+            buf.append(':').append(port);
+        }
+        final String path = url.getPath();
+        buf.append(StringUtil.isEmpty(path) ? "/" : path);
+        return buf.toString();
+    }
 
-        parameters.putAll(getQueryMapFromUrl(url));
+    /**
+     * Percent-encodes a value as defined in RFC 5849, section 3.6.
+     * Only unreserved characters are kept, and spaces are encoded as "%20".
+     *
+     * @param value the value to encode
+     * @return the encoded value
+     */
+    public static String percentEncode(final String value) {
+        final StringBuilder buf = new StringBuilder(value.length() + 16);
+        appendPercentEncoded(buf, value);
+        return buf.toString();
+    }
 
-        final String normalizedParameters = UrlUtil.buildQueryParameters(parameters);
-        final String normalizedPath = url.getProtocol() + "://" + url.getAuthority() + url.getPath();
-        final StringBuilder signatureBaseString = new StringBuilder();
-        signatureBaseString.append(UrlUtil.encode(requestMethod)).append('&');
-        signatureBaseString.append(UrlUtil.encode(normalizedPath)).append('&');
-        signatureBaseString.append(UrlUtil.encode(normalizedParameters));
+    /**
+     * Appends a value percent-encoded as defined in RFC 5849, section 3.6.
+     * The value is encoded as UTF-8 without creating a byte array, and unpaired surrogates are encoded as '?'.
+     *
+     * @param buf the buffer to append to
+     * @param value the value to encode
+     */
+    protected static void appendPercentEncoded(final StringBuilder buf, final CharSequence value) {
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '-' || c == '.' || c == '_' || c == '~') {
+                buf.append(c);
+            } else if (c < 0x80) {
+                appendEncodedByte(buf, c);
+            } else if (c < 0x800) {
+                appendEncodedByte(buf, 0xc0 | c >> 6);
+                appendEncodedByte(buf, 0x80 | c & 0x3f);
+            } else if (!Character.isSurrogate(c)) {
+                appendEncodedByte(buf, 0xe0 | c >> 12);
+                appendEncodedByte(buf, 0x80 | c >> 6 & 0x3f);
+                appendEncodedByte(buf, 0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                appendEncodedByte(buf, 0xf0 | codePoint >> 18);
+                appendEncodedByte(buf, 0x80 | codePoint >> 12 & 0x3f);
+                appendEncodedByte(buf, 0x80 | codePoint >> 6 & 0x3f);
+                appendEncodedByte(buf, 0x80 | codePoint & 0x3f);
+            } else {
+                appendEncodedByte(buf, '?');
+            }
+        }
+    }
 
-        return computeSignature(privateKey, signatureBaseString.toString());
+    private static void appendEncodedByte(final StringBuilder buf, final int b) {
+        buf.append('%').append(HEX_DIGITS[b >> 4 & 0xf]).append(HEX_DIGITS[b & 0xf]);
     }
 
     /**
@@ -197,7 +379,7 @@ public class OAuthUtil {
      */
     public static String computeSignature(final PrivateKey privateKey, final String signatureBaseString) {
         try {
-            final Signature signature = Signature.getInstance("SHA1withRSA");
+            final Signature signature = Signature.getInstance(SIGNATURE_ALGORITHM);
             signature.initSign(privateKey);
             signature.update(signatureBaseString.getBytes(StandardCharsets.UTF_8));
             return Base64.getEncoder().encodeToString(signature.sign());
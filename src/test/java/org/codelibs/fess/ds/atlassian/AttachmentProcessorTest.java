@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class AttachmentProcessorTest extends UnitDsTestCase {
+
+    @Override
+    protected boolean isSuppressTestCaseTransaction() {
+        return true;
+    }
+
+    @Test
+    public void test_accept() {
+        try (final AttachmentProcessor processor = new AttachmentProcessor(1, 1000L, Arrays.asList("application/pdf", "Text/*"))) {
+            assertTrue(processor.accept("a.pdf", "application/pdf", 1000L));
+            assertTrue(processor.accept("a.pdf", "application/pdf", null));
+            assertFalse(processor.accept("a.pdf", "application/pdf", 1001L));
+            assertTrue(processor.accept("a.txt", "text/plain; charset=UTF-8", 10L));
+            assertTrue(processor.accept("a.html", "TEXT/HTML", 10L));
+            assertFalse(processor.accept("a.png", "image/png", 10L));
+            assertFalse(processor.accept("a", null, 10L));
+        }
+        try (final AttachmentProcessor processor = new AttachmentProcessor(1, -1L, Collections.emptyList())) {
+            assertTrue(processor.accept("a.png", "image/png", Long.MAX_VALUE));
+            assertTrue(processor.accept("a", null, null));
+        }
+    }
+
+    @Test
+    public void test_process() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+        final List<Callable<String>> extractors = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final int index = i;
+            extractors.add(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    threads.add(Thread.currentThread().getName());
+                    Thread.sleep(20L);
+                    if (index == 3) {
+                        throw new AtlassianDataStoreException("error: " + index);
+                    }
+                    return index == 5 ? "" : "text" + index;
+                } finally {
+                    running.decrementAndGet();
+                }
+            });
+        }
+        try (final AttachmentProcessor processor = new AttachmentProcessor(2, -1L, Collections.emptyList())) {
+            assertEquals("text0\n\ntext1\n\ntext2\n\ntext4\n\ntext6\n\ntext7\n\ntext8\n\ntext9", processor.process(extractors));
+            assertEquals("", processor.process(Collections.emptyList()));
+        }
+        assertTrue(maxRunning.get() <= 2);
+        assertFalse(threads.contains(Thread.currentThread().getName()));
+    }
+
+    @Test
+    public void test_invalidArguments() {
+        try {
+            new AttachmentProcessor(0, -1L, Collections.emptyList()).close();
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
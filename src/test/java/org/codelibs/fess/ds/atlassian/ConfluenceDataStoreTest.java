@@ -17,9 +17,21 @@ package org.codelibs.fess.ds.atlassian;
 
 import org.junit.jupiter.api.TestInfo;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.codelibs.fess.ds.atlassian.api.confluence.domain.Content;
 import org.codelibs.fess.ds.callback.IndexUpdateCallback;
 import org.codelibs.fess.entity.DataStoreParams;
 import org.codelibs.fess.opensearch.config.exentity.DataConfig;
@@ -27,9 +39,13 @@ import org.codelibs.fess.util.ComponentUtil;
 import org.codelibs.fess.ds.atlassian.UnitDsTestCase;
 import org.junit.jupiter.api.Test;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 public class ConfluenceDataStoreTest extends UnitDsTestCase {
     public ConfluenceDataStore dataStore;
 
+    private final AtomicReference<String> indexId = new AtomicReference<>("fess.20250101/uuid-1");
+
     @Override
     protected String prepareConfigFile() {
         return "test_app.xml";
@@ -57,6 +73,237 @@ public class ConfluenceDataStoreTest extends UnitDsTestCase {
         // doStoreDataTest();
     }
 
+    @Test
+    public void test_getSpaceKeys() {
+        final DataStoreParams paramMap = new DataStoreParams();
+        assertEquals(Collections.singletonList(null), dataStore.getSpaceKeys(paramMap));
+        paramMap.put("space_keys", " ABC, DEF,,ABC ");
+        assertEquals(Arrays.asList("ABC", "DEF"), dataStore.getSpaceKeys(paramMap));
+        paramMap.put("space_keys", " , ");
+        assertEquals(Collections.singletonList(null), dataStore.getSpaceKeys(paramMap));
+    }
+
+    @Test
+    public void test_fetchConcurrently() throws Exception {
+        final DataStoreParams paramMap = new DataStoreParams();
+        final CountDownLatch latch = new CountDownLatch(2);
+        final List<String> fetched = Collections.synchronizedList(new ArrayList<>());
+        final Runnable page = () -> {
+            latch.countDown();
+            try {
+                // both fetchers must be running at the same time
+                assertTrue(latch.await(10, TimeUnit.SECONDS));
+            } catch (final InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            fetched.add("page");
+        };
+        final Runnable blogpost = () -> {
+            latch.countDown();
+            fetched.add("blogpost");
+        };
+        dataStore.fetchConcurrently(paramMap, Arrays.asList(page, blogpost));
+        assertEquals(2, fetched.size());
+
+        try {
+            dataStore.fetchConcurrently(paramMap, Arrays.asList(() -> {}, () -> {
+                throw new AtlassianDataStoreException("test");
+            }));
+            fail();
+        } catch (final AtlassianDataStoreException e) {
+            assertEquals("test", e.getMessage());
+        }
+    }
+
+    @Test
+    public void test_createSpacePartitions() {
+        final DataStoreParams paramMap = new DataStoreParams();
+        paramMap.put("space_keys", "ABC,DEF");
+        paramMap.put("incremental", "true");
+        paramMap.put("incremental.checkpoint", "2025-01-01T00:00:00Z");
+        paramMap.put("incremental.checkpoint.ABC", "2025-02-01T00:00:00Z");
+        // unchanged documents would be deleted as old documents
+        Map<String, CrawlPartition> partitions = dataStore.createSpacePartitions(null, new HashMap<>(), paramMap);
+        assertNull(dataStore.getCheckpoint(partitions.get("ABC").getConfigMap()).getPrevious());
+        assertNull(dataStore.createCheckpoint(paramMap).getPrevious());
+
+        paramMap.put("delete.old.docs", "false");
+        assertEquals(Long.valueOf(1735689600000L), dataStore.createCheckpoint(paramMap).getPrevious());
+        final Map<String, Object> configMap = new HashMap<>();
+        partitions = dataStore.createSpacePartitions(null, configMap, paramMap);
+        assertEquals(Arrays.asList("ABC", "DEF"), new ArrayList<>(partitions.keySet()));
+        assertEquals(Long.valueOf(1738368000000L), dataStore.getCheckpoint(partitions.get("ABC").getConfigMap()).getPrevious());
+        // falls back to the checkpoint of the whole crawl
+        assertEquals(Long.valueOf(1735689600000L), dataStore.getCheckpoint(partitions.get("DEF").getConfigMap()).getPrevious());
+        assertNotSame(dataStore.getCheckpoint(partitions.get("ABC").getConfigMap()),
+                dataStore.getCheckpoint(partitions.get("DEF").getConfigMap()));
+        assertNull(dataStore.getCheckpoint(configMap));
+    }
+
+    @Test
+    public void test_newPartitionFetcher() throws Exception {
+        final DataStoreParams paramMap = new DataStoreParams();
+        final CrawlPartition failed = dataStore.createPartition(new HashMap<>(), paramMap, "ABC");
+        final CrawlPartition succeeded = dataStore.createPartition(new HashMap<>(), paramMap, "DEF");
+        final List<String> fetched = Collections.synchronizedList(new ArrayList<>());
+        dataStore.fetchConcurrently(paramMap, Arrays.asList(dataStore.newPartitionFetcher(failed, () -> {
+            throw new AtlassianDataStoreException("test");
+        }), dataStore.newPartitionFetcher(succeeded, () -> fetched.add("DEF"))));
+        assertTrue(failed.isFailed());
+        assertEquals("test", failed.getFailure().getMessage());
+        assertFalse(succeeded.isFailed());
+        assertEquals(Arrays.asList("DEF"), fetched);
+    }
+
+    @Test
+    public void test_isContentAttachment() {
+        final DataStoreParams paramMap = new DataStoreParams();
+        assertFalse(dataStore.isContentAttachment(paramMap));
+        assertEquals("", dataStore.getContentAttachments(new Content(), null, null));
+        paramMap.put("content.attachment", "true");
+        assertTrue(dataStore.isContentAttachment(paramMap));
+        paramMap.put("attachment.threads", "3");
+        paramMap.put("attachment.max_size", "1024");
+        paramMap.put("attachment.media_types", "application/pdf, text/*");
+        try (final AttachmentProcessor processor = dataStore.newAttachmentProcessor(paramMap)) {
+            assertEquals(1024L, processor.getMaxSize());
+            assertTrue(processor.accept("a.txt", "text/plain", 1024L));
+            assertFalse(processor.accept("a.png", "image/png", 1L));
+        }
+    }
+
+    @Test
+    public void test_getContentVersion() throws Exception {
+        final ObjectMapper mapper = new ObjectMapper();
+        final String json = "{\"id\":\"1\",\"version\":{\"number\":3,\"when\":\"2024-01-01T00:00:00.000Z\"},"
+                + "\"children\":{\"comment\":{\"results\":[{\"title\":\"c\",\"body\":{\"view\":{\"value\":\"<p>%s</p>\"}}}],"
+                + "\"limit\":25,\"_links\":{}}}}";
+        final Content content = mapper.readValue(String.format(json, "comment"), Content.class);
+        assertEquals(Integer.valueOf(3), content.getVersionNumber());
+        final String version = dataStore.getContentVersion(content, null);
+        assertTrue(version.startsWith("3:"));
+        assertEquals(version, dataStore.getContentVersion(mapper.readValue(String.format(json, "comment"), Content.class), null));
+        assertFalse(version.equals(dataStore.getContentVersion(mapper.readValue(String.format(json, "edited"), Content.class), null)));
+
+        // comments are not expanded
+        assertNull(dataStore.getContentVersion(mapper.readValue("{\"id\":\"1\",\"version\":{\"number\":3}}", Content.class), null));
+        // attachments are not reflected in the version
+        try (final AttachmentProcessor processor = dataStore.newAttachmentProcessor(new DataStoreParams())) {
+            assertNull(dataStore.getContentVersion(content, processor));
+        }
+    }
+
+    @Test
+    public void test_isUnchangedDocument() throws Exception {
+        final DataStoreParams paramMap = new DataStoreParams();
+        final Map<String, Object> configMap = new HashMap<>();
+        assertNull(dataStore.createFingerprintStore(new DataConfig(), paramMap, new HashMap<>(), new HashMap<>()));
+        assertFalse(dataStore.isUnchangedDocument(configMap, "http://a/1", "1", null));
+        assertNull(dataStore.getFingerprintHash(configMap, "text"));
+
+        final Path path = Files.createTempDirectory("fingerprint").resolve("store.tsv");
+        paramMap.put("fingerprint", "true");
+        paramMap.put("fingerprint.path", path.toString());
+        final Map<String, String> scriptMap = new HashMap<>();
+        scriptMap.put("content", "content.body");
+        final Map<String, Object> defaultDataMap = new HashMap<>();
+        defaultDataMap.put("role", new String[] { "R1" });
+        defaultDataMap.put("created", new Date());
+        // skipped documents would be deleted as old documents
+        assertNull(dataStore.createFingerprintStore(new DataConfig(), paramMap, scriptMap, defaultDataMap));
+        paramMap.put("delete.old.docs", "false");
+
+        final ConfluenceDataStore dataStore = new ConfluenceDataStore() {
+            @Override
+            protected String getIndexId() {
+                return indexId.get();
+            }
+        };
+        final List<String> stored = new ArrayList<>();
+        final AtomicInteger commits = new AtomicInteger();
+        final IndexUpdateCallback callback = new TestCallback(stored, commits);
+        try (final FingerprintStore store = dataStore.createFingerprintStore(new DataConfig(), paramMap, scriptMap, defaultDataMap)) {
+            configMap.put("fingerprint_store", store);
+            final String hash = dataStore.getFingerprintHash(configMap, "title", "body");
+            assertNotNull(hash);
+            assertFalse(dataStore.isUnchangedDocument(configMap, "http://a/1", "1", null));
+            assertFalse(dataStore.isUnchangedDocument(configMap, "http://a/1", "1", hash));
+            dataStore.storeDocument(callback, configMap, paramMap, Map.of("url", "http://a/1"));
+            dataStore.recordFingerprint(configMap, "http://a/1", "1", hash);
+            // not stored until the index is committed
+            assertFalse(dataStore.isUnchangedDocument(configMap, "http://a/1", "1", null));
+            dataStore.commitFingerprints(callback, configMap);
+            assertEquals(1, commits.get());
+            assertTrue(dataStore.isUnchangedDocument(configMap, "http://a/1", "1", null));
+
+            // fingerprints are not committed if a document fails to be sent to the index
+            dataStore.storeDocument(callback, configMap, paramMap, Map.of("url", "http://a/2"));
+            dataStore.recordFingerprint(configMap, "http://a/2", "1", hash);
+            try {
+                dataStore.storeDocument(callback, configMap, paramMap, Map.of("url", "fail"));
+                fail();
+            } catch (final IllegalStateException e) {
+                // expected
+            }
+            dataStore.commitFingerprints(callback, configMap);
+            assertNull(store.get("http://a/2"));
+            assertEquals(List.of("http://a/1", "http://a/2", "fail"), stored);
+        }
+
+        // timestamps in the default data map do not change the configuration
+        defaultDataMap.put("created", new Date(0L));
+        try (final FingerprintStore store = dataStore.createFingerprintStore(new DataConfig(), paramMap, scriptMap, defaultDataMap)) {
+            assertNotNull(store.get("http://a/1"));
+        }
+        // the index is recreated
+        indexId.set("fess.20250102/uuid-2");
+        try (final FingerprintStore store = dataStore.createFingerprintStore(new DataConfig(), paramMap, scriptMap, defaultDataMap)) {
+            assertNull(store.get("http://a/1"));
+        }
+        try (final FingerprintStore store = dataStore.createFingerprintStore(new DataConfig(), paramMap, scriptMap, defaultDataMap)) {
+            store.put("http://a/1", "1", "hash");
+        }
+        defaultDataMap.put("role", new String[] { "R2" });
+        try (final FingerprintStore store = dataStore.createFingerprintStore(new DataConfig(), paramMap, scriptMap, defaultDataMap)) {
+            assertNull(store.get("http://a/1"));
+        }
+    }
+
+    private static class TestCallback implements IndexUpdateCallback {
+
+        private final List<String> stored;
+
+        private final AtomicInteger commits;
+
+        TestCallback(final List<String> stored, final AtomicInteger commits) {
+            this.stored = stored;
+            this.commits = commits;
+        }
+
+        @Override
+        public void store(final DataStoreParams paramMap, final Map<String, Object> dataMap) {
+            stored.add((String) dataMap.get("url"));
+            if ("fail".equals(dataMap.get("url"))) {
+                throw new IllegalStateException("Failed to index.");
+            }
+        }
+
+        @Override
+        public long getExecuteTime() {
+            return 0;
+        }
+
+        @Override
+        public long getDocumentSize() {
+            return stored.size();
+        }
+
+        @Override
+        public void commit() {
+            commits.incrementAndGet();
+        }
+    }
+
     protected void doStoreDataTest() {
 
         final DataConfig dataConfig = new DataConfig();
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+public class DocumentPipelineTest extends UnitDsTestCase {
+
+    @Override
+    protected boolean isSuppressTestCaseTransaction() {
+        return true;
+    }
+
+    @Test
+    public void test_processAll() throws Exception {
+        final Set<Integer> processed = ConcurrentHashMap.newKeySet();
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+        DocumentPipeline<Integer> stats;
+        try (final DocumentPipeline<Integer> pipeline = new DocumentPipeline<>(3, 2, i -> {
+            threads.add(Thread.currentThread().getName());
+            processed.add(i);
+        })) {
+            for (int i = 1; i <= 100; i++) {
+                pipeline.submit(i);
+            }
+            assertTrue(pipeline.finish(10, TimeUnit.SECONDS, () -> true));
+            stats = pipeline;
+        }
+        assertEquals(100, processed.size());
+        assertEquals(100, stats.getSubmittedCount());
+        assertEquals(100, stats.getCompletedCount());
+        assertEquals(0, stats.getFailedCount());
+        assertEquals(0, stats.getDroppedCount());
+        assertFalse(threads.contains(Thread.currentThread().getName()));
+    }
+
+    @Test
+    public void test_processFailure() throws Exception {
+        final Set<Integer> processed = ConcurrentHashMap.newKeySet();
+        final Set<Integer> dropped = ConcurrentHashMap.newKeySet();
+        try (final DocumentPipeline<Integer> pipeline = new DocumentPipeline<>(3, 2, i -> {
+            if (i % 10 == 0) {
+                throw new IllegalStateException("error: " + i);
+            }
+            processed.add(i);
+        })) {
+            pipeline.onDropped(dropped::add);
+            for (int i = 1; i <= 100; i++) {
+                pipeline.submit(i);
+            }
+            // failed documents do not count as completed
+            assertFalse(pipeline.finish(10, TimeUnit.SECONDS, () -> true));
+            assertEquals(100, pipeline.getSubmittedCount());
+            assertEquals(90, pipeline.getCompletedCount());
+            assertEquals(10, pipeline.getFailedCount());
+            assertEquals(0, pipeline.getDroppedCount());
+        }
+        assertEquals(90, processed.size());
+        assertEquals(10, dropped.size());
+        assertTrue(dropped.contains(10));
+    }
+
+    @Test
+    public void test_processEqualDocuments() throws Exception {
+        final AtomicInteger processed = new AtomicInteger();
+        try (final DocumentPipeline<String> pipeline = new DocumentPipeline<>(2, 10, s -> processed.incrementAndGet())) {
+            for (int i = 0; i < 10; i++) {
+                pipeline.submit("doc");
+            }
+            assertTrue(pipeline.finish(10, TimeUnit.SECONDS, () -> true));
+            assertEquals(10, pipeline.getCompletedCount());
+        }
+        try (final DocumentPipeline<String> pipeline =
+                new DocumentPipeline<>(Executors.newVirtualThreadPerTaskExecutor(), 10, s -> processed.incrementAndGet())) {
+            for (int i = 0; i < 10; i++) {
+                pipeline.submit("doc");
+            }
+            assertTrue(pipeline.finish(10, TimeUnit.SECONDS, () -> true));
+            assertEquals(10, pipeline.getCompletedCount());
+        }
+        assertEquals(20, processed.get());
+    }
+
+    @Test
+    public void test_processAll_virtualThreads() throws Exception {
+        final Set<Integer> processed = ConcurrentHashMap.newKeySet();
+        final Set<Boolean> virtual = ConcurrentHashMap.newKeySet();
+        try (final DocumentPipeline<Integer> pipeline =
+                new DocumentPipeline<>(Executors.newVirtualThreadPerTaskExecutor(), 50, 10, i -> {
+                    virtual.add(Thread.currentThread().isVirtual());
+                    processed.add(i);
+                })) {
+            for (int i = 1; i <= 1000; i++) {
+                pipeline.submit(i);
+            }
+            assertTrue(pipeline.finish(10, TimeUnit.SECONDS, () -> true));
+        }
+        assertEquals(1000, processed.size());
+        assertEquals(Set.of(Boolean.TRUE), virtual);
+    }
+
+    @Test
+    public void test_processPerDocument() throws Exception {
+        final CountDownLatch started = new CountDownLatch(20);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final Set<Integer> processed = ConcurrentHashMap.newKeySet();
+        try (final DocumentPipeline<Integer> pipeline = new DocumentPipeline<>(Executors.newVirtualThreadPerTaskExecutor(), 20, i -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            started.countDown();
+            try {
+                // the first 20 documents wait until all of them run concurrently
+                started.await(5, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            processed.add(i);
+            running.decrementAndGet();
+        })) {
+            for (int i = 1; i <= 200; i++) {
+                pipeline.submit(i);
+            }
+            assertTrue(pipeline.finish(10, TimeUnit.SECONDS, () -> true));
+            assertEquals(200, pipeline.getCompletedCount());
+        }
+        assertEquals(0L, started.getCount());
+        assertEquals(20, maxRunning.get());
+        assertEquals(200, processed.size());
+    }
+
+    @Test
+    public void test_processPerDocument_dropOnTimeout() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Set<Integer> dropped = ConcurrentHashMap.newKeySet();
+        try (final DocumentPipeline<Integer> pipeline = new DocumentPipeline<>(Executors.newVirtualThreadPerTaskExecutor(), 10, i -> {
+            // documents ignoring the interruption are still running when dropped
+            while (i > 3 && latch.getCount() > 0) {
+                try {
+                    latch.await();
+                } catch (final InterruptedException e) {
+                    // ignore
+                }
+            }
+        })) {
+            pipeline.onDropped(dropped::add);
+            pipeline.checkInterval = 10L;
+            for (int i = 1; i <= 10; i++) {
+                pipeline.submit(i);
+            }
+            assertFalse(pipeline.finish(200, TimeUnit.MILLISECONDS, () -> true));
+            assertEquals(10, pipeline.getSubmittedCount());
+            assertEquals(3, pipeline.getCompletedCount());
+            assertEquals(7, pipeline.getDroppedCount());
+            assertFalse(dropped.contains(3));
+        } finally {
+            latch.countDown();
+        }
+    }
+
+    @Test
+    public void test_dropOnTimeout() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Set<Integer> dropped = ConcurrentHashMap.newKeySet();
+        final Consumer<Integer> processor = i -> {
+            if (i > 3) {
+                try {
+                    latch.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        try (final DocumentPipeline<Integer> pipeline = new DocumentPipeline<>(2, 10, processor)) {
+            pipeline.onDropped(dropped::add);
+            pipeline.checkInterval = 10L;
+            for (int i = 1; i <= 10; i++) {
+                pipeline.submit(i);
+            }
+            assertFalse(pipeline.finish(200, TimeUnit.MILLISECONDS, () -> true));
+            // 2 documents being processed are interrupted and fail
+            assertEquals(10, pipeline.getSubmittedCount());
+            assertEquals(3, pipeline.getCompletedCount());
+            assertEquals(2, pipeline.getFailedCount());
+            assertEquals(5, pipeline.getDroppedCount());
+            assertEquals(7, dropped.size());
+            assertFalse(dropped.contains(3));
+        } finally {
+            latch.countDown();
+        }
+    }
+
+    @Test
+    public void test_finish_sharedDeadline() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Consumer<Integer> processor = i -> {
+            while (latch.getCount() > 0) {
+                try {
+                    latch.await();
+                } catch (final InterruptedException e) {
+                    // ignore
+                }
+            }
+        };
+        try (final DocumentPipeline<Integer> pipeline1 = new DocumentPipeline<>(1, 10, processor);
+                final DocumentPipeline<Integer> pipeline2 = new DocumentPipeline<>(1, 10, processor)) {
+            pipeline1.checkInterval = 10L;
+            pipeline2.checkInterval = 10L;
+            pipeline1.submit(1);
+            pipeline2.submit(2);
+            final long deadline = DocumentPipeline.getDeadline(200, TimeUnit.MILLISECONDS);
+            assertFalse(pipeline1.finish(deadline, () -> true));
+            // the second pipeline does not wait for another timeout
+            final long start = System.nanoTime();
+            assertFalse(pipeline2.finish(deadline, () -> true));
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 150);
+            assertEquals(1, pipeline2.getDroppedCount());
+        } finally {
+            latch.countDown();
+        }
+    }
+
+    @Test
+    public void test_dropOnStop() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        try (final DocumentPipeline<Integer> pipeline = new DocumentPipeline<>(1, 10, i -> {
+            running.set(false);
+            try {
+                latch.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        })) {
+            pipeline.checkInterval = 10L;
+            pipeline.submit(1);
+            pipeline.submit(2);
+            assertFalse(pipeline.finish(0, TimeUnit.MILLISECONDS, running::get));
+            assertEquals(0, pipeline.getCompletedCount());
+            assertEquals(1, pipeline.getFailedCount());
+            assertEquals(1, pipeline.getDroppedCount());
+        } finally {
+            latch.countDown();
+        }
+    }
+
+    @Test
+    public void test_invalidArguments() {
+        try {
+            new DocumentPipeline<String>(0, 1, s -> {}).close();
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            new DocumentPipeline<String>(1, 0, s -> {}).close();
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class FingerprintStoreTest extends UnitDsTestCase {
+
+    @Override
+    protected boolean isSuppressTestCaseTransaction() {
+        return true;
+    }
+
+    @Test
+    public void test_isUnchanged() throws Exception {
+        final FingerprintStore store = new FingerprintStore(Files.createTempFile("fingerprint", ".tsv"), "config");
+        final String hash = FingerprintStore.hash("title", "body");
+        assertFalse(store.isUnchanged("http://a/1", "1"));
+        assertFalse(store.isUnchanged("http://a/1", "1", hash));
+
+        store.put("http://a/1", "1", hash);
+        assertTrue(store.isUnchanged("http://a/1", "1"));
+        assertFalse(store.isUnchanged("http://a/1", "2"));
+        assertFalse(store.isUnchanged("http://a/1", null));
+        assertFalse(store.isUnchanged("http://a/2", "1"));
+        assertEquals(1L, store.getSkippedCount());
+
+        // updated without changing the text
+        assertTrue(store.isUnchanged("http://a/1", "2", hash));
+        assertEquals("2", store.get("http://a/1").version());
+        assertTrue(store.isUnchanged("http://a/1", "2"));
+        assertFalse(store.isUnchanged("http://a/1", "3", FingerprintStore.hash("title", "new body")));
+        assertEquals("2", store.get("http://a/1").version());
+        assertEquals(3L, store.getSkippedCount());
+    }
+
+    @Test
+    public void test_saveAndLoad() throws Exception {
+        final Path path = Files.createTempDirectory("fingerprint").resolve("dir").resolve("store.tsv");
+        final FingerprintStore store = FingerprintStore.load(path, "config");
+        assertNull(store.get("http://a/1"));
+        store.put("http://a/1", "1", FingerprintStore.hash("a"));
+        store.put("http://a/2", null, FingerprintStore.hash("b"));
+        store.close();
+
+        final List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        assertEquals(3, lines.size());
+        assertEquals("#config", lines.get(0));
+        assertFalse(Files.exists(path.resolveSibling("store.tsv.tmp")));
+
+        FingerprintStore loaded = FingerprintStore.load(path, "config");
+        assertEquals("1", loaded.get("http://a/1").version());
+        assertEquals(FingerprintStore.hash("a"), loaded.get("http://a/1").hash());
+        assertNull(loaded.get("http://a/2").version());
+        assertEquals(FingerprintStore.hash("b"), loaded.get("http://a/2").hash());
+        assertTrue(loaded.isUnchanged("http://a/1", "1"));
+        assertFalse(loaded.isUnchanged("http://a/2", null));
+
+        loaded = FingerprintStore.load(path, "changed");
+        assertNull(loaded.get("http://a/1"));
+        assertFalse(loaded.isUnchanged("http://a/1", "1"));
+
+        Files.write(path, List.of("#config", "http://a/1\t1\thash\t1", "invalid", "http://a/2\t1\thash\tx"), StandardCharsets.UTF_8);
+        loaded = FingerprintStore.load(path, "config");
+        assertEquals("hash", loaded.get("http://a/1").hash());
+        assertNull(loaded.get("http://a/2"));
+    }
+
+    @Test
+    public void test_commit() throws Exception {
+        final Path path = Files.createTempDirectory("fingerprint").resolve("store.tsv");
+        final FingerprintStore store = FingerprintStore.load(path, "config");
+        store.record("http://a/1", "1", "hash1");
+        assertNull(store.get("http://a/1"));
+        assertTrue(store.commit());
+        assertEquals("hash1", store.get("http://a/1").hash());
+
+        store.record("http://a/2", "1", "hash2");
+        store.fail();
+        assertFalse(store.commit());
+        assertNull(store.get("http://a/2"));
+
+        // not committed before closing
+        store.record("http://a/3", "1", "hash3");
+        store.close();
+        final FingerprintStore loaded = FingerprintStore.load(path, "config");
+        assertNotNull(loaded.get("http://a/1"));
+        assertNull(loaded.get("http://a/2"));
+        assertNull(loaded.get("http://a/3"));
+    }
+
+    @Test
+    public void test_prune() throws Exception {
+        final Path path = Files.createTempFile("fingerprint", ".tsv");
+        Files.write(path, List.of("#config", "http://a/1\t1\thash1\t1", "http://a/2\t1\thash2\t1"), StandardCharsets.UTF_8);
+        final FingerprintStore store = FingerprintStore.load(path, "config");
+        assertTrue(store.isUnchanged("http://a/1", "1"));
+        store.put("http://a/3", "1", "hash3");
+        store.prune();
+        assertNotNull(store.get("http://a/1"));
+        assertNull(store.get("http://a/2"));
+        assertNotNull(store.get("http://a/3"));
+    }
+
+    @Test
+    public void test_hash() {
+        assertEquals(FingerprintStore.hash("a", "b"), FingerprintStore.hash("a", "b"));
+        assertEquals(43, FingerprintStore.hash("a").length());
+        assertFalse(FingerprintStore.hash("ab", "c").equals(FingerprintStore.hash("a", "bc")));
+        assertFalse(FingerprintStore.hash((Object) null).equals(FingerprintStore.hash("")));
+        assertFalse(FingerprintStore.hash("a", "b").equals(FingerprintStore.hash("b", "a")));
+    }
+}
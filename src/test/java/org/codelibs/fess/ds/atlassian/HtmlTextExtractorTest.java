@@ -0,0 +1,82 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian;
+
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+public class HtmlTextExtractorTest extends UnitDsTestCase {
+
+    @Override
+    protected boolean isSuppressTestCaseTransaction() {
+        return true;
+    }
+
+    @Test
+    public void test_extract() {
+        assertEquals("", HtmlTextExtractor.extract((String) null));
+        assertEquals("", HtmlTextExtractor.extract(""));
+        assertEquals("text", HtmlTextExtractor.extract("text"));
+        assertEquals("Title\nHello world!", HtmlTextExtractor.extract("<h1>Title</h1><p>Hello <b>world</b>!</p>"));
+        assertEquals("line1\nline2", HtmlTextExtractor.extract("line1<br/>line2"));
+        assertEquals("a b\nc d", HtmlTextExtractor.extract("<table><tr><td>a</td><td>b</td></tr><tr><th>c</th><th>d</th></tr></table>"));
+        assertEquals("one\ntwo", HtmlTextExtractor.extract("<ul>\n  <li>one</li>\n  <li>two</li>\n</ul>"));
+        assertEquals("a b", HtmlTextExtractor.extract("  a \n\t b  "));
+    }
+
+    @Test
+    public void test_extract_skipped() {
+        assertEquals("before after", HtmlTextExtractor.extract("before <script type=\"text/javascript\">if (a < b) {}</script>after"));
+        assertEquals("before after", HtmlTextExtractor.extract("before <STYLE>p > a { color: red; }</STYLE>after"));
+        assertEquals("before after", HtmlTextExtractor.extract("before <!-- <p>comment</p> -->after"));
+        assertEquals("text", HtmlTextExtractor.extract("<!DOCTYPE html><?xml version=\"1.0\"?>text"));
+        assertEquals("x < y", HtmlTextExtractor.extract("<![CDATA[x < y]]>"));
+        assertEquals("link", HtmlTextExtractor.extract("<a href=\"/a?b=1&c=2\" title='a > b'>link</a>"));
+    }
+
+    @Test
+    public void test_extract_characterReferences() {
+        assertEquals("<a> & \"b\" 'c'", HtmlTextExtractor.extract("&lt;a&gt; &amp; &quot;b&quot; &apos;c&apos;"));
+        assertEquals("a b", HtmlTextExtractor.extract("a&nbsp;&nbsp;b"));
+        assertEquals("ABあ😀", HtmlTextExtractor.extract("&#65;&#x42;&#12354;&#x1F600;"));
+        assertEquals("&unknown; & &#xZZ; &amp", HtmlTextExtractor.extract("&unknown; & &#xZZ; &amp"));
+        assertEquals("1 < 2 a<1 </", HtmlTextExtractor.extract("1 < 2 a<1 </"));
+    }
+
+    @Test
+    public void test_extract_namedReferences() {
+        assertEquals("Café Müller Bär", HtmlTextExtractor.extract("Caf&eacute; M&uuml;ller B&auml;r"));
+        assertEquals("ÉÜÄ ñ ç ß ø", HtmlTextExtractor.extract("&Eacute;&Uuml;&Auml; &ntilde; &ccedil; &szlig; &oslash;"));
+        assertEquals("α≤β ∞ ⇒ 𝔸 fj", HtmlTextExtractor.extract("&alpha;&le;&beta; &infin; &rArr; &Aopf; &fjlig;"));
+        assertEquals("a b", HtmlTextExtractor.extract("a&NewLine;b"));
+        assertEquals("&eacute", HtmlTextExtractor.extract("&eacute"));
+    }
+
+    @Test
+    public void test_extract_reader() throws Exception {
+        final StringBuilder html = new StringBuilder();
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            html.append("<p>paragraph &amp; ").append(i).append("</p>");
+            if (i > 0) {
+                expected.append('\n');
+            }
+            expected.append("paragraph & ").append(i);
+        }
+        assertEquals(expected.toString(), HtmlTextExtractor.extract(new StringReader(html.toString())));
+    }
+}
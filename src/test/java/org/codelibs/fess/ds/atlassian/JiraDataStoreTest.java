@@ -15,12 +15,19 @@
  */
 package org.codelibs.fess.ds.atlassian;
 
+import java.time.Instant;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.codelibs.fess.ds.atlassian.api.jira.domain.Attachment;
+import org.codelibs.fess.ds.atlassian.api.jira.domain.Issue;
+import org.codelibs.fess.ds.atlassian.api.jira.search.SearchRequest;
 import org.codelibs.fess.ds.callback.IndexUpdateCallback;
 import org.codelibs.fess.entity.DataStoreParams;
 import org.codelibs.fess.opensearch.config.exentity.DataConfig;
@@ -212,4 +219,57 @@ public class JiraDataStoreTest extends UnitDsTestCase {
         final String result = dataStore.getExtractedTextFromAdf(adf);
         assertEquals("Hello World", result);
     }
+
+    @Test
+    public void test_getTargetAttachments() {
+        final String json = "{\"issues\": [{\"key\": \"KAN-1\", \"fields\": {\"attachment\": [" + //
+                "{\"id\": \"1\", \"filename\": \"a.pdf\", \"mimeType\": \"application/pdf\", \"size\": 100}," + //
+                "{\"id\": \"2\", \"filename\": \"b.pdf\", \"mimeType\": \"application/pdf\", \"size\": 2000}," + //
+                "{\"id\": \"3\", \"filename\": \"c.png\", \"mimeType\": \"image/png\", \"size\": 100}]}}," + //
+                "{\"key\": \"KAN-2\", \"fields\": {}}]}";
+        final List<Issue> issues = SearchRequest.parseResponse(json).getIssues();
+        try (final AttachmentProcessor processor = new AttachmentProcessor(1, 1000L, Arrays.asList("application/pdf"))) {
+            final List<Attachment> attachments = dataStore.getTargetAttachments(issues.get(0), processor);
+            assertEquals(1, attachments.size());
+            assertEquals("a.pdf", attachments.get(0).getFilename());
+            assertTrue(dataStore.getTargetAttachments(issues.get(1), processor).isEmpty());
+        }
+        assertEquals("", dataStore.getIssueAttachments(issues.get(0), null, null));
+    }
+
+    @Test
+    public void test_recordCheckpoint() {
+        final Map<String, Object> configMap = new HashMap<>();
+        configMap.put(AtlassianDataStore.CHECKPOINT, new CrawlCheckpoint(1000L));
+        dataStore.recordCheckpoint(configMap, new Date(3000L), true);
+        dataStore.recordCheckpoint(configMap, new Date(2000L), true);
+        dataStore.recordCheckpoint(configMap, null, false);
+        assertEquals(Long.valueOf(3000L), dataStore.getCheckpoint(configMap).getNext());
+
+        dataStore.recordCheckpoint(configMap, new Date(2500L), false);
+        assertEquals(Long.valueOf(2500L), dataStore.getCheckpoint(configMap).getNext());
+    }
+
+    @Test
+    public void test_recordCheckpoint_nothingRecorded() {
+        final Map<String, Object> configMap = new HashMap<>();
+        configMap.put(AtlassianDataStore.CHECKPOINT, new CrawlCheckpoint(1000L));
+        assertEquals(Long.valueOf(1000L), dataStore.getCheckpoint(configMap).getNext());
+
+        configMap.put(AtlassianDataStore.CHECKPOINT, new CrawlCheckpoint(null));
+        assertNull(dataStore.getCheckpoint(configMap).getNext());
+    }
+
+    @Test
+    public void test_getCreatedBoundaries() {
+        final Date earliest = dataStore.parseIssueDate("2024-01-01T00:00:00.000+0000");
+        final Instant now = Instant.parse("2024-01-25T12:00:00Z");
+        assertEquals(Arrays.asList("2024/01/11 00:00", "2024/01/21 00:00"),
+                dataStore.getCreatedBoundaries(earliest, now, 10, ZoneId.of("UTC")));
+        assertEquals(Arrays.asList("2024/01/11 09:00", "2024/01/21 09:00"),
+                dataStore.getCreatedBoundaries(earliest, now, 10, ZoneId.of("Asia/Tokyo")));
+        assertTrue(dataStore.getCreatedBoundaries(earliest, now, 30, ZoneId.of("UTC")).isEmpty());
+        assertTrue(dataStore.getCreatedBoundaries(null, now, 10, ZoneId.of("UTC")).isEmpty());
+        assertTrue(dataStore.getCreatedBoundaries(earliest, now, 0, ZoneId.of("UTC")).isEmpty());
+    }
 }
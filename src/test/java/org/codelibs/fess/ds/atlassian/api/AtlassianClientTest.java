@@ -15,8 +15,27 @@
  */
 package org.codelibs.fess.ds.atlassian.api;
 
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
 import org.junit.jupiter.api.TestInfo;
 
+import org.codelibs.curl.CurlResponse;
+import org.codelibs.curl.io.ContentCache;
+import org.codelibs.fess.ds.atlassian.AtlassianDataStoreException;
+import org.codelibs.fess.ds.atlassian.api.authentication.Authentication;
+import org.codelibs.fess.ds.atlassian.api.authentication.BasicAuthentication;
+import org.codelibs.fess.ds.atlassian.api.authentication.OAuth2Authentication;
+import org.codelibs.fess.ds.atlassian.api.jira.JiraClient;
+import org.codelibs.fess.ds.atlassian.api.transport.HttpTransport;
+import org.codelibs.fess.ds.atlassian.api.transport.TransferStats;
+import org.codelibs.fess.entity.DataStoreParams;
+import org.codelibs.fess.opensearch.config.exentity.DataConfig;
 import org.codelibs.fess.util.ComponentUtil;
 import org.codelibs.fess.ds.atlassian.UnitDsTestCase;
 import org.junit.jupiter.api.Test;
@@ -57,4 +76,105 @@ public class AtlassianClientTest extends UnitDsTestCase {
 
     protected void doProductionTest() {
     }
+
+    @Test
+    public void test_getRequestSemaphore() {
+        try (final JiraClient client1 = newBasicClient("https://semaphore.example.com", "4");
+                final JiraClient client2 = newBasicClient("https://semaphore.example.com/jira", "8");
+                final JiraClient client3 = newBasicClient("https://semaphore.example.com", "0")) {
+            final Semaphore semaphore = client1.getRequestSemaphore();
+            assertEquals(4, semaphore.availablePermits());
+            // the clients accessing the same host share the semaphore created first
+            assertSame(semaphore, client2.getRequestSemaphore());
+            assertNull(client3.getRequestSemaphore());
+        }
+    }
+
+    @Test
+    public void test_createRateLimiter() {
+        try (final JiraClient client = newBasicClient("https://ratelimit.example.com", "0")) {
+            // disabled by default
+            assertNull(client.rateLimiter);
+        }
+        final DataStoreParams paramMap = newBasicParams("https://ratelimit.example.com");
+        paramMap.put("rate_limit", "true");
+        paramMap.put("rate_limit.max_rate", "50");
+        try (final JiraClient client1 = new JiraClient(new DataConfig(), paramMap);
+                final JiraClient client2 = new JiraClient(new DataConfig(), paramMap)) {
+            final RateLimiter rateLimiter = client1.rateLimiter;
+            // starts at the maximum rate
+            assertEquals(50.0, rateLimiter.getRate());
+            assertSame(rateLimiter.state, client2.rateLimiter.state);
+        }
+    }
+
+    @Test
+    public void test_constructor_closedOnFailure() {
+        final DataStoreParams paramMap = new DataStoreParams();
+        paramMap.put("home", "https://proxy.example.com");
+        paramMap.put(AUTH_TYPE_PARAM, "oauth2");
+        paramMap.put("oauth2.access_token", "access");
+        paramMap.put("oauth2.refresh_token", "refresh");
+        paramMap.put("oauth2.client_id", "id");
+        paramMap.put("oauth2.client_secret", "secret");
+        paramMap.put("is_cloud", "false");
+        paramMap.put("proxy_host", "proxy.example.com");
+        paramMap.put("proxy_port", "invalid");
+        final List<Authentication> closed = new ArrayList<>();
+        try {
+            new JiraClient(new DataConfig(), paramMap) {
+                @Override
+                public void close() {
+                    closed.add(authentication);
+                    super.close();
+                }
+            };
+            fail();
+        } catch (final AtlassianDataStoreException e) {
+            assertEquals("parameter 'proxy_port' invalid.", e.getMessage());
+        }
+        assertEquals(1, closed.size());
+        assertTrue(closed.get(0) instanceof OAuth2Authentication);
+    }
+
+    private JiraClient newBasicClient(final String home, final String maxConcurrentRequests) {
+        final DataStoreParams paramMap = newBasicParams(home);
+        paramMap.put("max_concurrent_requests", maxConcurrentRequests);
+        return new JiraClient(new DataConfig(), paramMap);
+    }
+
+    private DataStoreParams newBasicParams(final String home) {
+        final DataStoreParams paramMap = new DataStoreParams();
+        paramMap.put("home", home);
+        paramMap.put(AUTH_TYPE_PARAM, "basic");
+        paramMap.put("basic.username", "user");
+        paramMap.put("basic.password", "pass");
+        return paramMap;
+    }
+
+    protected static <T extends AtlassianRequest> T withResponse(final T request, final String content) {
+        request.setAuthentication(new BasicAuthentication("user", "pass"));
+        request.setApiUrl("http://localhost");
+        request.setTransport(new HttpTransport() {
+            @Override
+            public CurlResponse execute(final String method, final URI uri, final Map<String, String> headers, final String body,
+                    final long maxContentLength) {
+                final CurlResponse response = new CurlResponse();
+                response.setHttpStatusCode(200);
+                response.setHeaders(Collections.emptyMap());
+                response.setContentCache(new ContentCache(content.getBytes(StandardCharsets.UTF_8)));
+                return response;
+            }
+
+            @Override
+            public TransferStats getTransferStats() {
+                return new TransferStats();
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        return request;
+    }
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian.api;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.codelibs.fess.ds.atlassian.UnitDsTestCase;
+import org.junit.jupiter.api.Test;
+
+public class RateLimiterTest extends UnitDsTestCase {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong(TimeUnit.SECONDS.toNanos(1000));
+
+    private final AtomicLong wallClock = new AtomicLong(1700000000000L);
+
+    @Override
+    protected boolean isSuppressTestCaseTransaction() {
+        return true;
+    }
+
+    private RateLimiter newRateLimiter(final double initialRate) {
+        return new RateLimiter(initialRate, 0.5, 20, 1000L, 60000L) {
+            @Override
+            protected long nanoTime() {
+                return clock.get();
+            }
+
+            @Override
+            protected long currentTimeMillis() {
+                return wallClock.get();
+            }
+        };
+    }
+
+    private static Map<String, String> headers(final String... keyValues) {
+        final Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            map.put(keyValues[i], keyValues[i + 1]);
+        }
+        return map;
+    }
+
+    @Test
+    public void test_reserve() {
+        final RateLimiter limiter = newRateLimiter(10);
+        assertEquals(0L, limiter.reserve(clock.get()));
+        assertEquals(100 * MILLIS, limiter.reserve(clock.get()));
+        assertEquals(200 * MILLIS, limiter.reserve(clock.get()));
+
+        // permits are stored while idle, up to one second of requests in addition to the next permit
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        for (int i = 0; i < 11; i++) {
+            assertEquals(0L, limiter.reserve(clock.get()));
+        }
+        assertEquals(100 * MILLIS, limiter.reserve(clock.get()));
+    }
+
+    @Test
+    public void test_record_retryAfter() {
+        final RateLimiter limiter = newRateLimiter(10);
+        assertEquals(2000L, limiter.record(429, headers("Retry-After", "2")::get));
+        assertEquals(5.0, limiter.getRate());
+        assertEquals(2000 * MILLIS, limiter.reserve(clock.get()));
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        final String date =
+                DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(wallClock.get() + 3000).atOffset(ZoneOffset.UTC));
+        assertEquals(3000L, limiter.record(503, headers("Retry-After", date)::get));
+        assertEquals(2.5, limiter.getRate());
+
+        // decreased at most once per second
+        limiter.record(429, headers("Retry-After", "1")::get);
+        assertEquals(2.5, limiter.getRate());
+    }
+
+    @Test
+    public void test_record_backoff() {
+        final RateLimiter limiter = newRateLimiter(10);
+        final long first = limiter.record(429, headers()::get);
+        assertTrue(first >= 500 && first <= 1000);
+        final long second = limiter.record(429, headers()::get);
+        assertTrue(second >= 1000 && second <= 2000);
+        limiter.record(200, headers()::get);
+        final long reset = limiter.record(429, headers()::get);
+        assertTrue(reset >= 500 && reset <= 1000);
+    }
+
+    @Test
+    public void test_record_rateLimitHeaders() {
+        final RateLimiter limiter = newRateLimiter(10);
+        assertEquals(0L, limiter.record(200, headers("X-RateLimit-NearLimit", "true")::get));
+        assertEquals(8.0, limiter.getRate());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        final String reset = Instant.ofEpochMilli(wallClock.get() + 5000).toString();
+        limiter.record(200, headers("X-RateLimit-Remaining", "0", "X-RateLimit-Reset", reset)::get);
+        assertEquals(4.0, limiter.getRate());
+        assertEquals(5000 * MILLIS, limiter.reserve(clock.get()));
+
+        assertEquals(1000L, limiter.record(429, headers("X-RateLimit-Reset", Long.toString(wallClock.get() / 1000 + 1))::get));
+    }
+
+    @Test
+    public void test_record_increase() {
+        final RateLimiter limiter = newRateLimiter(10);
+        for (int i = 0; i < 10; i++) {
+            limiter.record(200, headers()::get);
+        }
+        assertTrue(limiter.getRate() > 10.9 && limiter.getRate() < 11.0);
+        for (int i = 0; i < 10000; i++) {
+            limiter.record(200, headers()::get);
+        }
+        assertEquals(20.0, limiter.getRate());
+        // client errors do not change the rate
+        limiter.record(404, headers()::get);
+        assertEquals(20.0, limiter.getRate());
+    }
+
+    @Test
+    public void test_getInstance() {
+        final String host = "ratelimiter-test.example.com";
+        RateLimiter.STATES.remove(host);
+        final RateLimiter first = RateLimiter.getInstance(host, 10, 0.5, 20, 1000L, 60000L);
+        final RateLimiter second = RateLimiter.getInstance(host, 50, 2, 4, 1000L, 60000L);
+        assertSame(first.state, second.state);
+        assertEquals(10.0, first.getRate());
+        // the shared rate is bounded by the settings of each limiter
+        assertEquals(4.0, second.getRate());
+
+        first.record(429, headers("Retry-After", "1")::get);
+        assertEquals(5.0, first.getRate());
+        assertEquals(4.0, second.getRate());
+        assertTrue(second.reserve(System.nanoTime()) > 0);
+
+        // the state of an idle host is discarded
+        first.state.lastUsedNanos = System.nanoTime() - RateLimiter.STATE_IDLE_TIMEOUT - 1;
+        first.state.blockedUntilNanos = first.state.lastUsedNanos;
+        final RateLimiter third = RateLimiter.getInstance(host, 10, 0.5, 20, 1000L, 60000L);
+        assertNotSame(first.state, third.state);
+        RateLimiter.STATES.remove(host);
+    }
+
+    @Test
+    public void test_isThrottled() {
+        assertTrue(RateLimiter.isThrottled(429));
+        assertTrue(RateLimiter.isThrottled(503));
+        assertFalse(RateLimiter.isThrottled(200));
+        assertFalse(RateLimiter.isThrottled(500));
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian.api.authentication;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.codelibs.fess.ds.atlassian.AtlassianDataStoreException;
+import org.codelibs.fess.ds.atlassian.UnitDsTestCase;
+import org.junit.jupiter.api.Test;
+
+public class OAuth2AuthenticationTest extends UnitDsTestCase {
+
+    @Override
+    protected boolean isSuppressTestCaseTransaction() {
+        return true;
+    }
+
+    @Test
+    public void test_refreshAccessToken() throws Exception {
+        final List<OAuth2Authentication.TokenUpdateResult> updates = new ArrayList<>();
+        try (final TestAuthentication authentication = new TestAuthentication("access-0", "refresh-0", updates::add, null)) {
+            assertEquals("Bearer access-0", authentication.getHeaders("GET", new URL("https://example.com/")).get("Authorization"));
+
+            final long now = System.currentTimeMillis();
+            authentication.refreshAccessToken("access-0");
+            assertEquals(1, authentication.requests.get());
+            assertEquals("access-1", authentication.getAccessToken());
+            assertEquals("Bearer access-1", authentication.getHeaders("GET", new URL("https://example.com/")).get("Authorization"));
+            assertTrue(authentication.getExpiresAt() >= now + 3600000L);
+            assertEquals(1, updates.size());
+            assertEquals("access-1", updates.get(0).getAccessToken());
+            assertEquals("refresh-1", updates.get(0).getRefreshToken());
+
+            // rejected with the old token
+            authentication.refreshAccessToken("access-0");
+            assertEquals(1, authentication.requests.get());
+
+            authentication.refreshAccessToken("access-1");
+            assertEquals(2, authentication.requests.get());
+            assertEquals("access-2", authentication.getAccessToken());
+        }
+    }
+
+    @Test
+    public void test_refreshAccessToken_concurrent() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        try (final TestAuthentication authentication = new TestAuthentication("access-0", "refresh-0", r -> {}, latch)) {
+            final ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                final List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    futures.add(executor.submit(() -> authentication.refreshAccessToken("access-0")));
+                }
+                // requests do not block while the token is refreshed
+                for (int i = 0; i < 100; i++) {
+                    assertEquals("Bearer access-0", authentication.getHeaders("GET", new URL("https://example.com/")).get("Authorization"));
+                }
+                latch.countDown();
+                for (final Future<?> future : futures) {
+                    future.get(10, TimeUnit.SECONDS);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            assertEquals(1, authentication.requests.get());
+            assertEquals("access-1", authentication.getAccessToken());
+        }
+    }
+
+    @Test
+    public void test_refreshAccessToken_scheduled() throws Exception {
+        try (final TestAuthentication authentication = new TestAuthentication("access-0", "refresh-0", r -> {}, null)) {
+            authentication.expiresIn = "4";
+            authentication.setRefreshMargin(0L);
+            authentication.refreshAccessToken("access-0");
+            assertEquals("access-1", authentication.getAccessToken());
+            authentication.expiresIn = null;
+            for (int i = 0; i < 100 && authentication.requests.get() < 2; i++) {
+                Thread.sleep(100L);
+            }
+            assertEquals(2, authentication.requests.get());
+            assertEquals("access-2", authentication.getAccessToken());
+            assertEquals(0L, authentication.getExpiresAt());
+        }
+    }
+
+    @Test
+    public void test_startRefresh() throws Exception {
+        final List<OAuth2Authentication.TokenUpdateResult> updates = new CopyOnWriteArrayList<>();
+        try (final TestAuthentication authentication = new TestAuthentication("access-0", "refresh-0", updates::add, null)) {
+            // the stored expiration time schedules the refresh without requesting a token
+            final long expiresAt = System.currentTimeMillis() + 3600000L;
+            authentication.startRefresh(expiresAt);
+            assertEquals(expiresAt, authentication.getExpiresAt());
+            final long delay = authentication.getScheduledDelay();
+            assertTrue(delay > 3500000L && delay <= 3540000L);
+            assertEquals(0, authentication.requests.get());
+        }
+
+        try (final TestAuthentication authentication = new TestAuthentication("access-0", "refresh-0", updates::add, null)) {
+            // the token of unknown expiration is refreshed once to get expires_in
+            final long now = System.currentTimeMillis();
+            authentication.startRefresh(0L);
+            for (int i = 0; i < 100 && authentication.getScheduledDelay() < 3500000L; i++) {
+                Thread.sleep(50L);
+            }
+            assertEquals(1, authentication.requests.get());
+            assertEquals("access-1", authentication.getAccessToken());
+            assertTrue(authentication.getExpiresAt() >= now + 3600000L);
+            assertEquals(1, updates.size());
+            assertEquals(authentication.getExpiresAt(), updates.get(0).getExpiresAt());
+            assertTrue(authentication.getScheduledDelay() > 3500000L);
+        }
+
+        try (final TestAuthentication authentication = new TestAuthentication("access-0", "refresh-0", updates::add, null)) {
+            authentication.setRefreshMargin(-1L);
+            authentication.startRefresh(0L);
+            assertEquals(-1L, authentication.getScheduledDelay());
+        }
+    }
+
+    @Test
+    public void test_refreshAccessToken_noRefreshToken() throws Exception {
+        try (final TestAuthentication authentication = new TestAuthentication("access-0", "", r -> {}, null)) {
+            authentication.refreshAccessToken("access-0");
+            fail();
+        } catch (final AtlassianDataStoreException e) {
+            assertEquals("Refresh token is not available.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void test_getExpiresAt() {
+        assertEquals(0L, OAuth2Authentication.getExpiresAt(null, 1000L));
+        assertEquals(0L, OAuth2Authentication.getExpiresAt("", 1000L));
+        assertEquals(0L, OAuth2Authentication.getExpiresAt("abc", 1000L));
+        assertEquals(0L, OAuth2Authentication.getExpiresAt("0", 1000L));
+        assertEquals(3601000L, OAuth2Authentication.getExpiresAt("3600", 1000L));
+    }
+
+    @Test
+    public void test_parseJsonResponse() {
+        try (final OAuth2Authentication authentication = new OAuth2Authentication("a", "r", "id", "secret", "", r -> {})) {
+            final Map<String, String> tokenMap = authentication
+                    .parseJsonResponse("{\"access_token\":\"a\",\"refresh_token\":\"r\",\"expires_in\":3600,\"scope\":\"read write\"}");
+            assertEquals("a", tokenMap.get("access_token"));
+            assertEquals("3600", tokenMap.get("expires_in"));
+        }
+    }
+
+    private class TestAuthentication extends OAuth2Authentication {
+
+        private final AtomicInteger requests = new AtomicInteger();
+
+        private final CountDownLatch latch;
+
+        private volatile String expiresIn = "3600";
+
+        TestAuthentication(final String accessToken, final String refreshToken, final Consumer<TokenUpdateResult> callback,
+                final CountDownLatch latch) {
+            super(accessToken, refreshToken, "id", "secret", "", callback);
+            this.latch = latch;
+        }
+
+        synchronized long getScheduledDelay() {
+            return scheduledRefresh != null ? scheduledRefresh.getDelay(TimeUnit.MILLISECONDS) : -1L;
+        }
+
+        @Override
+        protected Map<String, String> requestToken(final Map<String, String> params) {
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (final InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            final int count = requests.incrementAndGet();
+            assertEquals("refresh_token", params.get("grant_type"));
+            assertEquals("refresh-" + (count - 1), params.get("refresh_token"));
+            final Map<String, String> tokenMap = new HashMap<>();
+            tokenMap.put("access_token", "access-" + count);
+            tokenMap.put("refresh_token", "refresh-" + count);
+            tokenMap.put("expires_in", expiresIn);
+            return tokenMap;
+        }
+    }
+}
@@ -15,10 +15,14 @@
  */
 package org.codelibs.fess.ds.atlassian.api.confluence;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.TimeZone;
 
+import org.codelibs.core.exception.InterruptedRuntimeException;
 import org.codelibs.fess.ds.atlassian.api.AtlassianClientTest;
 import org.codelibs.fess.ds.atlassian.api.confluence.content.GetContentsRequest;
 import org.codelibs.fess.ds.atlassian.api.confluence.content.GetContentsResponse;
@@ -109,6 +113,68 @@ public class ConfluenceClientTest extends AtlassianClientTest {
         }
     }
 
+    @Test
+    public void test_getContents_parseResponse_stream() {
+        final String json = "{" + //
+                "  \"results\": [{" + //
+                "      \"title\": \"Result-0\", \"excerpt\": null, \"resultGlobalContainer\": { \"title\": \"Space\" }," + //
+                "      \"content\": { \"id\": \"1\", \"title\": \"Title-0\", \"body\": { \"view\": { \"value\": \"Body-0\" } } }," + //
+                "      \"url\": \"/spaces/S/pages/1\", \"breadcrumbs\": [{ \"label\": \"S\" }]" + //
+                "    }," + //
+                "    { \"id\": \"2\", \"title\": \"Title-1\" }," + //
+                "    { \"id\": \"3\", \"title\": \"Title-2\" }" + //
+                "  ]," + //
+                "  \"start\": 0, \"limit\": 25, \"size\": 2" + //
+                "}";
+        final List<Content> contents = new ArrayList<>();
+        assertEquals(3, GetContentsRequest.parseResponse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), contents::add));
+        assertEquals("Title-0", contents.get(0).getTitle());
+        assertEquals("Body-0", contents.get(0).getBody());
+        assertEquals("2", contents.get(1).getId());
+        assertEquals("Title-2", contents.get(2).getTitle());
+    }
+
+    @Test
+    public void test_getContents_parseResponse_withComments() {
+        final String json = "{" + //
+                "  \"results\": [{" + //
+                "      \"content\": { \"id\": \"1\", \"title\": \"Title-0\"," + //
+                "        \"children\": { \"comment\": { \"results\": [], \"start\": 0, \"limit\": 25, \"size\": 0 } } }" + //
+                "    }," + //
+                "    {" + //
+                "      \"content\": { \"id\": \"2\", \"title\": \"Title-1\"," + //
+                "        \"children\": { \"comment\": { \"results\": [{ \"title\": \"Re: Title-1\"," + //
+                "          \"body\": { \"view\": { \"value\": \"Comment-1\" } } }]," + //
+                "          \"start\": 0, \"limit\": 25, \"size\": 1 } } }" + //
+                "    }," + //
+                "    {" + //
+                "      \"content\": { \"id\": \"3\", \"title\": \"Title-2\"," + //
+                "        \"children\": { \"comment\": { \"results\": [{ \"title\": \"Re: Title-2\" }]," + //
+                "          \"start\": 0, \"limit\": 1, \"size\": 1, \"_links\": { \"next\": \"/rest/api/...\" } } } }" + //
+                "    }," + //
+                "    {" + //
+                "      \"content\": { \"id\": \"4\", \"title\": \"Title-3\" }" + //
+                "    }" + //
+                "  ]" + //
+                "}";
+        final List<Content> contents = GetContentsRequest.parseResponse(json).getContents();
+        assertEquals(4, contents.size());
+        assertEquals(0, contents.get(0).getComments().size());
+        assertEquals(1, contents.get(1).getComments().size());
+        assertEquals("Comment-1", contents.get(1).getComments().get(0).getBody());
+        assertNull(contents.get(2).getComments());
+        assertNull(contents.get(3).getComments());
+    }
+
+    @Test
+    public void test_getContents_lastModifiedFrom() {
+        assertEquals("type in (page,blogpost)", new GetContentsRequest().getQueryParamMap().get("cql"));
+        assertEquals("type in (page,blogpost) AND lastmodified>=\"2024/01/02 03:04\"",
+                new GetContentsRequest().lastModifiedFrom("2024/01/02 03:04").getQueryParamMap().get("cql"));
+        assertEquals("type=\"blogpost\" AND lastmodified>=\"2024/01/02 03:04\"",
+                new GetContentsRequest().type("blogpost").lastModifiedFrom("2024/01/02 03:04").getQueryParamMap().get("cql"));
+    }
+
     @Test
     public void test_getCommentsOfContent_parseResponse() {
         String json = "{" + //
@@ -155,6 +221,14 @@ public class ConfluenceClientTest extends AtlassianClientTest {
                 "      \"_links\": {" + //
                 "        \"download\": \"/download\"" + //
                 "      }" + //
+                "    }," + //
+                "    {" + //
+                "      \"id\": \"att123\"," + //
+                "      \"title\": \"doc.pdf\"," + //
+                "      \"extensions\": { \"mediaType\": \"application/pdf\", \"fileSize\": 12345 }," + //
+                "      \"_links\": {" + //
+                "        \"download\": \"/download/attachments/1/doc.pdf?version=1\"" + //
+                "      }" + //
                 "    }" + //
                 "  ]" + //
                 "}";
@@ -164,6 +238,12 @@ public class ConfluenceClientTest extends AtlassianClientTest {
         assertEquals("title.txt", attachment.getTitle());
         assertEquals("text/plain", attachment.getMediaType());
         assertEquals("/download", attachment.getDownloadLink());
+        assertNull(attachment.getFileSize());
+        final Attachment pdf = attachments.get(1);
+        assertEquals("att123", pdf.getId());
+        assertEquals("application/pdf", pdf.getMediaType());
+        assertEquals(12345L, pdf.getFileSize().longValue());
+        assertEquals("/download/attachments/1/doc.pdf?version=1", pdf.getDownloadLink());
     }
 
     protected void doGetSpacesTest(final ConfluenceClient confluenceClient) {
@@ -198,4 +278,17 @@ public class ConfluenceClientTest extends AtlassianClientTest {
     public void test_getSpace_parseResponse() {
         // TODO
     }
+
+    @Test
+    public void test_getContents_consumerException() {
+        final String json = "{\"results\":[{\"id\":\"1\",\"title\":\"a\"}],\"size\":1}";
+        try {
+            withResponse(new GetContentsRequest(), json).execute(content -> {
+                throw new InterruptedRuntimeException(new InterruptedException());
+            });
+            fail();
+        } catch (final InterruptedRuntimeException e) {
+            // thrown as it is
+        }
+    }
 }
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian.api.endpoint;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.codelibs.fess.ds.atlassian.AtlassianDataStoreException;
+import org.codelibs.fess.ds.atlassian.UnitDsTestCase;
+import org.codelibs.fess.ds.atlassian.api.AtlassianProduct;
+import org.codelibs.fess.ds.atlassian.api.authentication.OAuth2Authentication;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+
+public class CloudOAuth2EndpointStrategyTest extends UnitDsTestCase {
+
+    private static final String DENIED = "denied";
+
+    private final AtomicInteger resolutions = new AtomicInteger();
+
+    @Override
+    protected boolean isSuppressTestCaseTransaction() {
+        return true;
+    }
+
+    @Override
+    public void setUp(final TestInfo testInfo) throws Exception {
+        super.setUp(testInfo);
+        CloudOAuth2EndpointStrategy.clearCloudIdCache();
+        resolutions.set(0);
+    }
+
+    @Override
+    public void tearDown(final TestInfo testInfo) throws Exception {
+        CloudOAuth2EndpointStrategy.setCloudIdTtl(CloudOAuth2EndpointStrategy.DEFAULT_CLOUD_ID_TTL,
+                CloudOAuth2EndpointStrategy.DEFAULT_CLOUD_ID_NEGATIVE_TTL);
+        CloudOAuth2EndpointStrategy.clearCloudIdCache();
+        super.tearDown(testInfo);
+    }
+
+    @Test
+    public void test_getApiUrl_shared() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                final AtlassianProduct product = i % 2 == 0 ? AtlassianProduct.JIRA : AtlassianProduct.CONFLUENCE;
+                final TestStrategy strategy = new TestStrategy("https://example.atlassian.net/", product, "client", "cloud-1", latch);
+                futures.add(executor.submit(strategy::getApiUrl));
+            }
+            Thread.sleep(100L);
+            latch.countDown();
+            for (int i = 0; i < futures.size(); i++) {
+                final String apiUrl = futures.get(i).get(10, TimeUnit.SECONDS);
+                if (i % 2 == 0) {
+                    assertEquals("https://api.atlassian.com/ex/jira/cloud-1", apiUrl);
+                } else {
+                    assertEquals("https://api.atlassian.com/ex/confluence/cloud-1/wiki", apiUrl);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, resolutions.get());
+
+        new TestStrategy("https://example.atlassian.net", AtlassianProduct.JIRA, "client", "cloud-1", null).getApiUrl();
+        assertEquals(1, resolutions.get());
+
+        // different client or site
+        assertEquals("https://api.atlassian.com/ex/jira/cloud-2",
+                new TestStrategy("https://example.atlassian.net", AtlassianProduct.JIRA, "other", "cloud-2", null).getApiUrl());
+        assertEquals("https://api.atlassian.com/ex/jira/cloud-3",
+                new TestStrategy("https://other.atlassian.net", AtlassianProduct.JIRA, "client", "cloud-3", null).getApiUrl());
+        assertEquals(3, resolutions.get());
+    }
+
+    @Test
+    public void test_getApiUrl_negative() throws Exception {
+        CloudOAuth2EndpointStrategy.setCloudIdTtl(60000L, 200L);
+        for (int i = 0; i < 3; i++) {
+            try {
+                new TestStrategy("https://example.atlassian.net", AtlassianProduct.JIRA, "client", null, null).getApiUrl();
+                fail();
+            } catch (final AtlassianDataStoreException e) {
+                assertEquals("Cloud ID not found", e.getMessage());
+            }
+        }
+        assertEquals(1, resolutions.get());
+
+        Thread.sleep(300L);
+        assertEquals("https://api.atlassian.com/ex/jira/cloud-1",
+                new TestStrategy("https://example.atlassian.net", AtlassianProduct.JIRA, "client", "cloud-1", null).getApiUrl());
+        assertEquals(2, resolutions.get());
+    }
+
+    @Test
+    public void test_getApiUrl_refreshAhead() throws Exception {
+        CloudOAuth2EndpointStrategy.setCloudIdTtl(400L, 100L);
+        assertEquals("https://api.atlassian.com/ex/jira/cloud-1",
+                new TestStrategy("https://example.atlassian.net", AtlassianProduct.JIRA, "client", "cloud-1", null).getApiUrl());
+        Thread.sleep(250L);
+        // the cached Cloud ID is returned while it is resolved again in the background
+        assertEquals("https://api.atlassian.com/ex/jira/cloud-1",
+                new TestStrategy("https://example.atlassian.net", AtlassianProduct.JIRA, "client", "cloud-2", null).getApiUrl());
+        for (int i = 0; i < 100 && resolutions.get() < 2; i++) {
+            Thread.sleep(10L);
+        }
+        assertEquals(2, resolutions.get());
+        Thread.sleep(50L);
+        assertEquals("https://api.atlassian.com/ex/jira/cloud-2",
+                new TestStrategy("https://example.atlassian.net", AtlassianProduct.JIRA, "client", "cloud-3", null).getApiUrl());
+        assertEquals(2, resolutions.get());
+    }
+
+    @Test
+    public void test_getApiUrl_refreshAheadSameInstance() throws Exception {
+        CloudOAuth2EndpointStrategy.setCloudIdTtl(400L, 100L);
+        final TestStrategy strategy = new TestStrategy("https://example.atlassian.net", AtlassianProduct.JIRA, "client", "cloud-1", null);
+        assertEquals("https://api.atlassian.com/ex/jira/cloud-1", strategy.getApiUrl());
+        strategy.cloudId = "cloud-2";
+        Thread.sleep(250L);
+        // the client that resolved the Cloud ID also triggers the refresh and uses the refreshed Cloud ID
+        assertEquals("https://api.atlassian.com/ex/jira/cloud-1", strategy.getApiUrl());
+        for (int i = 0; i < 100 && resolutions.get() < 2; i++) {
+            Thread.sleep(10L);
+        }
+        Thread.sleep(50L);
+        assertEquals("https://api.atlassian.com/ex/jira/cloud-2", strategy.getApiUrl());
+        assertEquals(2, resolutions.get());
+    }
+
+    @Test
+    public void test_getApiUrl_authenticationFailure() throws Exception {
+        CloudOAuth2EndpointStrategy.setCloudIdTtl(60000L, 60000L);
+        try {
+            new TestStrategy("https://example.atlassian.net", AtlassianProduct.JIRA, "client", DENIED, null).getApiUrl();
+            fail();
+        } catch (final AtlassianDataStoreException e) {
+            assertEquals("Unauthorized", e.getMessage());
+        }
+        // a rejected token of another client does not fail this client
+        assertEquals("https://api.atlassian.com/ex/jira/cloud-1",
+                new TestStrategy("https://example.atlassian.net", AtlassianProduct.JIRA, "client", "cloud-1", null).getApiUrl());
+        assertEquals(2, resolutions.get());
+    }
+
+    private class TestStrategy extends CloudOAuth2EndpointStrategy {
+
+        private volatile String cloudId;
+
+        private final CountDownLatch latch;
+
+        TestStrategy(final String home, final AtlassianProduct product, final String clientId, final String cloudId,
+                final CountDownLatch latch) {
+            super(home, product, new OAuth2Authentication("access", "refresh", clientId, "secret", "", r -> {}));
+            this.cloudId = cloudId;
+            this.latch = latch;
+        }
+
+        @Override
+        protected String resolveCloudId() {
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (final InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            resolutions.incrementAndGet();
+            if (cloudId == null) {
+                throw new AtlassianDataStoreException("Cloud ID not found");
+            }
+            if (DENIED.equals(cloudId)) {
+                throw new AuthenticationFailedException("Unauthorized");
+            }
+            return cloudId;
+        }
+    }
+}
@@ -15,13 +15,20 @@
  */
 package org.codelibs.fess.ds.atlassian.api.jira;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
+import org.codelibs.core.exception.InterruptedRuntimeException;
+import org.codelibs.fess.ds.atlassian.AtlassianDataStoreException;
 import org.codelibs.fess.ds.atlassian.api.AtlassianClientTest;
+import org.codelibs.fess.ds.atlassian.api.jira.domain.AdfDocument;
 import org.codelibs.fess.ds.atlassian.api.jira.domain.Comment;
+import org.codelibs.fess.ds.atlassian.api.jira.domain.Attachment;
+import org.codelibs.fess.ds.atlassian.api.jira.domain.Comments;
 import org.codelibs.fess.ds.atlassian.api.jira.domain.Fields;
 import org.codelibs.fess.ds.atlassian.api.jira.domain.Issue;
 import org.codelibs.fess.ds.atlassian.api.jira.domain.Project;
@@ -175,7 +182,28 @@ public class JiraClientTest extends AtlassianClientTest {
         }
     }
 
-    @SuppressWarnings("unchecked")
+    @Test
+    public void test_search_parseResponse_withAttachments() {
+        final String json = "{" + //
+                "  \"issues\": [{" + //
+                "      \"key\": \"KAN-1\"," + //
+                "      \"fields\": {" + //
+                "        \"attachment\": [{ \"id\": \"10001\", \"filename\": \"error.log\"," + //
+                "          \"mimeType\": \"text/plain\", \"size\": 2048," + //
+                "          \"content\": \"https://example.atlassian.net/rest/api/3/attachment/content/10001\" }]" + //
+                "      }" + //
+                "    }" + //
+                "  ]" + //
+                "}";
+        final List<Issue> issues = SearchRequest.parseResponse(json).getIssues();
+        final Attachment attachment = issues.get(0).getFields().getAttachment().get(0);
+        assertEquals("10001", attachment.getId());
+        assertEquals("error.log", attachment.getFilename());
+        assertEquals("text/plain", attachment.getMimeType());
+        assertEquals(2048L, attachment.getSize().longValue());
+        assertEquals("https://example.atlassian.net/rest/api/3/attachment/content/10001", attachment.getContent());
+    }
+
     @Test
     public void test_search_parseResponse_withAdfDescription() {
         final String json = "{" + //
@@ -207,9 +235,8 @@ public class JiraClientTest extends AtlassianClientTest {
         assertEquals("KAN-1", issue.getKey());
         final Fields fields = issue.getFields();
         assertEquals("Task 1", fields.getSummary());
-        assertTrue("description should be a Map", fields.getDescription() instanceof Map);
-        final Map<String, Object> adf = (Map<String, Object>) fields.getDescription();
-        assertEquals("doc", adf.get("type"));
+        assertTrue("description should be an AdfDocument", fields.getDescription() instanceof AdfDocument);
+        assertEquals("This is a description.", ((AdfDocument) fields.getDescription()).getText());
     }
 
     @Test
@@ -253,7 +280,90 @@ public class JiraClientTest extends AtlassianClientTest {
         assertNull(issues.get(0).getFields().getDescription());
     }
 
-    @SuppressWarnings("unchecked")
+    @Test
+    public void test_search_parseResponse_withNextPageToken() {
+        String json = "{" + //
+                "  \"issues\": [{ \"key\": \"KAN-1\" }]," + //
+                "  \"nextPageToken\": \"token-1\"," + //
+                "  \"isLast\": false" + //
+                "}";
+        SearchResponse response = SearchRequest.parseResponse(json);
+        assertEquals(1, response.getIssues().size());
+        assertEquals("token-1", response.getNextPageToken());
+        assertFalse(response.getLast());
+        assertNull(response.getTotal());
+
+        json = "{" + //
+                "  \"issues\": [{ \"key\": \"KAN-2\" }]," + //
+                "  \"isLast\": true" + //
+                "}";
+        response = SearchRequest.parseResponse(json);
+        assertNull(response.getNextPageToken());
+        assertTrue(response.getLast());
+
+        assertEquals("token-1", new SearchRequest().nextPageToken("token-1").getQueryParamMap().get("nextPageToken"));
+        assertNull(new SearchRequest().getQueryParamMap().get("nextPageToken"));
+    }
+
+    @Test
+    public void test_search_parseResponse_stream() {
+        final String json = "{" + //
+                "  \"total\": 2," + //
+                "  \"issues\": [{ \"key\": \"KAN-1\", \"fields\": { \"summary\": \"Task 1\" } }," + //
+                "    { \"key\": \"KAN-2\", \"fields\": { \"summary\": \"Task 2\" } }]," + //
+                "  \"nextPageToken\": \"token-1\"," + //
+                "  \"isLast\": false" + //
+                "}";
+        final List<Issue> issues = new ArrayList<>();
+        final SearchResponse response =
+                SearchRequest.parseResponse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), issues::add);
+        assertEquals(2, issues.size());
+        assertEquals("KAN-1", issues.get(0).getKey());
+        assertEquals("Task 2", issues.get(1).getFields().getSummary());
+        assertEquals(2L, response.getTotal().longValue());
+        assertEquals("token-1", response.getNextPageToken());
+        assertFalse(response.getLast());
+        assertNull(response.getIssues());
+
+        assertNull(SearchRequest.parseResponse(new ByteArrayInputStream(new byte[0]), issues::add).getTotal());
+    }
+
+    @Test
+    public void test_search_parseResponse_withComments() {
+        final String json = "{" + //
+                "  \"issues\": [{" + //
+                "      \"key\": \"KAN-1\"," + //
+                "      \"fields\": {" + //
+                "        \"comment\": { \"startAt\": 0, \"maxResults\": 1, \"total\": 1, \"comments\": [{ \"body\": \"Comment-1\" }] }" + //
+                "      }" + //
+                "    }," + //
+                "    {" + //
+                "      \"key\": \"KAN-2\"," + //
+                "      \"fields\": {" + //
+                "        \"comment\": { \"startAt\": 0, \"maxResults\": 1, \"total\": 2, \"comments\": [{ \"body\": \"Comment-2\" }] }" + //
+                "      }" + //
+                "    }" + //
+                "  ]" + //
+                "}";
+        final List<Issue> issues = SearchRequest.parseResponse(json).getIssues();
+        final Comments complete = issues.get(0).getFields().getComment();
+        assertEquals(1L, complete.getMaxResults().longValue());
+        assertEquals("Comment-1", complete.getComments().get(0).getBody());
+        assertTrue(complete.isComplete());
+        assertFalse(issues.get(1).getFields().getComment().isComplete());
+        assertFalse(new Comments().isComplete());
+
+        final String withoutTotal = "{\"issues\": [" + //
+                "{ \"key\": \"KAN-3\", \"fields\": { \"comment\": { \"maxResults\": 2, \"comments\": [{ \"body\": \"C3\" }] } } }," + //
+                "{ \"key\": \"KAN-4\", \"fields\": { \"comment\": { \"maxResults\": 1, \"comments\": [{ \"body\": \"C4\" }] } } }," + //
+                "{ \"key\": \"KAN-5\", \"fields\": { \"comment\": { \"comments\": [{ \"body\": \"C5\" }] } } }" + //
+                "]}";
+        final List<Issue> issuesWithoutTotal = SearchRequest.parseResponse(withoutTotal).getIssues();
+        assertTrue(issuesWithoutTotal.get(0).getFields().getComment().isComplete());
+        assertFalse(issuesWithoutTotal.get(1).getFields().getComment().isComplete());
+        assertTrue(issuesWithoutTotal.get(2).getFields().getComment().isComplete());
+    }
+
     @Test
     public void test_getComments_parseResponse_withAdfBody() {
         final String json = "{" + //
@@ -275,9 +385,73 @@ public class JiraClientTest extends AtlassianClientTest {
         final GetCommentsResponse response = GetCommentsRequest.parseResponse(json);
         final List<Comment> comments = response.getComments();
         assertEquals(1, comments.size());
-        assertTrue("body should be a Map", comments.get(0).getBody() instanceof Map);
-        final Map<String, Object> adf = (Map<String, Object>) comments.get(0).getBody();
-        assertEquals("doc", adf.get("type"));
+        assertTrue("body should be an AdfDocument", comments.get(0).getBody() instanceof AdfDocument);
+        assertEquals("ADF comment", ((AdfDocument) comments.get(0).getBody()).getText());
+    }
+
+    @Test
+    public void test_appendJqlClause() {
+        assertEquals("updated >= \"2024/01/31 12:34\" AND (project = ABC)",
+                JiraClient.appendJqlClause("project = ABC", "updated >= \"2024/01/31 12:34\""));
+        assertEquals("updated >= \"2024/01/31 12:34\" AND (project = ABC OR project = DEF) order by created DESC",
+                JiraClient.appendJqlClause("project = ABC OR project = DEF order by created DESC", "updated >= \"2024/01/31 12:34\""));
+        assertEquals("updated >= \"2024/01/31 12:34\" ORDER BY key",
+                JiraClient.appendJqlClause("ORDER BY key", "updated >= \"2024/01/31 12:34\""));
+    }
+
+    @Test
+    public void test_appendShardClause() {
+        assertEquals("project = ABC", JiraClient.appendShardClause("project = ABC", null, null, null, null));
+        assertEquals("project = \"ABC\" AND (created is not empty)",
+                JiraClient.appendShardClause("created is not empty", "ABC", null, null, null));
+        assertEquals(
+                "project = \"ABC\" AND created >= \"2024/01/01 00:00\" AND created < \"2024/02/01 00:00\""
+                        + " AND updated >= \"2024/01/31 12:34\" AND (status = Done) ORDER BY key",
+                JiraClient.appendShardClause("status = Done ORDER BY key", "ABC", "2024/01/01 00:00", "2024/02/01 00:00",
+                        "2024/01/31 12:34"));
+        assertEquals("project = \"A\\\"B\\\\C\" AND (status = Done)",
+                JiraClient.appendShardClause("status = Done", "A\"B\\C", null, null, null));
+    }
+
+    @Test
+    public void test_splitOrderBy() {
+        assertEquals(List.of("project = ABC", "ORDER BY key"), List.of(JiraClient.splitOrderBy("project = ABC ORDER BY key")));
+        assertEquals(List.of("project = ABC", ""), List.of(JiraClient.splitOrderBy(" project = ABC ")));
+        assertEquals(List.of("", "order by key"), List.of(JiraClient.splitOrderBy("order by key")));
+        assertEquals(List.of("summary ~ \"sort order by date\"", "ORDER BY key"),
+                List.of(JiraClient.splitOrderBy("summary ~ \"sort order by date\" ORDER BY key")));
+        assertEquals(List.of("summary ~ 'it\\'s order by' AND text ~ \"a \\\" order by\"", ""),
+                List.of(JiraClient.splitOrderBy("summary ~ 'it\\'s order by' AND text ~ \"a \\\" order by\"")));
+        assertEquals(List.of("summary ~ \"order by", ""), List.of(JiraClient.splitOrderBy("summary ~ \"order by")));
+    }
+
+    @Test
+    public void test_replaceOrderBy() {
+        assertEquals("project = ABC ORDER BY created ASC", JiraClient.replaceOrderBy("project = ABC", "ORDER BY created ASC"));
+        assertEquals("project = ABC ORDER BY created ASC",
+                JiraClient.replaceOrderBy("project = ABC order by key DESC", "ORDER BY created ASC"));
+        assertEquals("ORDER BY created ASC", JiraClient.replaceOrderBy("ORDER BY key", "ORDER BY created ASC"));
+        assertEquals("summary ~ \"sort order by date\" ORDER BY created ASC",
+                JiraClient.replaceOrderBy("summary ~ \"sort order by date\"", "ORDER BY created ASC"));
+    }
+
+    @Test
+    public void test_search_consumerException() {
+        final String json = "{\"issues\":[{\"id\":\"1\",\"key\":\"ABC-1\"}],\"isLast\":true}";
+        try {
+            withResponse(new SearchRequest(), json).execute(issue -> {
+                throw new InterruptedRuntimeException(new InterruptedException());
+            });
+            fail();
+        } catch (final InterruptedRuntimeException e) {
+            // thrown as it is
+        }
+        try {
+            withResponse(new SearchRequest(), "{\"issues\":[").execute(issue -> {});
+            fail();
+        } catch (final AtlassianDataStoreException e) {
+            // expected
+        }
     }
 
 }
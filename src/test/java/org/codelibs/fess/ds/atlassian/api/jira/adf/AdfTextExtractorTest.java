@@ -0,0 +1,211 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian.api.jira.adf;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codelibs.fess.ds.atlassian.UnitDsTestCase;
+import org.codelibs.fess.ds.atlassian.api.jira.domain.AdfDocument;
+import org.codelibs.fess.ds.atlassian.api.jira.domain.Comment;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+public class AdfTextExtractorTest extends UnitDsTestCase {
+
+    private static final Logger logger = LogManager.getLogger(AdfTextExtractorTest.class);
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @Override
+    protected boolean isSuppressTestCaseTransaction() {
+        return true;
+    }
+
+    @Test
+    public void test_extract_blocks() throws Exception {
+        final String json = "{\"type\":\"doc\",\"version\":1,\"content\":[" //
+                + "{\"type\":\"heading\",\"attrs\":{\"level\":1},\"content\":[{\"type\":\"text\",\"text\":\"Title\"}]}," //
+                + "{\"type\":\"paragraph\",\"content\":[{\"type\":\"text\",\"text\":\"Hello \"}," //
+                + "{\"type\":\"text\",\"text\":\"world\",\"marks\":[{\"type\":\"strong\"}]}," //
+                + "{\"type\":\"hardBreak\"},{\"type\":\"text\",\"text\":\"next\"}]}," //
+                + "{\"type\":\"bulletList\",\"content\":[" //
+                + "{\"type\":\"listItem\",\"content\":[{\"type\":\"paragraph\",\"content\":[{\"type\":\"text\",\"text\":\"one\"}]}]}," //
+                + "{\"type\":\"listItem\",\"content\":[{\"type\":\"paragraph\",\"content\":[{\"type\":\"text\",\"text\":\"two\"}]}]}]}," //
+                + "{\"type\":\"codeBlock\",\"attrs\":{\"language\":\"java\"},\"content\":[{\"type\":\"text\",\"text\":\"int a = 1;\"}]}," //
+                + "{\"type\":\"table\",\"attrs\":{\"layout\":\"default\"},\"content\":[{\"type\":\"tableRow\",\"content\":[" //
+                + "{\"type\":\"tableHeader\",\"content\":[{\"type\":\"paragraph\",\"content\":[{\"type\":\"text\",\"text\":\"h1\"}]}]}," //
+                + "{\"type\":\"tableCell\",\"attrs\":{\"colspan\":1},\"content\":[{\"type\":\"paragraph\",\"content\":[" //
+                + "{\"type\":\"text\",\"text\":\"c1\"}]}]}]}]}," //
+                + "{\"type\":\"rule\"}" //
+                + "]}";
+        assertExtract("Title\nHello world\nnext\none\ntwo\nint a = 1;\nh1\nc1", json);
+    }
+
+    @Test
+    public void test_extract_inlineNodes() throws Exception {
+        final String json = "{\"type\":\"doc\",\"version\":1,\"content\":[{\"type\":\"paragraph\",\"content\":[" //
+                + "{\"type\":\"text\",\"text\":\"Hi\"}," //
+                + "{\"type\":\"mention\",\"attrs\":{\"id\":\"abc\",\"text\":\"@Alice\",\"accessLevel\":\"\"}}," //
+                + "{\"type\":\"text\",\"text\":\" see \"}," //
+                + "{\"type\":\"inlineCard\",\"attrs\":{\"url\":\"https://example.com/a\"}}," //
+                + "{\"type\":\"emoji\",\"attrs\":{\"shortName\":\":smile:\",\"id\":\"1f604\"}}," //
+                + "{\"type\":\"status\",\"attrs\":{\"text\":\"DONE\",\"color\":\"green\"}}," //
+                + "{\"type\":\"date\",\"attrs\":{\"timestamp\":\"1700000000000\"}}" //
+                + "]},{\"type\":\"blockCard\",\"attrs\":{\"url\":\"https://example.com/b\"}}]}";
+        assertExtract("Hi @Alice see https://example.com/a :smile: DONE\nhttps://example.com/b", json);
+    }
+
+    @Test
+    public void test_extract_fieldOrder() throws Exception {
+        final String json = "{\"content\":[{\"content\":[{\"text\":\"a\",\"type\":\"text\"}],\"type\":\"paragraph\"}," //
+                + "{\"content\":[{\"text\":\"b\",\"type\":\"text\"}],\"type\":\"paragraph\"}],\"version\":1,\"type\":\"doc\"}";
+        assertExtract("a\nb", json);
+    }
+
+    @Test
+    public void test_extract_empty() throws Exception {
+        assertExtract("", "{\"type\":\"doc\",\"version\":1,\"content\":[]}");
+        assertExtract("", "{}");
+    }
+
+    @Test
+    public void test_extract_deeplyNested() throws Exception {
+        // Jackson limits the nesting depth of a document to 1000
+        final int depth = 450;
+        final StringBuilder json = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            json.append("{\"type\":\"blockquote\",\"content\":[");
+        }
+        json.append("{\"type\":\"text\",\"text\":\"deep\"}");
+        for (int i = 0; i < depth; i++) {
+            json.append("]}");
+        }
+        try (JsonParser parser = mapper.getFactory().createParser(json.toString())) {
+            parser.nextToken();
+            assertEquals("deep", AdfTextExtractor.extract(parser));
+        }
+
+        Map<String, Object> adf = Map.of("type", "text", "text", "deeper");
+        for (int i = 0; i < 100000; i++) {
+            adf = Map.of("type", "blockquote", "content", List.of(adf));
+        }
+        assertEquals("deeper", AdfTextExtractor.extract(adf));
+    }
+
+    @Test
+    public void test_deserialize() throws Exception {
+        Comment comment = mapper.readValue("{\"body\":{\"type\":\"doc\",\"content\":[{\"type\":\"paragraph\",\"content\":" //
+                + "[{\"type\":\"text\",\"text\":\"ADF\"}]}]},\"id\":\"1\"}", Comment.class);
+        assertTrue(comment.getBody() instanceof AdfDocument);
+        assertEquals("ADF", ((AdfDocument) comment.getBody()).getText());
+
+        comment = mapper.readValue("{\"body\":\"<p>HTML</p>\"}", Comment.class);
+        assertEquals("<p>HTML</p>", comment.getBody());
+
+        comment = mapper.readValue("{\"body\":null}", Comment.class);
+        assertNull(comment.getBody());
+    }
+
+    @Test
+    @Disabled("Benchmark, run manually")
+    public void test_extract_benchmark() throws Exception {
+        final StringBuilder buf = new StringBuilder("{\"type\":\"doc\",\"version\":1,\"content\":[");
+        for (int i = 0; i < 200; i++) {
+            if (i > 0) {
+                buf.append(',');
+            }
+            buf.append("{\"type\":\"paragraph\",\"content\":[{\"type\":\"text\",\"text\":\"Paragraph ").append(i)
+                    .append(" of the issue description \"},") //
+                    .append("{\"type\":\"text\",\"text\":\"with marks\",\"marks\":[{\"type\":\"strong\"}]}]}");
+        }
+        final String json = buf.append("]}").toString();
+        final int count = 2000;
+        long time1 = 0;
+        long time2 = 0;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                @SuppressWarnings("unchecked")
+                final Map<String, Object> adf = mapper.readValue(json, Map.class);
+                assertFalse(getBaselineExtractedTextFromAdf(adf).isEmpty());
+            }
+            time1 = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                try (JsonParser parser = mapper.getFactory().createParser(json)) {
+                    parser.nextToken();
+                    assertFalse(AdfTextExtractor.extract(parser).isEmpty());
+                }
+            }
+            time2 = System.nanoTime() - start;
+        }
+        logger.info("Baseline: {} documents/s, AdfTextExtractor: {} documents/s", count * 1_000_000_000L / time1,
+                count * 1_000_000_000L / time2);
+    }
+
+    /**
+     * The implementation before AdfTextExtractor, reading the document into a Map and
+     * walking it recursively.
+     */
+    private static String getBaselineExtractedTextFromAdf(final Map<String, Object> adf) {
+        final StringBuilder sb = new StringBuilder();
+        extractBaselineTextFromAdf(adf, sb);
+        return sb.toString().trim();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void extractBaselineTextFromAdf(final Object obj, final StringBuilder sb) {
+        if (obj instanceof Map) {
+            final Map<String, Object> map = (Map<String, Object>) obj;
+            if (map.containsKey("text")) {
+                final Object text = map.get("text");
+                if (text != null) {
+                    sb.append(text.toString());
+                }
+            }
+            if (map.containsKey("content")) {
+                extractBaselineTextFromAdf(map.get("content"), sb);
+            }
+
+            final Object type = map.get("type");
+            if ("paragraph".equals(type) || "heading".equals(type)) {
+                sb.append("\n");
+            }
+        } else if (obj instanceof List) {
+            final List<Object> list = (List<Object>) obj;
+            for (final Object item : list) {
+                extractBaselineTextFromAdf(item, sb);
+            }
+        }
+    }
+
+    private void assertExtract(final String expected, final String json) throws Exception {
+        try (JsonParser parser = mapper.getFactory().createParser(json)) {
+            parser.nextToken();
+            assertEquals(expected, AdfTextExtractor.extract(parser));
+            assertNull(parser.nextToken());
+        }
+        @SuppressWarnings("unchecked")
+        final Map<String, Object> adf = mapper.readValue(json, Map.class);
+        assertEquals(expected, AdfTextExtractor.extract(adf));
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian.api.transport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.codelibs.curl.CurlResponse;
+import org.codelibs.curl.io.ContentCache;
+import org.codelibs.fess.ds.atlassian.UnitDsTestCase;
+import org.junit.jupiter.api.Test;
+
+public class CurlTransportTest extends UnitDsTestCase {
+
+    @Override
+    protected boolean isSuppressTestCaseTransaction() {
+        return true;
+    }
+
+    @Test
+    public void test_decode() throws Exception {
+        final String text = "{\"results\":[]}".repeat(100);
+        final byte[] content = text.getBytes(StandardCharsets.UTF_8);
+        final CurlTransport transport = new CurlTransport(null, null, null);
+
+        // the body without content coding is not copied
+        final CurlResponse plain = newResponse(Collections.emptyMap(), content);
+        try (CurlResponse response = transport.decode(plain, -1L)) {
+            assertSame(plain, response);
+            assertEquals(text, response.getContentAsString());
+        }
+
+        final ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+            out.write(content);
+        }
+        try (CurlResponse response = transport.decode(newResponse(Map.of("Content-Encoding", List.of("gzip")), gzip.toByteArray()), -1L)) {
+            assertEquals(text, response.getContentAsString());
+        }
+
+        try {
+            transport.decode(newResponse(Collections.emptyMap(), content), content.length - 1);
+            fail();
+        } catch (final IOException e) {
+            assertEquals("The content length " + content.length + " exceeds " + (content.length - 1) + " bytes.", e.getMessage());
+        }
+
+        final TransferStats stats = transport.getTransferStats();
+        assertEquals(2, stats.getResponses());
+        assertEquals(1, stats.getCompressedResponses());
+        assertEquals(content.length * 2L, stats.getContentBytes());
+    }
+
+    private CurlResponse newResponse(final Map<String, List<String>> headers, final byte[] content) {
+        final CurlResponse response = new CurlResponse();
+        response.setHttpStatusCode(200);
+        response.setHeaders(headers);
+        response.setContentCache(new ContentCache(content));
+        return response;
+    }
+}
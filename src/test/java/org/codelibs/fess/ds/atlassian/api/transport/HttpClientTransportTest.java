@@ -0,0 +1,205 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian.api.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.codelibs.curl.CurlResponse;
+import org.codelibs.curl.io.ContentCache;
+import org.codelibs.fess.ds.atlassian.UnitDsTestCase;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+
+import com.sun.net.httpserver.HttpServer;
+
+public class HttpClientTransportTest extends UnitDsTestCase {
+
+    private HttpServer server;
+
+    private final Set<Integer> remotePorts = ConcurrentHashMap.newKeySet();
+
+    @Override
+    protected boolean isSuppressTestCaseTransaction() {
+        return true;
+    }
+
+    @Override
+    public void setUp(final TestInfo testInfo) throws Exception {
+        super.setUp(testInfo);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            remotePorts.add(exchange.getRemoteAddress().getPort());
+            final String requestBody = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            final String json = "{\"method\":\"" + exchange.getRequestMethod() + "\",\"auth\":\""
+                    + exchange.getRequestHeaders().getFirst("Authorization") + "\",\"body\":\"" + requestBody.replace("\"", "'") + "\"}";
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            final String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (exchange.getRequestURI().getPath().startsWith("/compressed") && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                    out.write(bytes);
+                }
+                bytes = compressed.toByteArray();
+                exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+            exchange.getResponseHeaders().add("X-RateLimit-Remaining", "10");
+            exchange.sendResponseHeaders(exchange.getRequestURI().getPath().equals("/missing") ? 404 : 200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+    }
+
+    @Override
+    public void tearDown(final TestInfo testInfo) throws Exception {
+        server.stop(0);
+        super.tearDown(testInfo);
+    }
+
+    private URI url(final String path) {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+
+    @Test
+    public void test_execute() throws Exception {
+        try (final HttpClientTransport transport = new HttpClientTransport(1000, 5000, null, 2)) {
+            try (CurlResponse response = transport.execute("GET", url("/rest/api/content?limit=1"),
+                    Collections.singletonMap("Authorization", "Basic dGVzdA=="), null)) {
+                assertEquals(200, response.getHttpStatusCode());
+                assertEquals("{\"method\":\"GET\",\"auth\":\"Basic dGVzdA==\",\"body\":\"\"}", response.getContentAsString());
+                final Map<String, java.util.List<String>> headers = response.getHeaders();
+                assertTrue(headers.entrySet()
+                        .stream()
+                        .anyMatch(e -> "x-ratelimit-remaining".equalsIgnoreCase(e.getKey()) && e.getValue().contains("10")));
+            }
+            try (CurlResponse response = transport.execute("POST", url("/rest/api/search"), Collections.emptyMap(), "{\"a\":1}")) {
+                assertEquals("{\"method\":\"POST\",\"auth\":\"null\",\"body\":\"{'a':1}\"}", response.getContentAsString());
+            }
+            try (CurlResponse response = transport.execute("GET", url("/missing"), Collections.emptyMap(), null)) {
+                assertEquals(404, response.getHttpStatusCode());
+            }
+            // the connection is kept alive and reused
+            assertEquals(1, remotePorts.size());
+        }
+    }
+
+    @Test
+    public void test_execute_compressed() throws Exception {
+        final String path = "/compressed/" + "x".repeat(10000);
+        try (final HttpClientTransport transport = new HttpClientTransport(1000, 5000, null, 0)) {
+            try (CurlResponse response = transport.execute("GET", url(path), Collections.emptyMap(), null)) {
+                assertEquals(200, response.getHttpStatusCode());
+                assertEquals("{\"method\":\"GET\",\"auth\":\"null\",\"body\":\"\"}", response.getContentAsString());
+            }
+            final TransferStats stats = transport.getTransferStats();
+            assertEquals(1, stats.getResponses());
+            assertEquals(1, stats.getCompressedResponses());
+            assertEquals(40, stats.getContentBytes());
+            assertTrue(stats.getWireBytes() > 0);
+
+            transport.setCompression(false);
+            try (CurlResponse response = transport.execute("GET", url(path), Collections.emptyMap(), null)) {
+                assertEquals("{\"method\":\"GET\",\"auth\":\"null\",\"body\":\"\"}", response.getContentAsString());
+            }
+            assertEquals(2, stats.getResponses());
+            assertEquals(1, stats.getCompressedResponses());
+        }
+    }
+
+    @Test
+    public void test_readContent() throws Exception {
+        final String text = "{\"results\":[]}".repeat(100);
+        final byte[] content = text.getBytes(StandardCharsets.UTF_8);
+        try (final HttpClientTransport transport = new HttpClientTransport(null, null, null, 0)) {
+            final ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+            try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+                out.write(content);
+            }
+            assertEquals(text, readContent(transport, "gzip", gzip.toByteArray()));
+
+            for (final boolean nowrap : new boolean[] { false, true }) {
+                final ByteArrayOutputStream deflate = new ByteArrayOutputStream();
+                try (DeflaterOutputStream out = new DeflaterOutputStream(deflate, new Deflater(Deflater.DEFAULT_COMPRESSION, nowrap))) {
+                    out.write(content);
+                }
+                assertEquals(text, readContent(transport, "deflate", deflate.toByteArray()));
+            }
+
+            assertEquals(text, readContent(transport, null, content));
+            assertEquals(text, readContent(transport, "identity", content));
+            try {
+                transport.readContent("br", new ByteArrayInputStream(content), -1L);
+                fail();
+            } catch (final IOException e) {
+                // expected
+            }
+
+            final TransferStats stats = transport.getTransferStats();
+            assertEquals(5, stats.getResponses());
+            assertEquals(3, stats.getCompressedResponses());
+            assertEquals(content.length * 5L, stats.getContentBytes());
+            assertTrue(stats.getSavedBytes() > 0);
+        }
+    }
+
+    @Test
+    public void test_readContent_maxContentLength() throws Exception {
+        final String text = "0123456789".repeat(100);
+        try (final HttpClientTransport transport = new HttpClientTransport(null, null, null, 0)) {
+            transport.setMemoryThreshold(100);
+            try (ContentCache cache = transport.readContent(null, new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), 1000L);
+                    InputStream in = cache.getInputStream()) {
+                assertEquals(text, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            try {
+                transport.readContent(null, new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), 999L);
+                fail();
+            } catch (final IOException e) {
+                assertEquals("The content length exceeds 999 bytes.", e.getMessage());
+            }
+        }
+    }
+
+    private String readContent(final HttpClientTransport transport, final String contentEncoding, final byte[] bytes) throws IOException {
+        try (ContentCache cache = transport.readContent(contentEncoding, new ByteArrayInputStream(bytes), -1L);
+                InputStream in = cache.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void test_getCharset() {
+        assertEquals("UTF-8", HttpClientTransport.getCharset(null));
+        assertEquals("UTF-8", HttpClientTransport.getCharset("application/json"));
+        assertEquals("ISO-8859-1", HttpClientTransport.getCharset("text/html; charset=\"ISO-8859-1\""));
+    }
+}
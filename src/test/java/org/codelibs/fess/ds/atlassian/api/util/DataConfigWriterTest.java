@@ -0,0 +1,130 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian.api.util;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.codelibs.fess.ds.atlassian.UnitDsTestCase;
+import org.codelibs.fess.opensearch.config.exentity.DataConfig;
+import org.junit.jupiter.api.Test;
+
+public class DataConfigWriterTest extends UnitDsTestCase {
+
+    @Override
+    protected boolean isSuppressTestCaseTransaction() {
+        return true;
+    }
+
+    @Test
+    public void test_write_coalesced() throws Exception {
+        final TestWriter writer = new TestWriter(200L, 0);
+        try {
+            for (int i = 0; i < 10; i++) {
+                writer.write(Map.of("oauth2.access_token", "access-" + i, "oauth2.refresh_token", "refresh-" + i));
+            }
+            writer.write(Map.of("other", "value"));
+            assertTrue(writer.stored.isEmpty());
+            waitFor(() -> writer.stored.size() == 1);
+            assertEquals("{oauth2.access_token=access-9, oauth2.refresh_token=refresh-9, other=value}", sorted(writer.stored.get(0)));
+
+            writer.write(Map.of("oauth2.access_token", "access-10"));
+            waitFor(() -> writer.stored.size() == 2);
+            assertEquals("{oauth2.access_token=access-10}", sorted(writer.stored.get(1)));
+        } finally {
+            writer.close();
+        }
+        assertEquals(2, writer.stored.size());
+    }
+
+    @Test
+    public void test_write_retry() throws Exception {
+        final TestWriter writer = new TestWriter(50L, 2);
+        try {
+            writer.write(Map.of("oauth2.access_token", "access-0"));
+            waitFor(() -> writer.attempts.get() >= 1);
+            writer.write(Map.of("oauth2.access_token", "access-1", "oauth2.refresh_token", "refresh-1"));
+            waitFor(() -> writer.stored.size() == 1);
+            assertEquals("{oauth2.access_token=access-1, oauth2.refresh_token=refresh-1}", sorted(writer.stored.get(0)));
+            assertEquals(3, writer.attempts.get());
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void test_close() throws Exception {
+        final TestWriter writer = new TestWriter(60000L, 0);
+        writer.write(Map.of("oauth2.access_token", "access-0"));
+        writer.close();
+        assertEquals(1, writer.stored.size());
+        assertEquals("{oauth2.access_token=access-0}", sorted(writer.stored.get(0)));
+
+        writer.write(Map.of("oauth2.access_token", "access-1"));
+        writer.close();
+        assertEquals(1, writer.stored.size());
+    }
+
+    @Test
+    public void test_getRetryDelay() {
+        final DataConfigWriter writer = new DataConfigWriter(new DataConfig(), 1000L, 60000L);
+        try {
+            assertEquals(2000L, writer.getRetryDelay(1));
+            assertEquals(4000L, writer.getRetryDelay(2));
+            assertEquals(60000L, writer.getRetryDelay(10));
+            assertEquals(60000L, writer.getRetryDelay(100));
+        } finally {
+            writer.executor.shutdownNow();
+        }
+    }
+
+    private static String sorted(final Map<String, String> params) {
+        return new TreeMap<>(params).toString();
+    }
+
+    private void waitFor(final BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 500 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(10L);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    private static class TestWriter extends DataConfigWriter {
+
+        private final List<Map<String, String>> stored = new CopyOnWriteArrayList<>();
+
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        private final int failures;
+
+        TestWriter(final long delay, final int failures) {
+            super(new DataConfig(), delay, 1000L);
+            this.failures = failures;
+        }
+
+        @Override
+        protected void store(final Map<String, String> params) {
+            if (attempts.incrementAndGet() <= failures) {
+                throw new IllegalStateException("failure " + attempts.get());
+            }
+            stored.add(params);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian.api.util;
+
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.TimeZone;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codelibs.fess.ds.atlassian.UnitDsTestCase;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+public class DateUtilTest extends UnitDsTestCase {
+
+    private static final Logger logger = LogManager.getLogger(DateUtilTest.class);
+
+    @Override
+    protected boolean isSuppressTestCaseTransaction() {
+        return true;
+    }
+
+    @Test
+    public void test_parseInstant() {
+        final Instant expected = Instant.parse("2024-01-31T12:34:56.789Z");
+        assertEquals(expected, DateUtil.parseInstant("2024-01-31T12:34:56.789Z"));
+        assertEquals(expected, DateUtil.parseInstant("2024-01-31T12:34:56.789+0000"));
+        assertEquals(expected, DateUtil.parseInstant("2024-01-31T21:34:56.789+0900"));
+        assertEquals(expected, DateUtil.parseInstant("2024-01-31T21:34:56.789+09:00"));
+        assertEquals(expected, DateUtil.parseInstant("2024-01-31T07:34:56.789-0500"));
+        assertEquals(expected, DateUtil.parseInstant("2024-01-31T12:34:56.789"));
+        assertEquals(Instant.parse("2024-01-31T12:34:56Z"), DateUtil.parseInstant("2024-01-31T12:34:56Z"));
+        assertEquals(Instant.parse("2024-01-31T12:34:56Z"), DateUtil.parseInstant("2024-01-31T12:34:56+0000"));
+        assertEquals(Instant.parse("2024-01-31T12:34:00Z"), DateUtil.parseInstant("2024-01-31T12:34Z"));
+        assertEquals(Instant.parse("2024-01-31T12:34:56.123456Z"), DateUtil.parseInstant("2024-01-31T12:34:56.123456Z"));
+        assertEquals(expected.toEpochMilli(), DateUtil.parseEpochMilli("2024-01-31T12:34:56.789+0000"));
+    }
+
+    @Test
+    public void test_parseInstant_invalid() {
+        for (final String value : new String[] { "", "2024-01-31", "2024/01/31 12:34", "2024-01-31T12:34:56.789+00000", "abc" }) {
+            try {
+                DateUtil.parseInstant(value);
+                fail(value);
+            } catch (final DateTimeParseException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    @Disabled("Benchmark, run manually")
+    public void test_parseEpochMilli_benchmark() throws Exception {
+        final String[] values = new String[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = String.format("2024-01-%02dT%02d:%02d:56.%03d+0900", i % 28 + 1, i % 24, i % 60, i);
+        }
+        long sum1 = 0;
+        long sum2 = 0;
+        long time1 = 0;
+        long time2 = 0;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (final String value : values) {
+                // the previous implementation creating a date format for each document
+                final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSX");
+                format.setTimeZone(TimeZone.getTimeZone("UTC"));
+                sum1 += format.parse(value).getTime();
+            }
+            time1 = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (final String value : values) {
+                sum2 += DateUtil.parseEpochMilli(value);
+            }
+            time2 = System.nanoTime() - start;
+        }
+        assertEquals(sum1, sum2);
+        logger.info("SimpleDateFormat per document: {} ns/op, DateUtil: {} ns/op", time1 / values.length, time2 / values.length);
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.atlassian.api.util;
+
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codelibs.fess.ds.atlassian.UnitDsTestCase;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+public class OAuthUtilTest extends UnitDsTestCase {
+
+    private static final Logger logger = LogManager.getLogger(OAuthUtilTest.class);
+
+    private static final SecureRandom BASELINE_RANDOM = new SecureRandom();
+
+    private static KeyPair keyPair;
+
+    @Override
+    protected boolean isSuppressTestCaseTransaction() {
+        return true;
+    }
+
+    private static synchronized KeyPair getKeyPair() throws Exception {
+        if (keyPair == null) {
+            final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            keyPair = generator.generateKeyPair();
+        }
+        return keyPair;
+    }
+
+    @Test
+    public void test_percentEncode() {
+        assertEquals("Ladies%20%2B%20Gentlemen", OAuthUtil.percentEncode("Ladies + Gentlemen"));
+        assertEquals("An%20encoded%20string%21", OAuthUtil.percentEncode("An encoded string!"));
+        assertEquals("Dogs%2C%20Cats%20%26%20Mice", OAuthUtil.percentEncode("Dogs, Cats & Mice"));
+        assertEquals("abcXYZ019-._~%2A%25%3D", OAuthUtil.percentEncode("abcXYZ019-._~*%="));
+        assertEquals("%C3%A9%E2%98%83%F0%9F%98%80", OAuthUtil.percentEncode("é☃😀"));
+        assertEquals("%3F", OAuthUtil.percentEncode("\ud800"));
+        assertEquals("", OAuthUtil.percentEncode(""));
+    }
+
+    @Test
+    public void test_getQueryParameters() throws Exception {
+        final List<String[]> parameters = OAuthUtil.getQueryParameters(new URL("https://example.com/a?a=b=c&flag&x=&y=%2B+1&&x=2"));
+        assertEquals(5, parameters.size());
+        assertEquals("a=b=c,flag=,x=,y=+ 1,x=2", join(parameters));
+        assertTrue(OAuthUtil.getQueryParameters(new URL("https://example.com/a")).isEmpty());
+
+        final Map<String, String> queryMap = OAuthUtil.getQueryMapFromUrl(new URL("https://example.com/a?a=b=c&flag&x=1&x=2"));
+        assertEquals("b=c", queryMap.get("a"));
+        assertEquals("", queryMap.get("flag"));
+        assertEquals("2", queryMap.get("x"));
+    }
+
+    @Test
+    public void test_getSignatureBaseString() throws Exception {
+        final URL url = new URL("HTTP://Example.com:80/request?b5=%3D%253D&a3=a&c%40=&a2=r%20b");
+        assertEquals("GET&http%3A%2F%2Fexample.com%2Frequest&a2%3Dr%2520b%26a3%3Da%26b5%3D%253D%25253D%26c%2540%3D"
+                + "%26oauth_consumer_key%3D9djdj82h48djs9d2%26oauth_nonce%3D7d8f3e4a%26oauth_signature_method%3DRSA-SHA1"
+                + "%26oauth_timestamp%3D137131201%26oauth_token%3Dkkk9d7dh3k39sjv7",
+                OAuthUtil.getSignatureBaseString("9djdj82h48djs9d2", "kkk9d7dh3k39sjv7", null, "7d8f3e4a", "137131201", "get", url));
+        assertEquals("https://example.com:8443/", OAuthUtil.getBaseStringUri(new URL("https://EXAMPLE.com:8443")));
+        assertEquals("https://example.com/rest/api", OAuthUtil.getBaseStringUri(new URL("https://example.com:443/rest/api?a=1#f")));
+    }
+
+    @Test
+    public void test_buildAuthorizationHeader() {
+        assertEquals("OAuth oauth_consumer_key=\"key\", oauth_nonce=\"n\", oauth_signature=\"a%2Bb%3D\","
+                + " oauth_signature_method=\"RSA-SHA1\", oauth_timestamp=\"1\", oauth_token=\"t\"",
+                OAuthUtil.buildAuthorizationHeader("key", "t", null, "n", "1", "a+b="));
+    }
+
+    @Test
+    public void test_sign() throws Exception {
+        final KeyPair keyPair = getKeyPair();
+        final OAuthSigner signer = new OAuthSigner("key", keyPair.getPrivate(), "token", "verifier");
+        final List<Future<Boolean>> results = new ArrayList<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int i = 0; i < 100; i++) {
+                final String baseString = "GET&https%3A%2F%2Fexample.com%2F&n%3D" + i;
+                results.add(executor.submit(() -> {
+                    final String signature = signer.sign(baseString);
+                    final Signature verifier = Signature.getInstance(OAuthUtil.SIGNATURE_ALGORITHM);
+                    verifier.initVerify(keyPair.getPublic());
+                    verifier.update(baseString.getBytes(StandardCharsets.UTF_8));
+                    return verifier.verify(Base64.getDecoder().decode(signature))
+                            && signature.equals(OAuthUtil.computeSignature(keyPair.getPrivate(), baseString));
+                }));
+            }
+            for (final Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(signer.signaturePool.size() <= 4);
+
+        final String header = signer.getAuthorizationHeader("GET", new URL("https://example.com/rest/api/2/search?jql=a%3Db"));
+        assertTrue(header, header.startsWith("OAuth oauth_consumer_key=\"key\", oauth_nonce=\""));
+        assertTrue(header, header.endsWith("oauth_token=\"token\", oauth_verifier=\"verifier\""));
+    }
+
+    @Test
+    @Disabled("Benchmark, run manually")
+    public void test_sign_benchmark() throws Exception {
+        final KeyPair keyPair = getKeyPair();
+        final OAuthSigner signer = new OAuthSigner("key", keyPair.getPrivate(), "token", "verifier");
+        final URL url = new URL("https://jira.example.com/rest/api/2/search?jql=project%3DABC&startAt=100&maxResults=50");
+        final int count = 200;
+        long time1 = 0;
+        long time2 = 0;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                assertFalse(getBaselineAuthorizationHeader("key", keyPair.getPrivate(), "token", "verifier", "GET", url).isEmpty());
+            }
+            time1 = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                assertFalse(signer.getAuthorizationHeader("GET", url).isEmpty());
+            }
+            time2 = System.nanoTime() - start;
+        }
+        logger.info("Baseline: {} signatures/s, OAuthSigner: {} signatures/s", count * 1_000_000_000L / time1,
+                count * 1_000_000_000L / time2);
+    }
+
+    /**
+     * The implementation before OAuthSigner, building the parameters in a TreeMap and
+     * looking up and initializing a signature for each request.
+     */
+    private static String getBaselineAuthorizationHeader(final String consumerKey, final PrivateKey privateKey, final String token,
+            final String verifier, final String requestMethod, final URL url) throws Exception {
+        final String nonce = Long.toHexString(Math.abs(BASELINE_RANDOM.nextLong()));
+        final String timestamp = Long.toString(System.currentTimeMillis() / 1000);
+
+        final Map<String, String> parameters = new TreeMap<>();
+        parameters.put("oauth_consumer_key", consumerKey);
+        parameters.put("oauth_nonce", nonce);
+        parameters.put("oauth_signature_method", "RSA-SHA1");
+        parameters.put("oauth_timestamp", timestamp);
+        parameters.put("oauth_token", token);
+        parameters.put("oauth_verifier", verifier);
+        final String query = url.getQuery();
+        if (query != null) {
+            parameters.putAll(
+                    Arrays.stream(query.split("&")).collect(Collectors.toMap(p -> p.split("=")[0], p -> UrlUtil.decode(p.split("=")[1]))));
+        }
+        final String normalizedParameters = UrlUtil.buildQueryParameters(parameters);
+        final String normalizedPath = url.getProtocol() + "://" + url.getAuthority() + url.getPath();
+        final String baseString = UrlUtil.encode(requestMethod) + '&' + UrlUtil.encode(normalizedPath) + '&'
+                + UrlUtil.encode(normalizedParameters);
+        final Signature signer = Signature.getInstance("SHA1withRSA");
+        signer.initSign(privateKey);
+        signer.update(baseString.getBytes(StandardCharsets.UTF_8));
+        final String signature = Base64.getEncoder().encodeToString(signer.sign());
+
+        final StringBuilder buf = new StringBuilder("OAuth");
+        appendBaselineParameter(buf, "oauth_consumer_key", consumerKey);
+        appendBaselineParameter(buf, "oauth_nonce", nonce);
+        appendBaselineParameter(buf, "oauth_signature", signature);
+        appendBaselineParameter(buf, "oauth_signature_method", "RSA-SHA1");
+        appendBaselineParameter(buf, "oauth_timestamp", timestamp);
+        appendBaselineParameter(buf, "oauth_token", token);
+        appendBaselineParameter(buf, "oauth_verifier", verifier);
+        return buf.substring(0, buf.length() - 1);
+    }
+
+    private static void appendBaselineParameter(final StringBuilder buf, final String name, final String value) {
+        buf.append(' ').append(UrlUtil.encode(name)).append("=\"").append(UrlUtil.encode(value)).append("\",");
+    }
+
+    private static String join(final List<String[]> parameters) {
+        final StringBuilder buf = new StringBuilder();
+        for (final String[] parameter : parameters) {
+            if (buf.length() > 0) {
+                buf.append(',');
+            }
+            buf.append(parameter[0]).append('=').append(parameter[1]);
+        }
+        return buf.toString();
+    }
+}